@@ -11,6 +11,7 @@ public class EntityConfiguration {
     private String jarFilePath;
     private String compression = "GZ";
     private boolean testMode = false;
+    private int tablePoolSize = 16;
 
     public EntityConfiguration() {
         this(HBaseConfiguration.create());
@@ -71,6 +72,19 @@ public class EntityConfiguration {
     public void setTestMode(boolean testMode) {
         this.testMode = testMode;
     }
+
+    /**
+     * Returns the maximum number of idle table handles kept per table by each connection.
+     *
+     * @return the pool size, or 0 if table handles are not pooled
+     */
+    public int getTablePoolSize() {
+        return tablePoolSize;
+    }
+
+    public void setTablePoolSize(int tablePoolSize) {
+        this.tablePoolSize = tablePoolSize;
+    }
 }
 
 
@@ -1,6 +1,7 @@
 package io.hentitydb;
 
 import com.google.common.base.Throwables;
+import io.hentitydb.entity.AsyncEntityContext;
 import io.hentitydb.entity.DefaultEntityContext;
 import io.hentitydb.entity.EntityContext;
 import io.hentitydb.store.Connection;
@@ -25,4 +26,8 @@ public class Environment {
     public static <T, K> EntityContext<T, K> getEntityContext(Connection connection, Class<T> entityType) {
         return new DefaultEntityContext<>(connection, entityType);
     }
+
+    public static <T, K> AsyncEntityContext<T, K> getAsyncEntityContext(Connection connection, Class<T> entityType) {
+        return Environment.<T, K>getEntityContext(connection, entityType).async();
+    }
 }
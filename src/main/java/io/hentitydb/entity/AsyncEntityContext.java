@@ -0,0 +1,124 @@
+package io.hentitydb.entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A non-blocking view of an {@link EntityContext}.  Failures complete the returned futures exceptionally
+ * with a {@link javax.persistence.PersistenceException}.
+ *
+ * Queries created by this context are the same as those of the underlying entity context, and should be
+ * executed with their async methods, such as {@link SelectQuery#fetchAsync()} or
+ * {@link MutationQuery#executeAsync()}.
+ */
+public interface AsyncEntityContext<T, K> {
+
+    /**
+     * Writes the entity.
+     *
+     * @param entity entity
+     * @return a future that completes when the entity has been written
+     */
+    CompletableFuture<Void> put(T entity);
+
+    /**
+     * Writes the entities.  Entities with the same ID are written atomically.
+     *
+     * @param entities entities
+     * @return a future that completes when the entities have been written
+     */
+    CompletableFuture<Void> put(Collection<T> entities);
+
+    /**
+     * Retrieves the entities with the given row key.
+     *
+     * @param id row key
+     * @return a future for the entities
+     */
+    CompletableFuture<List<T>> get(K id);
+
+    /**
+     * Retrieves the entities with the given row keys in a single batch.
+     *
+     * @param ids row keys
+     * @return a future for the entities by row key
+     */
+    CompletableFuture<Map<K, List<T>>> get(Collection<K> ids);
+
+    /**
+     * Deletes the row with the given row key.
+     *
+     * @param id row key
+     * @return a future that completes when the row has been deleted
+     */
+    CompletableFuture<Void> delete(K id);
+
+    /**
+     * Removes the specified entity from the row.
+     *
+     * @param entity entity
+     * @return a future that completes when the entity has been removed
+     */
+    CompletableFuture<Void> remove(T entity);
+
+    /**
+     * Removes the specified entities from the row.  Entities with the same ID are removed atomically.
+     *
+     * @param entities entities
+     * @return a future that completes when the entities have been removed
+     */
+    CompletableFuture<Void> remove(Collection<T> entities);
+
+    /**
+     * Create a select query to return zero or more entities.
+     *
+     * @return the query
+     */
+    SelectQuery<T, K> select();
+
+    /**
+     * Create a select query that only returns the given fields of each entity; the remaining non-ID fields
+     * are left unset.  Query predicates may still reference fields outside the projection.
+     *
+     * @param fields the fields to return
+     * @return the query
+     */
+    SelectQuery<T, K> select(String... fields);
+
+    /**
+     * Create an update query.
+     *
+     * @return the query
+     */
+    UpdateQuery<T, K> update();
+
+    /**
+     * Create a delete query.
+     *
+     * @return the query
+     */
+    DeleteQuery<T, K> delete();
+
+    /**
+     * Create a mutations query to atomically execute more than one mutation query for a given row.
+     *
+     * @return the query
+     */
+    MutationsQuery<T, K> mutate();
+
+    /**
+     * Create a batch query to execute mutation queries for many rows in a single round trip.
+     *
+     * @return the query
+     */
+    BatchQuery<T, K> batch();
+
+    /**
+     * Returns the blocking entity context.
+     *
+     * @return the entity context
+     */
+    EntityContext<T, K> sync();
+}
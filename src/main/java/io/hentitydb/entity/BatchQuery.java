@@ -0,0 +1,42 @@
+package io.hentitydb.entity;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public abstract class BatchQuery<T, K> {
+    protected final List<MutationQuery<T, K>> mutations = Lists.newArrayList();
+
+    /**
+     * Adds mutation queries to the batch.  The queries may be for different rows.
+     *
+     * @param queries the update, delete, or mutations queries
+     * @return the batch query
+     */
+    @SafeVarargs
+    public final BatchQuery<T, K> add(MutationQuery<T, K>... queries) {
+        for (MutationQuery<T, K> mutation : queries) {
+            if (mutation.getId() == null) {
+                throw new IllegalStateException("ID is not set");
+            }
+            mutations.add(mutation);
+        }
+        return this;
+    }
+
+    /**
+     * Executes the batch.  Unconditional queries are combined per row and sent to the server in a single batch;
+     * queries with if-predicates are executed individually.
+     *
+     * @return whether each query succeeded, in the order the queries were added
+     */
+    public abstract List<Boolean> execute();
+
+    /**
+     * Executes the batch without blocking.
+     *
+     * @return a future for whether each query succeeded, in the order the queries were added
+     */
+    public abstract CompletableFuture<List<Boolean>> executeAsync();
+}
@@ -13,7 +13,7 @@ import java.util.Map;
 
 public class BooleanPredicate extends QueryPredicate {
 
-    private final static ClassCodec CLASS_CODEC = new ClassCodec();
+    private final static ClassCodec CLASS_CODEC = new ClassCodec(null, true);
 
     private BooleanOp op;
     private List<QueryPredicate> predicates = Lists.newArrayList();
@@ -56,13 +56,30 @@ public class BooleanPredicate extends QueryPredicate {
         }
     }
 
+    @Override
+    BooleanPredicate bind(Map<ColumnPredicate, ByteBuffer> values) {
+        BooleanPredicate result = new BooleanPredicate().setOp(op);
+        boolean changed = false;
+        for (QueryPredicate predicate : predicates) {
+            QueryPredicate bound = predicate.bind(values);
+            changed |= bound != predicate;
+            result.addPredicate(bound);
+        }
+        return changed ? result : this;
+    }
+
     @Override
     public void encode(WriteBuffer buffer) {
-        buffer.writeByte(getOp().toByte());
-        buffer.writeVarInt(predicates.size());
+        encode(new FilterTemplate.Builder(buffer));
+    }
+
+    @Override
+    void encode(FilterTemplate.Builder template) {
+        template.getBuffer().writeByte(getOp().toByte());
+        template.getBuffer().writeVarInt(predicates.size());
         for (QueryPredicate predicate : predicates) {
-            CLASS_CODEC.encode(predicate.getClass(), buffer);
-            predicate.encode(buffer);
+            CLASS_CODEC.encode(predicate.getClass(), template.getBuffer());
+            predicate.encode(template);
         }
     }
 
@@ -0,0 +1,25 @@
+package io.hentitydb.entity;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * An entity context whose puts, removes and row deletes are buffered on the client and sent to the server
+ * in batches.  Before a query accesses a row with buffered writes, the write buffer is flushed, so that
+ * queries see the writes made through this context.  Scans always flush the write buffer first.
+ *
+ * Buffered writes that fail are reported to the error listener of the write buffer parameters, if one is set,
+ * and otherwise are thrown from a later write or flush.
+ */
+public interface BufferedEntityContext<T, K> extends EntityContext<T, K>, AutoCloseable {
+
+    /**
+     * Sends all buffered writes to the server, and waits for them to complete.
+     */
+    void flush() throws PersistenceException;
+
+    /**
+     * Flushes the buffered writes and releases the write buffer.
+     */
+    @Override
+    void close() throws PersistenceException;
+}
@@ -0,0 +1,44 @@
+package io.hentitydb.entity;
+
+import com.google.common.cache.CacheStats;
+
+import javax.persistence.PersistenceException;
+import java.util.List;
+
+/**
+ * An entity context that caches the entities of a row on the client.  Rows read with {@link #get(Object)} or
+ * {@link #get(Object, String)} are served from the cache until they are evicted, and puts, removes, deletes,
+ * updates and mutations made through this context invalidate the rows they touch.  Writes made through other
+ * contexts or clients are only seen once the cached row expires.  The raw row is cached, and converted to new
+ * entities on each hit, so the returned entities may be modified without affecting the cache.
+ */
+public interface CachedEntityContext<T, K> extends EntityContext<T, K> {
+
+    /**
+     * Get all entities of the given column family for the given id.
+     *
+     * @param id the id
+     * @param family the column family, or null for all column families
+     * @return the entities
+     */
+    List<T> get(K id, String family) throws PersistenceException;
+
+    /**
+     * Removes the given row from the cache.
+     *
+     * @param id the id
+     */
+    void invalidate(K id);
+
+    /**
+     * Removes all rows from the cache.
+     */
+    void invalidateAll();
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache.
+     *
+     * @return the cache statistics
+     */
+    CacheStats stats();
+}
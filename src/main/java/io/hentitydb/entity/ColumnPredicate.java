@@ -83,13 +83,30 @@ public class ColumnPredicate extends QueryPredicate {
         }
     }
 
+    @Override
+    ColumnPredicate bind(Map<ColumnPredicate, ByteBuffer> values) {
+        if (!values.containsKey(this)) {
+            return this;
+        }
+        return new ColumnPredicate()
+                .setName(name)
+                .setOp(op)
+                .setValue(values.get(this));
+    }
+
     @Override
     public void encode(WriteBuffer buffer) {
+        encode(new FilterTemplate.Builder(buffer));
+    }
+
+    @Override
+    void encode(FilterTemplate.Builder template) {
+        WriteBuffer buffer = template.getBuffer();
         buffer.writeUtf8String(getName());
         buffer.writeByte(!isAbsentCheck() ? 1 : 0);
         if (!isAbsentCheck()) {
             buffer.writeByte(getOp().toByte());
-            BYTE_BUFFER_CODEC.encode(getValue(), buffer);
+            template.writeValue(this, getValue());
         }
     }
 
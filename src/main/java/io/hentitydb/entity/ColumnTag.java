@@ -0,0 +1,27 @@
+package io.hentitydb.entity;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores a value field under a one-byte tag instead of its name in the column qualifier.
+ */
+@Documented
+@Target({ ElementType.FIELD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ColumnTag {
+
+    /**
+     * The tag, from 1 to 31, unique within the entity.
+     */
+    int value();
+
+    /**
+     * Whether the table may still hold columns written under the field name.  Such columns are read, and deleted
+     * along with the tagged column, until the table has been migrated.
+     */
+    boolean legacyName() default false;
+}
@@ -0,0 +1,160 @@
+package io.hentitydb.entity;
+
+import com.google.common.collect.Maps;
+import io.hentitydb.serialization.BytesUtil;
+import io.hentitydb.store.CompareOp;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query predicate compiled for evaluation against the values of an entity held in an array.  Each value name
+ * is assigned a slot in the array once, so that evaluation needs no map lookups, and values are compared
+ * in place.
+ */
+class CompiledPredicate {
+
+    private interface Node {
+        boolean evaluate(ByteBuffer[] values);
+    }
+
+    private final Map<String, Integer> slots = Maps.newHashMap();
+    private final Node root;
+
+    private CompiledPredicate(QueryPredicate predicate) {
+        this.root = predicate != null ? compileNode(predicate) : null;
+    }
+
+    /**
+     * Compiles a predicate tree.
+     *
+     * @param predicate the predicate, or null to match every entity
+     * @return the compiled predicate, or null if the tree contains other types of predicates
+     */
+    static CompiledPredicate compile(QueryPredicate predicate) {
+        if (predicate != null && !isCompilable(predicate)) {
+            return null;
+        }
+        return new CompiledPredicate(predicate);
+    }
+
+    private static boolean isCompilable(QueryPredicate predicate) {
+        if (predicate.getClass() == ColumnPredicate.class) {
+            return true;
+        } else if (predicate.getClass() == BooleanPredicate.class) {
+            for (QueryPredicate p : ((BooleanPredicate) predicate).getPredicates()) {
+                if (!isCompilable(p)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the slot of a value name, assigning a new one if needed.
+     *
+     * @param valueName the value name
+     * @return the slot
+     */
+    int addSlot(String valueName) {
+        return slots.computeIfAbsent(valueName, k -> slots.size());
+    }
+
+    /**
+     * Returns the slot of a value name.
+     *
+     * @param valueName the value name
+     * @return the slot, or -1 if the value is not needed
+     */
+    int getSlot(String valueName) {
+        Integer slot = slots.get(valueName);
+        return slot != null ? slot : -1;
+    }
+
+    int getNumSlots() {
+        return slots.size();
+    }
+
+    /**
+     * Evaluates the predicate.
+     *
+     * @param values the array-backed values of the entity by slot, with null for absent values
+     * @return whether the entity matches
+     */
+    boolean evaluate(ByteBuffer[] values) {
+        return root == null || root.evaluate(values);
+    }
+
+    private Node compileNode(QueryPredicate predicate) {
+        if (predicate instanceof ColumnPredicate) {
+            return compileColumn((ColumnPredicate) predicate);
+        }
+        BooleanPredicate booleanPredicate = (BooleanPredicate) predicate;
+        List<QueryPredicate> predicates = booleanPredicate.getPredicates();
+        Node[] nodes = new Node[predicates.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compileNode(predicates.get(i));
+        }
+        switch (booleanPredicate.getOp()) {
+            case AND:
+                return values -> {
+                    for (Node node : nodes) {
+                        if (!node.evaluate(values)) return false;
+                    }
+                    return true;
+                };
+            case OR:
+                return values -> {
+                    for (Node node : nodes) {
+                        if (node.evaluate(values)) return true;
+                    }
+                    return false;
+                };
+            case NOT:
+                if (nodes.length == 1) {
+                    return values -> !nodes[0].evaluate(values);
+                }
+                // fall through
+            default:
+                // fail on evaluation, as an uncompiled predicate would
+                return values -> {
+                    throw new IllegalArgumentException();
+                };
+        }
+    }
+
+    private Node compileColumn(ColumnPredicate predicate) {
+        final int slot = addSlot(predicate.getName());
+        if (predicate.isAbsentCheck()) {
+            return values -> values[slot] == null;
+        }
+        ByteBuffer value = predicate.getValue().duplicate();
+        final byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        final CompareOp op = predicate.getOp();
+        return values -> {
+            ByteBuffer columnValue = values[slot];
+            int cmp = columnValue == null
+                    ? -bytes.length
+                    : BytesUtil.compareTo(columnValue.array(), columnValue.arrayOffset() + columnValue.position(),
+                            columnValue.remaining(), bytes, 0, bytes.length);
+            switch (op) {
+                case LESS_THAN:
+                    return cmp < 0;
+                case GREATER_THAN_EQUAL:
+                    return cmp >= 0;
+                case EQUAL:
+                    return cmp == 0;
+                case GREATER_THAN:
+                    return cmp > 0;
+                case LESS_THAN_EQUAL:
+                    return cmp <= 0;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package io.hentitydb.entity;
+
+import io.hentitydb.store.BufferedMutator;
+import io.hentitydb.store.BufferedMutatorParams;
+import io.hentitydb.store.Delete;
+import io.hentitydb.store.Put;
+import io.hentitydb.store.Table;
+
+import javax.persistence.PersistenceException;
+import java.util.Collection;
+import java.util.Map;
+
+public class DefaultBufferedEntityContext<T, K> extends DefaultEntityContext<T, K>
+        implements BufferedEntityContext<T, K> {
+
+    private final BufferedMutator<K, byte[]> mutator;
+
+    public DefaultBufferedEntityContext(DefaultEntityContext<T, K> context, BufferedMutatorParams<K> params) {
+        super(context);
+        this.mutator = getConnection().getBufferedMutator(getEntityMapper().getTableName(), params);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(T entity) throws PersistenceException {
+        try (Table<K, byte[]> table = getTable()) {
+            mutator.mutate(rawPut(table, entity));
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to put entity ", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(Collection<T> entities) throws PersistenceException {
+        try (Table<K, byte[]> table = getTable()) {
+            for (Map.Entry<K, Collection<T>> entitiesById : groupById(entities).entrySet()) {
+                Put<K, byte[]> put = table.put(entitiesById.getKey());
+                for (T entity : entitiesById.getValue()) {
+                    put = getEntityMapper().fillMutationBatch(put, entity);
+                }
+                mutator.mutate(put);
+            }
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to put entity ", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(K id) throws PersistenceException {
+        try (Table<K, byte[]> table = getTable()) {
+            mutator.mutate(table.delete(id));
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to delete entity " + id, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(T entity) throws PersistenceException {
+        try (Table<K, byte[]> table = getTable()) {
+            mutator.mutate(rawRemove(table, entity));
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to delete entity ", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(Collection<T> entities) throws PersistenceException {
+        try (Table<K, byte[]> table = getTable()) {
+            for (Map.Entry<K, Collection<T>> entitiesById : groupById(entities).entrySet()) {
+                Delete<K, byte[]> delete = table.delete(entitiesById.getKey());
+                for (T entity : entitiesById.getValue()) {
+                    delete = getEntityMapper().fillMutationBatchForDelete(delete, entity);
+                }
+                mutator.mutate(delete);
+            }
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to delete entity ", e);
+        }
+    }
+
+    @Override
+    protected void beforeAccess(Collection<K> ids) {
+        if (ids == null) {
+            flush();
+            return;
+        }
+        for (K id : ids) {
+            if (mutator.isPending(id)) {
+                flush();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Non-blocking writes would bypass the write buffer, so they are not supported.
+     */
+    @Override
+    public AsyncEntityContext<T, K> async() {
+        throw new UnsupportedOperationException("Buffered entity contexts do not support non-blocking access");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws PersistenceException {
+        try {
+            mutator.flush();
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to flush entities", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws PersistenceException {
+        try {
+            mutator.close();
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to flush entities", e);
+        }
+    }
+}
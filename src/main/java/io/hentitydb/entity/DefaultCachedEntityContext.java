@@ -0,0 +1,292 @@
+package io.hentitydb.entity;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.hentitydb.store.Column;
+import io.hentitydb.store.ColumnFamilyMetadata;
+import io.hentitydb.store.Row;
+
+import javax.persistence.PersistenceException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class DefaultCachedEntityContext<T, K> extends DefaultEntityContext<T, K>
+        implements CachedEntityContext<T, K> {
+
+    private final static int GENERATION_STRIPES = 1024;
+
+    private final Cache<CacheKey<K>, CachedRow<K>> cache;
+    private final List<String> families = Lists.newArrayList();
+    private final Map<String, Integer> familyTtls = Maps.newHashMap();
+    // invalidation counts, by stripe of row ids and for the whole cache, to detect loads that raced a write
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong epoch = new AtomicLong();
+
+    public DefaultCachedEntityContext(DefaultEntityContext<T, K> context, EntityCacheParams params) {
+        super(context);
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(params.getMaximumSize())
+                .recordStats();
+        if (params.getExpireAfterWriteMs() > 0) {
+            builder.expireAfterWrite(params.getExpireAfterWriteMs(), TimeUnit.MILLISECONDS);
+        }
+        this.cache = builder.build();
+        // rows read from all families are cached under a null family
+        families.add(null);
+        for (ColumnFamilyMetadata<K, byte[]> family : getEntityMapper().getColumnFamilies()) {
+            families.add(family.getName());
+            if (family.getTimeToLive() != null) {
+                familyTtls.put(family.getName(), family.getTimeToLive());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> get(K id) throws PersistenceException {
+        return get(id, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> get(K id, String family) throws PersistenceException {
+        CacheKey<K> key = new CacheKey<>(id, family);
+        removeIfExpired(key);
+        try {
+            CachedRow<K> row = cache.getIfPresent(key);
+            if (row != null) {
+                return toEntities(row.getRow());
+            }
+            return load(key, () -> {
+                SelectQuery<T, K> query = select();
+                if (family != null) {
+                    query.fromColumnFamily(family);
+                }
+                return query.whereId().eq(id).fetchRows().get(0);
+            });
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to get entity " + id, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<K, List<T>> get(Collection<K> ids) throws PersistenceException {
+        Map<K, List<T>> entities = Maps.newHashMap();
+        List<K> missing = Lists.newArrayList();
+        for (K id : ids) {
+            CacheKey<K> key = new CacheKey<>(id, null);
+            removeIfExpired(key);
+            CachedRow<K> row = cache.getIfPresent(key);
+            if (row != null) {
+                entities.put(id, toEntities(row.getRow()));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            try {
+                // fetch the missing rows in a single batch
+                long[] before = new long[missing.size()];
+                for (int i = 0; i < missing.size(); i++) {
+                    before[i] = getGeneration(missing.get(i));
+                }
+                List<Row<K, byte[]>> fetched = select().whereId().in(missing).fetchRows();
+                for (int i = 0; i < missing.size(); i++) {
+                    List<T> fetchedEntities = toEntities(fetched.get(i));
+                    put(new CacheKey<>(missing.get(i), null), toCachedRow(fetched.get(i), fetchedEntities), before[i]);
+                    entities.put(missing.get(i), fetchedEntities);
+                }
+            } catch (Exception e) {
+                throw new PersistenceException("Failed to get entities " + missing, e);
+            }
+        }
+        Map<K, List<T>> entitiesById = Maps.newLinkedHashMap();
+        for (K id : ids) {
+            entitiesById.put(id, entities.get(id));
+        }
+        return entitiesById;
+    }
+
+    /**
+     * Reads the row and caches it, unless the row was invalidated while it was being read.
+     */
+    private List<T> load(CacheKey<K> key, Callable<Row<K, byte[]>> loader) throws Exception {
+        long before = getGeneration(key.id);
+        Row<K, byte[]> row = loader.call();
+        List<T> entities = toEntities(row);
+        put(key, toCachedRow(row, entities), before);
+        return entities;
+    }
+
+    /**
+     * Converts the row to new entities, so that callers may modify them without affecting the cache.
+     */
+    private List<T> toEntities(Row<K, byte[]> row) {
+        return convertRowsToEntities(Collections.singletonList(row));
+    }
+
+    /**
+     * Caches a row that was read when the generation of its id was {@code before}.  A write that completed
+     * before the read began has already bumped the generation, and one that completes after the put is
+     * followed by its own invalidation, so a row is only removed again if a write's invalidation may have
+     * come between the read and the put.
+     */
+    private void put(CacheKey<K> key, CachedRow<K> row, long before) {
+        CachedRow<K> previous = cache.asMap().putIfAbsent(key, row);
+        if (previous == null && getGeneration(key.id) != before) {
+            cache.asMap().remove(key, row);
+        }
+    }
+
+    private long getGeneration(K id) {
+        return epoch.get() + generations.get(getStripe(id));
+    }
+
+    private static int getStripe(Object id) {
+        return (Objects.hashCode(id) & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private void removeIfExpired(CacheKey<K> key) {
+        // look up through the map view so that the check is not counted as a hit
+        CachedRow<K> row = cache.asMap().get(key);
+        if (row != null && row.isExpired()) {
+            cache.asMap().remove(key, row);
+        }
+    }
+
+    /**
+     * Computes when the row must leave the cache, given its entities.  The write time of each entity is not
+     * known, so the TTLs are applied to the earliest column of the row.
+     */
+    private CachedRow<K> toCachedRow(Row<K, byte[]> row, List<T> entities) throws Exception {
+        long earliest = Long.MAX_VALUE;
+        long expiresAt = Long.MAX_VALUE;
+        for (Column<byte[]> column : row.getColumns()) {
+            earliest = Math.min(earliest, column.getTimestamp());
+            Integer ttl = familyTtls.get(column.getFamily());
+            if (ttl != null) {
+                expiresAt = Math.min(expiresAt, column.getTimestamp() + TimeUnit.SECONDS.toMillis(ttl));
+            }
+        }
+        for (T entity : entities) {
+            Integer ttl = getEntityMapper().getTtl(entity);
+            if (ttl != null) {
+                expiresAt = Math.min(expiresAt, earliest + ttl);
+            }
+        }
+        return new CachedRow<>(row, expiresAt);
+    }
+
+    @Override
+    protected void afterMutation(Collection<K> ids) {
+        for (K id : ids) {
+            invalidate(id);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(K id) {
+        // bump the generation first, so that loads in flight do not cache the row
+        generations.incrementAndGet(getStripe(id));
+        for (String family : families) {
+            cache.invalidate(new CacheKey<>(id, family));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void truncate() throws PersistenceException {
+        try {
+            super.truncate();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    static class CacheKey<K> {
+        private final K id;
+        private final String family;
+
+        CacheKey(K id, String family) {
+            this.id = id;
+            this.family = family;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            CacheKey<?> cacheKey = (CacheKey<?>) o;
+
+            if (!Objects.equals(id, cacheKey.id)) return false;
+            if (!Objects.equals(family, cacheKey.family)) return false;
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = id != null ? id.hashCode() : 0;
+            result = 31 * result + (family != null ? family.hashCode() : 0);
+            return result;
+        }
+    }
+
+    static class CachedRow<K> {
+        private final Row<K, byte[]> row;
+        private final long expiresAt;
+
+        CachedRow(Row<K, byte[]> row, long expiresAt) {
+            this.row = row;
+            this.expiresAt = expiresAt;
+        }
+
+        public Row<K, byte[]> getRow() {
+            return row;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
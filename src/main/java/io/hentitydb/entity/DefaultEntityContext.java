@@ -1,9 +1,12 @@
 package io.hentitydb.entity;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
 import io.hentitydb.serialization.ByteArrayCodec;
 import io.hentitydb.store.*;
 import org.slf4j.Logger;
@@ -11,15 +14,31 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.PersistenceException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultEntityContext.class);
 
     private final Connection connection;
     private final EntityMapper<T, K> entityMapper;
+    private final AsyncEntityContext<T, K> asyncContext = new DefaultAsyncEntityContext();
+    private int parallelDecodingThreshold = 0;
+    private ForkJoinPool decodingPool = ForkJoinPool.commonPool();
 
     public DefaultEntityContext(Connection connection, Class<T> entityType) {
         Preconditions.checkNotNull(connection, "Missing withConnection() clause");
@@ -48,6 +67,60 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         connection.getConnectionFactory().declareTable(tableMetadata);
     }
 
+    protected DefaultEntityContext(DefaultEntityContext<T, K> context) {
+        this.connection = context.connection;
+        this.entityMapper = context.entityMapper;
+        this.parallelDecodingThreshold = context.parallelDecodingThreshold;
+        this.decodingPool = context.decodingPool;
+    }
+
+    /**
+     * Sets the number of entities in a row at or above which the row is decoded in parallel.
+     *
+     * @param parallelDecodingThreshold the threshold, or 0 to always decode serially
+     * @return this entity context
+     */
+    public DefaultEntityContext<T, K> setParallelDecodingThreshold(int parallelDecodingThreshold) {
+        Preconditions.checkArgument(parallelDecodingThreshold >= 0, "Threshold must not be negative");
+        this.parallelDecodingThreshold = parallelDecodingThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the pool on which rows are decoded in parallel.  Defaults to the common pool.
+     *
+     * @param decodingPool the fork-join pool
+     * @return this entity context
+     */
+    public DefaultEntityContext<T, K> setDecodingPool(ForkJoinPool decodingPool) {
+        this.decodingPool = Preconditions.checkNotNull(decodingPool);
+        return this;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    EntityMapper<T, K> getEntityMapper() {
+        return entityMapper;
+    }
+
+    /**
+     * Called before the given rows are queried, or mutated by a query.
+     *
+     * @param ids the row keys, or null if any row may be accessed
+     */
+    protected void beforeAccess(Collection<K> ids) {
+    }
+
+    /**
+     * Called after the given rows are mutated, whether or not the mutation succeeded.
+     *
+     * @param ids the row keys
+     */
+    protected void afterMutation(Collection<K> ids) {
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -66,10 +139,12 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             put.execute();
         } catch (Exception e) {
             throw new PersistenceException("Failed to put entity ", e);
+        } finally {
+            afterMutation(groupById(Collections.singletonList(entity)).keySet());
         }
     }
 
-    private Put<K, byte[]> rawPut(Table<K, byte[]> table, T entity) throws PersistenceException {
+    protected Put<K, byte[]> rawPut(Table<K, byte[]> table, T entity) throws PersistenceException {
         return entityMapper.fillMutationBatch(table, entity);
     }
 
@@ -79,16 +154,26 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
     @Override
     public void put(Collection<T> entities) throws PersistenceException {
         try (Table<K, byte[]> table = getTable()) {
+            BatchMutation<K, byte[]> batchMutation = entityMapper.fillMutationBatch(table, groupById(entities));
+            batchMutation.execute();
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to put entity ", e);
+        } finally {
+            afterMutation(groupById(entities).keySet());
+        }
+    }
+
+    protected Map<K, Collection<T>> groupById(Collection<T> entities) {
+        try {
             Map<K, Collection<T>> entitiesById = Maps.newLinkedHashMap();
             for (T entity : entities) {
                 K id = entityMapper.getEntityId(entity);
                 Collection<T> children = entitiesById.computeIfAbsent(id, k -> Lists.newArrayList());
                 children.add(entity);
             }
-            BatchMutation<K, byte[]> batchMutation = entityMapper.fillMutationBatch(table, entitiesById);
-            batchMutation.execute();
-        } catch (Exception e) {
-            throw new PersistenceException("Failed to put entity ", e);
+            return entitiesById;
+        } catch (IllegalAccessException e) {
+            throw new PersistenceException("Failed to get entity id", e);
         }
     }
 
@@ -97,15 +182,120 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
      */
     @Override
     public List<T> getAll() throws PersistenceException {
-        try (Table<K, byte[]> table = getTable()) {
-            List<Row<K, byte[]>> rows = Lists.newArrayList();
-            RowScanner<K, byte[]> scanner = table.getAll();
-            for (Row<K, byte[]> row : scanner) {
-                rows.add(row);
-            }
-            return convertRowsToEntities(rows);
+        try (EntityScanner<T> scanner = scanAll()) {
+            return Lists.newArrayList(scanner.iterator());
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to get all entities", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EntityScanner<T> scanAll() throws PersistenceException {
+        return scanAll(0, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EntityScanner<T> scanAll(int caching, int batch) throws PersistenceException {
+        beforeAccess(null);
+        Table<K, byte[]> table = getTable();
+        try {
+            return new RowEntityScanner(table, table.scanAll(caching, batch));
         } catch (Exception e) {
-            throw new PersistenceException("Failed to get all entities");
+            try {
+                table.close();
+            } catch (Exception ignored) {
+                // ignore
+            }
+            throw new PersistenceException("Failed to scan all entities", e);
+        }
+    }
+
+    /**
+     * Decodes entities from a row scanner.  Only the columns of the entity being assembled are held,
+     * and partial rows (when the scan is batched) are stitched together by row key.
+     */
+    private class RowEntityScanner implements EntityScanner<T> {
+        private final Table<K, byte[]> table;
+        private final RowScanner<K, byte[]> scanner;
+        private final Deque<T> entities = new ArrayDeque<>();
+        private byte[] rawKey;
+        private K key;
+        private List<Column<byte[]>> columns;
+
+        RowEntityScanner(Table<K, byte[]> table, RowScanner<K, byte[]> scanner) {
+            this.table = table;
+            this.scanner = scanner;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (entities.isEmpty() && (columns != null || scanner.hasNext())) {
+                advance();
+            }
+            return !entities.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return entities.poll();
+        }
+
+        private void advance() {
+            if (!scanner.hasNext()) {
+                flush();
+                return;
+            }
+            Row<K, byte[]> row = scanner.next();
+            if (rawKey != null && !Arrays.equals(rawKey, row.getRawKey())) {
+                flush();
+            }
+            if (rawKey == null) {
+                rawKey = row.getRawKey();
+                key = row.getKey();
+            }
+            for (Column<byte[]> column : row.getColumns()) {
+                if (columns != null && !isSameEntity(columns.get(columns.size() - 1), column)) {
+                    entities.add(entityMapper.constructEntity(key, columns));
+                    columns = null;
+                }
+                if (columns == null) {
+                    columns = Lists.newArrayList();
+                }
+                columns.add(column);
+            }
+        }
+
+        private void flush() {
+            if (columns != null) {
+                entities.add(entityMapper.constructEntity(key, columns));
+                columns = null;
+            }
+            rawKey = null;
+            key = null;
+        }
+
+        @Override
+        public void close() {
+            try {
+                scanner.close();
+            } catch (Exception e) {
+                throw new PersistenceException("Failed to close scanner", e);
+            } finally {
+                try {
+                    table.close();
+                } catch (Exception e) {
+                    LOG.warn("Failed to close table " + entityMapper.getTableName(), e);
+                }
+            }
         }
     }
 
@@ -122,6 +312,19 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<K, List<T>> get(Collection<K> ids) throws PersistenceException {
+        try {
+            SelectQuery<T, K> query = select().whereId().in(ids);
+            return query.fetchById();
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to get entities " + ids, e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -132,6 +335,8 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             clm.execute();
         } catch (Exception e) {
             throw new PersistenceException("Failed to delete entity " + id, e);
+        } finally {
+            afterMutation(Collections.singletonList(id));
         }
     }
 
@@ -147,6 +352,8 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             delete.execute();
         } catch (Exception e) {
             throw new PersistenceException("Failed to delete entity " + id, e);
+        } finally {
+            afterMutation(groupById(Collections.singletonList(entity)).keySet());
         }
     }
 
@@ -160,16 +367,12 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
     @Override
     public void remove(Collection<T> entities) throws PersistenceException {
         try (Table<K, byte[]> table = getTable()) {
-            Map<K, Collection<T>> entitiesById = Maps.newLinkedHashMap();
-            for (T entity : entities) {
-                K id = entityMapper.getEntityId(entity);
-                Collection<T> children = entitiesById.computeIfAbsent(id, k -> Lists.newArrayList());
-                children.add(entity);
-            }
-            BatchMutation<K, byte[]> batchMutation = entityMapper.fillMutationBatchForDelete(table, entitiesById);
+            BatchMutation<K, byte[]> batchMutation = entityMapper.fillMutationBatchForDelete(table, groupById(entities));
             batchMutation.execute();
         } catch (Exception e) {
             throw new PersistenceException("Failed to put entity ", e);
+        } finally {
+            afterMutation(groupById(entities).keySet());
         }
     }
 
@@ -184,35 +387,177 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         for (Row<K, byte[]> row : rows) {
             List<Column<byte[]>> cl = row.getColumns();
             if (!cl.isEmpty()) {
-                // first group columns
-                List<List<Column<byte[]>>> columnLists = Lists.newArrayList();
-                List<Column<byte[]>> columns = Lists.newArrayList();
-                Column<byte[]> previous = null;
-                for (Column<byte[]> column : cl) {
-                    //noinspection StatementWithEmptyBody
-                    if (previous == null ||
-                            (previous.getFamily().equals(column.getFamily()) &&
-                             entityMapper.compare(
-                                ByteBuffer.wrap(previous.getRawName()),
-                                ByteBuffer.wrap(column.getRawName())) == 0)) {
-                        // noop
-                    } else {
-                        columnLists.add(columns);
-                        columns = Lists.newArrayList();
+                int[] starts = new int[cl.size() + 1];
+                int count = findEntityStarts(cl, starts);
+                if (parallelDecodingThreshold > 0 && count >= parallelDecodingThreshold) {
+                    entities.addAll(constructEntitiesInParallel(row.getKey(), cl, starts, count));
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        entities.add(entityMapper.constructEntity(row.getKey(), cl.subList(starts[i], starts[i + 1])));
                     }
-                    columns.add(column);
-                    previous = column;
-                }
-                columnLists.add(columns);
-                for (List<Column<byte[]>> columnList : columnLists) {
-                    T entity = entityMapper.constructEntity(row.getKey(), columnList);
-                    entities.add(entity);
                 }
             }
         }
         return entities;
     }
 
+    /**
+     * Converts the given rows to entities that are only constructed when first accessed.  The columns of the
+     * rows are retained until then.
+     *
+     * @param rows the rows
+     * @param projection the projection to apply to packed entities, or null
+     * @return the entities
+     */
+    protected List<T> convertRowsToLazyEntities(List<Row<K, byte[]>> rows, Set<String> projection) {
+        List<K> keys = Lists.newArrayList();
+        List<List<Column<byte[]>>> columns = Lists.newArrayList();
+        for (Row<K, byte[]> row : rows) {
+            List<Column<byte[]>> cl = row.getColumns();
+            if (!cl.isEmpty()) {
+                int[] starts = new int[cl.size() + 1];
+                int count = findEntityStarts(cl, starts);
+                for (int i = 0; i < count; i++) {
+                    keys.add(row.getKey());
+                    columns.add(cl.subList(starts[i], starts[i + 1]));
+                }
+            }
+        }
+        return new LazyEntityList<>(keys.size(), i -> {
+            T entity = entityMapper.constructEntity(keys.get(i), columns.get(i));
+            if (projection != null && entityMapper.isPacked()) {
+                entityMapper.project(entity, projection);
+            }
+            return entity;
+        });
+    }
+
+    /**
+     * Finds the index of the first column of each entity.
+     *
+     * @param cl the columns of a row
+     * @param starts filled with the index of the first column of each entity, followed by the number of columns
+     * @return the number of entities
+     */
+    private int findEntityStarts(List<Column<byte[]>> cl, int[] starts) {
+        int count = 0;
+        Column<byte[]> previous = null;
+        for (int i = 0; i < cl.size(); i++) {
+            Column<byte[]> column = cl.get(i);
+            if (previous == null || !isSameEntity(previous, column)) {
+                starts[count++] = i;
+            }
+            previous = column;
+        }
+        starts[count] = cl.size();
+        return count;
+    }
+
+    private List<T> constructEntitiesInParallel(K key, List<Column<byte[]>> cl, int[] starts, int count) {
+        try {
+            // parallel streams run in the pool from which they are invoked; the collected list keeps the row order
+            return decodingPool.submit(() -> IntStream.range(0, count)
+                    .parallel()
+                    .mapToObj(i -> entityMapper.constructEntity(key, cl.subList(starts[i], starts[i + 1])))
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while constructing entities", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new PersistenceException("Failed to construct entities", e.getCause());
+        }
+    }
+
+    /**
+     * Determines whether the given columns belong to the same entity.
+     *
+     * @param previous the previous column
+     * @param column the column
+     * @return true if both columns are in the same family and have the same element IDs
+     */
+    protected boolean isSameEntity(Column<byte[]> previous, Column<byte[]> column) {
+        return previous.getFamily().equals(column.getFamily()) &&
+                entityMapper.compare(
+                        previous.getRawNameBuffer(),
+                        column.getRawNameBuffer()) == 0;
+    }
+
+    /**
+     * Moves the columns stored under the name of a field annotated with {@link ColumnTag#legacyName()} to the
+     * tag of the field.  Each column is copied with its timestamp and the TTL of its entity, so that it expires
+     * when it would have, and the copy and the delete of the column are applied only if the column still has the
+     * value read, so that concurrent writes are not lost.
+     *
+     * @return the number of rows with migrated columns
+     */
+    public int migrateColumnTags() throws PersistenceException {
+        Set<String> legacyNames = entityMapper.getLegacyNames();
+        if (legacyNames.isEmpty()) {
+            return 0;
+        }
+        beforeAccess(null);
+        int migrated = 0;
+        try (Table<K, byte[]> table = getTable();
+             RowScanner<K, byte[]> scanner = table.scanAll(0, 0)) {
+            while (scanner.hasNext()) {
+                Row<K, byte[]> row = scanner.next();
+                if (!hasLegacyColumns(row, legacyNames)) {
+                    continue;
+                }
+                Map<String, Map<ByteBuffer, Column<byte[]>>> columnsByFamily = Maps.newHashMap();
+                for (Column<byte[]> column : row.getColumns()) {
+                    columnsByFamily.computeIfAbsent(column.getFamily(), f -> Maps.newHashMap())
+                            .put(ByteBuffer.wrap(column.getRawName()), column);
+                }
+                boolean rowMigrated = false;
+                try {
+                    for (T entity : convertRowsToEntities(Collections.singletonList(row))) {
+                        String family = entityMapper.getColumnFamilyName(entity);
+                        Map<ByteBuffer, Column<byte[]>> columns = columnsByFamily.get(family);
+                        Integer ttl = entityMapper.getTtl(entity);
+                        for (Map.Entry<ByteBuffer, byte[]> entry : entityMapper.getLegacyColumnNames(entity).entrySet()) {
+                            Column<byte[]> legacy = columns.get(entry.getKey());
+                            if (legacy == null) {
+                                continue;
+                            }
+                            RowMutations<K, byte[]> mutations = table.mutateRow(row.getKey());
+                            if (!columns.containsKey(ByteBuffer.wrap(entry.getValue()))) {
+                                // a column already stored under the tag supersedes the legacy column
+                                Put<K, byte[]> put = table.put(row.getKey())
+                                        .addColumnVersion(family, entry.getValue(), legacy.getTimestamp(), legacy.getBytes());
+                                if (ttl != null) put.setTTL(ttl);
+                                mutations.add(put);
+                            }
+                            mutations.add(table.delete(row.getKey())
+                                    .addColumnVersion(family, legacy.getRawName(), legacy.getTimestamp()));
+                            rowMigrated |= mutations.executeIf(family, legacy.getRawName(), CompareOp.EQUAL, legacy.getBytes());
+                        }
+                    }
+                } finally {
+                    afterMutation(Collections.singletonList(row.getKey()));
+                }
+                if (rowMigrated) {
+                    migrated++;
+                }
+            }
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to migrate column tags", e);
+        }
+        return migrated;
+    }
+
+    private boolean hasLegacyColumns(Row<K, byte[]> row, Set<String> legacyNames) {
+        for (Column<byte[]> column : row.getColumns()) {
+            if (legacyNames.contains(EntityMapper.getValueName(
+                    entityMapper.getNumComponents(), ByteBuffer.wrap(column.getRawName())))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Converts the given rows to a count.
      *
@@ -226,11 +571,7 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             if (!cl.isEmpty()) {
                 Column<byte[]> previous = null;
                 for (Column<byte[]> column : cl) {
-                    if (previous == null
-                        || !(previous.getFamily().equals(column.getFamily()))
-                        || entityMapper.compare(
-                                ByteBuffer.wrap(previous.getRawName()),
-                                ByteBuffer.wrap(column.getRawName())) != 0) {
+                    if (previous == null || !isSameEntity(previous, column)) {
                         size++;
                     }
                     previous = column;
@@ -251,6 +592,21 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         return entityMapper.getEntityFieldsFromColumnName(columnName, value);
     }
 
+    @Override
+    public SelectQuery<T, K> select(String... fields) {
+        SelectQuery<T, K> query = select();
+        query.projection = Sets.newHashSet();
+        for (String field : fields) {
+            if (entityMapper.getComponentMapper(field) == null) {
+                if (entityMapper.getValueMapper(field) == null) {
+                    throw new IllegalArgumentException("Field '" + field + "' is not a valid column");
+                }
+                query.projection.add(field);
+            }
+        }
+        return query;
+    }
+
     @Override
     public SelectQuery<T, K> select() {
         return new SelectQuery<T, K>() {
@@ -263,12 +619,57 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             @Override
             public List<T> fetch() throws PersistenceException {
                 try (Table<K, byte[]> table = getTable()) {
-                    ByteBuffer[] endpoints = getEndpoints();
-                    Get<K, byte[]> rowQuery = prepareQuery(table, family, id, endpoints, columnPredicate);
-                    Row<K, byte[]> row = rowQuery.execute();
-                    List<Row<K, byte[]>> rows = Lists.newArrayList(row);
+                    List<Row<K, byte[]>> rows = executeQuery(table, false, null);
 
-                    return convertRowsToEntities(rows);
+                    return convertSelectedRowsToEntities(rows);
+                } catch (Exception e) {
+                    throw new PersistenceException("Error executing select query", e);
+                }
+            }
+
+            @Override
+            public List<T> fetchLazy() throws PersistenceException {
+                try (Table<K, byte[]> table = getTable()) {
+                    List<Row<K, byte[]>> rows = executeQuery(table, false, null);
+
+                    List<T> entities = convertRowsToLazyEntities(rows, projection);
+                    if (idRange && entityLimit > 0 && entities.size() > entityLimit) {
+                        entities = entities.subList(0, entityLimit);
+                    }
+                    return entities;
+                } catch (Exception e) {
+                    throw new PersistenceException("Error executing select query", e);
+                }
+            }
+
+            @Override
+            List<Row<K, byte[]>> fetchRows() throws PersistenceException {
+                try (Table<K, byte[]> table = getTable()) {
+                    return executeQuery(table, false, null);
+                } catch (Exception e) {
+                    throw new PersistenceException("Error executing select query", e);
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Map<K, List<T>> fetchById() throws PersistenceException {
+                try (Table<K, byte[]> table = getTable()) {
+                    List<Row<K, byte[]>> rows = executeQuery(table, false, null);
+
+                    return convertRowsToEntitiesById(rows);
+                } catch (Exception e) {
+                    throw new PersistenceException("Error executing select query", e);
+                }
+            }
+
+            @Override
+            public EntityPage<T> fetchPage() throws PersistenceException {
+                checkPageable();
+                try (Table<K, byte[]> table = getTable()) {
+                    Row<K, byte[]> row = preparePageQuery(table).execute();
+
+                    return convertRowToPage(row);
                 } catch (Exception e) {
                     throw new PersistenceException("Error executing select query", e);
                 }
@@ -278,27 +679,312 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             @Override
             public int count() {
                 try (Table<K, byte[]> table = getTable()) {
-                    ByteBuffer[] endpoints = getEndpoints();
-                    Get<K, byte[]> rowQuery = prepareQuery(table, family, id, endpoints, columnPredicate);
-                    Row<K, byte[]> row = rowQuery.execute();
-                    List<Row<K, byte[]>> rows = Lists.newArrayList(row);
+                    List<Row<K, byte[]>> rows = executeQuery(table, true, null);
 
-                    return convertRowsToCount(rows);
+                    return convertCountRowsToCount(rows);
                 } catch (Exception e) {
                     throw new PersistenceException("Error executing count query", e);
                 }
             }
 
+            @Override
+            public EntityAggregate aggregate(String column) {
+                checkAggregable(column);
+                try (Table<K, byte[]> table = getTable()) {
+                    List<Row<K, byte[]>> rows = executeQuery(table, false, column);
+
+                    return convertAggregateRowsToAggregate(rows);
+                } catch (Exception e) {
+                    throw new PersistenceException("Error executing aggregate query", e);
+                }
+            }
+
+            @Override
+            public CompletableFuture<List<T>> fetchAsync() {
+                return withTableAsync(table -> executeQueryAsync(table, false, null).thenApply(this::convertSelectedRowsToEntities),
+                        "Error executing select query");
+            }
+
+            @Override
+            public CompletableFuture<Map<K, List<T>>> fetchByIdAsync() {
+                return withTableAsync(table -> executeQueryAsync(table, false, null).thenApply(this::convertRowsToEntitiesById),
+                        "Error executing select query");
+            }
+
+            @Override
+            public CompletableFuture<EntityPage<T>> fetchPageAsync() {
+                checkPageable();
+                return withTableAsync(table -> preparePageQuery(table).executeAsync().thenApply(this::convertRowToPage),
+                        "Error executing select query");
+            }
+
+            @Override
+            public CompletableFuture<Integer> countAsync() {
+                return withTableAsync(table -> executeQueryAsync(table, true, null).thenApply(this::convertCountRowsToCount),
+                        "Error executing count query");
+            }
+
+            @Override
+            public CompletableFuture<EntityAggregate> aggregateAsync(String column) {
+                checkAggregable(column);
+                return withTableAsync(table -> executeQueryAsync(table, false, column)
+                                .thenApply(this::convertAggregateRowsToAggregate),
+                        "Error executing aggregate query");
+            }
+
+            /**
+             * Converts the selected rows to entities.  The limit of a range query applies to all rows.
+             */
+            private List<T> convertSelectedRowsToEntities(List<Row<K, byte[]>> rows) {
+                List<T> entities = convertProjectedRowsToEntities(rows);
+                if (idRange && entityLimit > 0 && entities.size() > entityLimit) {
+                    entities = Lists.newArrayList(entities.subList(0, entityLimit));
+                }
+                return entities;
+            }
+
+            private Map<K, List<T>> convertRowsToEntitiesById(List<Row<K, byte[]>> rows) {
+                Map<K, List<T>> entitiesById = Maps.newLinkedHashMap();
+                if (idRange) {
+                    int remaining = entityLimit > 0 ? entityLimit : Integer.MAX_VALUE;
+                    for (Row<K, byte[]> row : rows) {
+                        List<T> entities = convertProjectedRowsToEntities(Lists.newArrayList(row));
+                        if (entities.size() > remaining) {
+                            entities = Lists.newArrayList(entities.subList(0, remaining));
+                        }
+                        entitiesById.put(row.getKey(), entities);
+                        remaining -= entities.size();
+                    }
+                    return entitiesById;
+                }
+                List<K> keys = getIds();
+                for (int i = 0; i < keys.size(); i++) {
+                    entitiesById.put(keys.get(i), convertProjectedRowsToEntities(Lists.newArrayList(rows.get(i))));
+                }
+                return entitiesById;
+            }
+
+            /**
+             * Converts the rows to entities.  Packed entities are returned whole by the server, so the projection
+             * is applied to them here.
+             */
+            private List<T> convertProjectedRowsToEntities(List<Row<K, byte[]>> rows) {
+                List<T> entities = convertRowsToEntities(rows);
+                if (projection != null && entityMapper.isPacked()) {
+                    for (T entity : entities) {
+                        entityMapper.project(entity, projection);
+                    }
+                }
+                return entities;
+            }
+
+            private void checkPageable() {
+                Preconditions.checkState(ids == null && !idRange, "Pages can only be fetched from a single row");
+                Preconditions.checkState(entityLimit > 0, "Missing limit() clause");
+                Preconditions.checkState(!tail, "Pages cannot be fetched with a last() clause");
+            }
+
+            private void checkAggregable(String column) {
+                Preconditions.checkState(!tail, "Aggregates cannot be computed with a last() clause");
+                Preconditions.checkState(!idRange || entityLimit <= 0,
+                        "Aggregates over a range of ids cannot be computed with a limit() clause");
+                FieldMapper<?> valueMapper = entityMapper.getValueMapper(column);
+                if (valueMapper == null) {
+                    throw new IllegalArgumentException("Field '" + column + "' is not a valid column");
+                }
+                if (!Number.class.isAssignableFrom(Primitives.wrap(valueMapper.getField().getType()))) {
+                    throw new IllegalArgumentException("Field '" + column + "' is not a numeric column");
+                }
+            }
+
+            /**
+             * Prepares the get of a page.  One entity more than the limit is fetched, so that a page that ends the
+             * row has no cursor.
+             */
+            private Get<K, byte[]> preparePageQuery(Table<K, byte[]> table) {
+                checkBound();
+                beforeAccess(getIds());
+                Get<K, byte[]> get = table.get(id);
+                if (family != null) {
+                    get = get.addFamily(family);
+                }
+                return get.addFilter(prepareFilter(family, getEndpoints(), columnPredicate, false, null)
+                        .setLimit(entityLimit + 1));
+            }
+
+            private EntityPage<T> convertRowToPage(Row<K, byte[]> row) {
+                List<T> entities = convertProjectedRowsToEntities(Lists.newArrayList(row));
+                ByteBuffer next = null;
+                if (entities.size() > entityLimit) {
+                    entities = Lists.newArrayList(entities.subList(0, entityLimit));
+                    // the cursor follows the last column of the last entity in the page
+                    List<Column<byte[]>> columns = row.getColumns();
+                    int count = 1;
+                    int i = 0;
+                    while (count <= entityLimit) {
+                        i++;
+                        if (!isSameEntity(columns.get(i - 1), columns.get(i))) {
+                            count++;
+                        }
+                    }
+                    byte[] lastColumnName = columns.get(i - 1).getRawName();
+                    next = EntityMapper.getCursor(entityMapper.getNumComponents(), ByteBuffer.wrap(lastColumnName));
+                }
+                return new EntityPage<>(entities, EntityPage.encodeCursor(next));
+            }
+
+            /**
+             * Sums the counts computed on the server, which are returned as a single column per row.
+             */
+            private int convertCountRowsToCount(List<Row<K, byte[]>> rows) {
+                int size = 0;
+                for (Row<K, byte[]> row : rows) {
+                    List<Column<byte[]>> columns = row.getColumns();
+                    if (!columns.isEmpty()) {
+                        size += EntityFilter.decodeCount(columns.get(0).getBytes());
+                    }
+                }
+                if (idRange && entityLimit > 0) {
+                    size = Math.min(size, entityLimit);
+                }
+                return size;
+            }
+
+            /**
+             * Merges the partial aggregates computed on the server, which are returned as a single column per row.
+             */
+            private EntityAggregate convertAggregateRowsToAggregate(List<Row<K, byte[]>> rows) {
+                EntityAggregate aggregate = new EntityAggregate();
+                for (Row<K, byte[]> row : rows) {
+                    List<Column<byte[]>> columns = row.getColumns();
+                    if (!columns.isEmpty()) {
+                        aggregate.merge(EntityFilter.decodeAggregate(columns.get(0).getBytes()));
+                    }
+                }
+                return aggregate;
+            }
+
+            private void checkBound() {
+                Preconditions.checkState(parameters == null, "Queries with parameters must be run with prepareSelect()");
+            }
+
+            private List<K> getIds() {
+                return ids != null ? ids : Lists.newArrayList(id);
+            }
+
+            @SuppressWarnings("unchecked")
+            private List<Row<K, byte[]>> executeQuery(Table<K, byte[]> table, boolean countOnly,
+                                                      String aggregateColumn) {
+                checkBound();
+                if (idRange) {
+                    return executeScan(table, countOnly, aggregateColumn);
+                }
+                beforeAccess(getIds());
+                ByteBuffer[] endpoints = getEndpoints();
+                if (ids == null) {
+                    Get<K, byte[]> rowQuery = prepareQuery(table, family, id, endpoints, columnPredicate, countOnly, aggregateColumn);
+                    Row<K, byte[]> row = rowQuery.execute();
+                    return Lists.newArrayList(row);
+                }
+                // send one get per id in a single round trip
+                BatchOperation<K, byte[]> batchOperation = table.batchOperations();
+                for (K key : ids) {
+                    batchOperation.add(prepareQuery(table, family, key, endpoints, columnPredicate, countOnly, aggregateColumn));
+                }
+                return toRows(batchOperation.execute());
+            }
+
+            private CompletableFuture<List<Row<K, byte[]>>> executeQueryAsync(Table<K, byte[]> table, boolean countOnly,
+                                                                              String aggregateColumn) {
+                checkBound();
+                if (idRange) {
+                    // there is no async scanner, so the scan blocks a thread of the connection instead of the caller
+                    return CompletableFuture.supplyAsync(() -> executeScan(table, countOnly, aggregateColumn),
+                            connection.getBlockingExecutor());
+                }
+                beforeAccess(getIds());
+                ByteBuffer[] endpoints = getEndpoints();
+                if (ids == null) {
+                    Get<K, byte[]> rowQuery = prepareQuery(table, family, id, endpoints, columnPredicate, countOnly, aggregateColumn);
+                    return rowQuery.executeAsync().thenApply(row -> Lists.<Row<K, byte[]>>newArrayList(row));
+                }
+                BatchOperation<K, byte[]> batchOperation = table.batchOperations();
+                for (K key : ids) {
+                    batchOperation.add(prepareQuery(table, family, key, endpoints, columnPredicate, countOnly, aggregateColumn));
+                }
+                return batchOperation.executeAsync().thenApply(this::toRows);
+            }
+
+            /**
+             * Scans the rows in the range, applying the same filter to each row as a get would.  The scan stops
+             * once the rows returned so far hold enough entities for the limit.
+             */
+            private List<Row<K, byte[]>> executeScan(Table<K, byte[]> table, boolean countOnly,
+                                                     String aggregateColumn) {
+                Preconditions.checkState(!tail, "Ranges of ids cannot be selected with a last() clause");
+                beforeAccess(null);
+                EntityFilter<K> filter = prepareFilter(family, getEndpoints(), columnPredicate,
+                        countOnly, aggregateColumn);
+                boolean summary = countOnly || aggregateColumn != null;
+                List<Row<K, byte[]>> rows = Lists.newArrayList();
+                int size = 0;
+                try (RowScanner<K, byte[]> scanner = table.scanColumns(startId, endId, family, filter, executor)) {
+                    for (Row<K, byte[]> row : scanner) {
+                        rows.add(row);
+                        if (!summary && entityLimit > 0) {
+                            size += convertRowsToCount(Collections.singletonList(row));
+                            if (size >= entityLimit) {
+                                break;
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new PersistenceException("Failed to scan entities", e);
+                }
+                return rows;
+            }
+
+            @SuppressWarnings("unchecked")
+            private List<Row<K, byte[]>> toRows(Object[] results) {
+                List<Row<K, byte[]>> rows = Lists.newArrayListWithExpectedSize(results.length);
+                for (int i = 0; i < results.length; i++) {
+                    Object result = results[i];
+                    if (!(result instanceof Row)) {
+                        throw new PersistenceException("Failed to get entity " + ids.get(i),
+                                result instanceof Throwable ? (Throwable) result : null);
+                    }
+                    rows.add((Row<K, byte[]>) result);
+                }
+                return rows;
+            }
+
             private Get<K, byte[]> prepareQuery(Table<K, byte[]> table,
                                                 String family,
                                                 K id,
                                                 ByteBuffer[] endpoints,
-                                                BooleanPredicate columnPredicate) {
-                TableName tableName = table.getMetadata().getTableName();
+                                                BooleanPredicate columnPredicate,
+                                                boolean countOnly,
+                                                String aggregateColumn) {
                 Get<K, byte[]> get = table.get(id);
-                Filter<K, byte[]> filter = null;
                 if (family != null) {
                     get = get.addFamily(family);
+                }
+                return get.addFilter(prepareFilter(family, endpoints, columnPredicate, countOnly, aggregateColumn));
+            }
+
+            @Override
+            EntityFilter<K> newFilter(ByteBuffer[] endpoints, BooleanPredicate columnPredicate, boolean countOnly) {
+                return prepareFilter(family, endpoints, columnPredicate, countOnly, null);
+            }
+
+            private EntityFilter<K> prepareFilter(String family,
+                                                  ByteBuffer[] endpoints,
+                                                  BooleanPredicate columnPredicate,
+                                                  boolean countOnly,
+                                                  String aggregateColumn) {
+                TableName tableName = entityMapper.getTableName();
+                EntityFilter<K> filter = null;
+                if (family != null) {
                     Integer maxEntitiesPerRow = entityMapper.getMaxEntitiesPerRow(family);
                     if (maxEntitiesPerRow != null) {
                         filter = getBoundedFilter(tableName, endpoints, columnPredicate, maxEntitiesPerRow);
@@ -307,7 +993,33 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
                 if (filter == null) {
                     filter = getFilter(tableName, endpoints, columnPredicate);
                 }
-                return get.addFilter(filter);
+                if (cursor != null) {
+                    filter.setCursor(cursor);
+                }
+                if (endpoints != null && entityMapper.isContiguousRange(elementIdPredicates)) {
+                    filter.setContiguousRange(true)
+                            .setSingleFamily(family != null || entityMapper.getColumnFamilies().size() == 1);
+                }
+                if (projection != null) {
+                    filter.setProjection(projection);
+                }
+                if (tail) {
+                    filter.setTail(true);
+                }
+                if (countOnly) {
+                    filter.setCountOnly(true);
+                }
+                if (aggregateColumn != null) {
+                    filter.setAggregate(aggregateColumn, entityMapper.getValueMapper(aggregateColumn).getCodec());
+                }
+                Map<String, String> taggedValueNames = entityMapper.getTaggedValueNames();
+                if (!taggedValueNames.isEmpty()) {
+                    filter.setTaggedValueNames(taggedValueNames);
+                }
+                if (entityMapper.isPacked()) {
+                    filter.setPacked(true);
+                }
+                return filter;
             }
 
             private ByteBuffer[] getEndpoints() {
@@ -318,9 +1030,9 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
                 return endpoints;
             }
 
-            private Filter<K, byte[]> getFilter(TableName tableName,
-                                                ByteBuffer[] endpoints,
-                                                BooleanPredicate columnPredicate) {
+            private EntityFilter<K> getFilter(TableName tableName,
+                                              ByteBuffer[] endpoints,
+                                              BooleanPredicate columnPredicate) {
                 if (endpoints != null) {
                     return new EntityFilter<>(
                             entityMapper.getNumComponents(),
@@ -332,10 +1044,10 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
                 }
             }
 
-            private Filter<K, byte[]> getBoundedFilter(TableName tableName,
-                                                       ByteBuffer[] endpoints,
-                                                       BooleanPredicate columnPredicate,
-                                                       int maxEntitiesPerRow) {
+            private EntityFilter<K> getBoundedFilter(TableName tableName,
+                                                     ByteBuffer[] endpoints,
+                                                     BooleanPredicate columnPredicate,
+                                                     int maxEntitiesPerRow) {
                 if (endpoints != null) {
                     return new EntityBoundedFilter<>(
                             entityMapper.getNumComponents(),
@@ -355,6 +1067,52 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         };
     }
 
+    @Override
+    public PreparedSelect<T, K> prepareSelect(SelectQuery<T, K> query) {
+        return new PreparedSelect<T, K>(entityMapper, query) {
+            @Override
+            protected Row<K, byte[]> execute(K id, EntityFilter<K> filter) throws PersistenceException {
+                beforeAccess(Collections.singletonList(id));
+                try (Table<K, byte[]> table = getTable()) {
+                    return prepareGet(table, id, filter).execute();
+                } catch (Exception e) {
+                    throw new PersistenceException("Error executing select query", e);
+                }
+            }
+
+            @Override
+            protected CompletableFuture<Row<K, byte[]>> executeAsync(K id, EntityFilter<K> filter) {
+                beforeAccess(Collections.singletonList(id));
+                return withTableAsync(table -> prepareGet(table, id, filter).executeAsync(),
+                        "Error executing select query");
+            }
+
+            @Override
+            protected List<T> convertRowToEntities(Row<K, byte[]> row, boolean lazy) {
+                List<Row<K, byte[]>> rows = Collections.singletonList(row);
+                if (lazy) {
+                    return convertRowsToLazyEntities(rows, query.projection);
+                }
+                // packed entities are returned whole by the server, so the projection is applied to them here
+                List<T> entities = convertRowsToEntities(rows);
+                if (query.projection != null && entityMapper.isPacked()) {
+                    for (T entity : entities) {
+                        entityMapper.project(entity, query.projection);
+                    }
+                }
+                return entities;
+            }
+
+            private Get<K, byte[]> prepareGet(Table<K, byte[]> table, K id, EntityFilter<K> filter) {
+                Get<K, byte[]> get = table.get(id);
+                if (query.family != null) {
+                    get = get.addFamily(query.family);
+                }
+                return get.addFilter(filter);
+            }
+        };
+    }
+
     @Override
     public SelectOneQuery<T, K> selectOne() {
         return new SelectOneQuery<T, K>() {
@@ -365,6 +1123,7 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
 
             @SuppressWarnings("unchecked")
             public List<T> fetch() throws PersistenceException {
+                beforeAccess(Collections.singletonList(id));
                 try (Table<K, byte[]> table = getTable()) {
                     Get<K, byte[]> entityQuery = entityMapper.fillGet(table, family, id, elementIds);
                     Row<K, byte[]> entity = entityQuery.execute();
@@ -383,6 +1142,7 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         return new UpdateQuery<T, K>() {
             @Override
             public boolean execute() {
+                beforeAccess(Collections.singletonList(id));
                 try (Table<K, byte[]> table = getTable()) {
                     Put<K, byte[]> put = rawPut(table);
                     if (!ifEqualsElementIds.isEmpty()) {
@@ -406,9 +1166,18 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
                     throw e;
                 } catch (Exception e) {
                     throw new PersistenceException("Error executing update query", e);
+                } finally {
+                    afterMutation(Collections.singletonList(id));
                 }
             }
 
+            @Override
+            public CompletableFuture<Boolean> executeAsync() {
+                return withTableAsync(table -> executeIfAsync(rawPut(table), ifFamily, ifEqualsElementIds, ifColumnPredicate),
+                        "Error executing update query")
+                        .whenComplete((result, cause) -> afterMutation(Collections.singletonList(id)));
+            }
+
             @Override
             protected Put<K, byte[]> rawPut(Table<K, byte[]> table) {
                 return entityMapper.fillMutationBatch(table, family, id, elementIds, setColumns);
@@ -426,6 +1195,7 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         return new DeleteQuery<T, K>() {
             @Override
             public boolean execute() {
+                beforeAccess(Collections.singletonList(id));
                 try (Table<K, byte[]> table = getTable()) {
                     Delete<K, byte[]> delete = rawRemove(table);
                     if (!ifEqualsElementIds.isEmpty()) {
@@ -449,9 +1219,18 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
                     throw e;
                 } catch (Exception e) {
                     throw new PersistenceException("Error executing delete query", e);
+                } finally {
+                    afterMutation(Collections.singletonList(id));
                 }
             }
 
+            @Override
+            public CompletableFuture<Boolean> executeAsync() {
+                return withTableAsync(table -> executeIfAsync(rawRemove(table), ifFamily, ifEqualsElementIds, ifColumnPredicate),
+                        "Error executing delete query")
+                        .whenComplete((result, cause) -> afterMutation(Collections.singletonList(id)));
+            }
+
             @Override
             protected Delete<K, byte[]> rawRemove(Table<K, byte[]> table) {
                 return entityMapper.fillMutationBatchForDelete(table, family, id, elementIds, columns);
@@ -470,25 +1249,9 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
             @SuppressWarnings("unchecked")
             @Override
             public boolean execute() {
+                beforeAccess(Collections.singletonList(id));
                 try (Table<K, byte[]> table = getTable()) {
-                    RowMutations<K, byte[]> rowMutations = table.mutateRow(id);
-                    for (MutationQuery<T, K> mutationQuery : mutations) {
-                        if (mutationQuery instanceof UpdateQuery) {
-                            UpdateQuery<T, K> updateQuery = (UpdateQuery<T, K>) mutationQuery;
-                            if (!updateQuery.ifEqualsElementIds.isEmpty()) {
-                                throw new PersistenceException("Query in mutations query cannot have if-predicates");
-                            }
-                            rowMutations.add(updateQuery.rawPut(table));
-                        } else if (mutationQuery instanceof DeleteQuery) {
-                            DeleteQuery<T, K> deleteQuery = (DeleteQuery<T, K>) mutationQuery;
-                            if (!deleteQuery.ifEqualsElementIds.isEmpty()) {
-                                throw new PersistenceException("Query in mutations query cannot have if-predicates");
-                            }
-                            rowMutations.add(deleteQuery.rawRemove(table));
-                        } else {
-                            throw new IllegalArgumentException();
-                        }
-                    }
+                    RowMutations<K, byte[]> rowMutations = rawMutations(table);
                     if (!ifEqualsElementIds.isEmpty()) {
                         if (ifColumnPredicate != null) {
                             String family = ifFamily != null ? ifFamily : entityMapper.getDefaultColumnFamily().getName();
@@ -510,7 +1273,25 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
                     throw e;
                 } catch (Exception e) {
                     throw new PersistenceException("Error executing mutations query", e);
+                } finally {
+                    afterMutation(Collections.singletonList(id));
+                }
+            }
+
+            @Override
+            public CompletableFuture<Boolean> executeAsync() {
+                return withTableAsync(table -> executeIfAsync(rawMutations(table), ifFamily, ifEqualsElementIds, ifColumnPredicate),
+                        "Error executing mutations query")
+                        .whenComplete((result, cause) -> afterMutation(Collections.singletonList(id)));
+            }
+
+            @SuppressWarnings("unchecked")
+            private RowMutations<K, byte[]> rawMutations(Table<K, byte[]> table) {
+                RowMutations<K, byte[]> rowMutations = table.mutateRow(id);
+                for (MutationQuery<T, K> mutationQuery : mutations) {
+                    rowMutations.add(rawMutation(table, mutationQuery));
                 }
+                return rowMutations;
             }
 
             @Override
@@ -520,6 +1301,315 @@ public class DefaultEntityContext<T, K> implements EntityContext<T, K> {
         };
     }
 
+    @SuppressWarnings("unchecked")
+    private RowMutation<K, byte[]> rawMutation(Table<K, byte[]> table, MutationQuery<T, K> mutationQuery) {
+        if (mutationQuery instanceof UpdateQuery) {
+            UpdateQuery<T, K> updateQuery = (UpdateQuery<T, K>) mutationQuery;
+            if (!updateQuery.ifEqualsElementIds.isEmpty()) {
+                throw new PersistenceException("Query in mutations query cannot have if-predicates");
+            }
+            return updateQuery.rawPut(table);
+        } else if (mutationQuery instanceof DeleteQuery) {
+            DeleteQuery<T, K> deleteQuery = (DeleteQuery<T, K>) mutationQuery;
+            if (!deleteQuery.ifEqualsElementIds.isEmpty()) {
+                throw new PersistenceException("Query in mutations query cannot have if-predicates");
+            }
+            return deleteQuery.rawRemove(table);
+        } else {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public BatchQuery<T, K> batch() {
+        return new BatchQuery<T, K>() {
+            @Override
+            public List<Boolean> execute() {
+                Map<K, List<Integer>> rows = groupUnconditionalById(mutations);
+                List<Boolean> results = Lists.newArrayList(Collections.nCopies(mutations.size(), false));
+                if (!rows.isEmpty()) {
+                    beforeAccess(rows.keySet());
+                    try (Table<K, byte[]> table = getTable()) {
+                        setRowResults(results, rows, rawBatch(table, mutations, rows).execute());
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new PersistenceException("Error executing batch query", e);
+                    } finally {
+                        afterMutation(rows.keySet());
+                    }
+                }
+                for (int i = 0; i < mutations.size(); i++) {
+                    if (isConditional(mutations.get(i))) {
+                        results.set(i, mutations.get(i).execute());
+                    }
+                }
+                return results;
+            }
+
+            @Override
+            public CompletableFuture<List<Boolean>> executeAsync() {
+                Map<K, List<Integer>> rows = groupUnconditionalById(mutations);
+                List<Boolean> results = Lists.newArrayList(Collections.nCopies(mutations.size(), false));
+                CompletableFuture<Object[]> batchFuture = rows.isEmpty()
+                        ? CompletableFuture.completedFuture(new Object[0])
+                        : withTableAsync(table -> {
+                            beforeAccess(rows.keySet());
+                            return rawBatch(table, mutations, rows).executeAsync();
+                        }, "Error executing batch query")
+                        .whenComplete((result, cause) -> afterMutation(rows.keySet()));
+                return batchFuture.thenCompose(rowResults -> {
+                    setRowResults(results, rows, rowResults);
+                    List<CompletableFuture<Void>> futures = Lists.newArrayList();
+                    for (int i = 0; i < mutations.size(); i++) {
+                        if (isConditional(mutations.get(i))) {
+                            final int index = i;
+                            futures.add(mutations.get(i).executeAsync().thenAccept(result -> results.set(index, result)));
+                        }
+                    }
+                    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                            .thenApply(ignored -> results);
+                });
+            }
+        };
+    }
+
+    /**
+     * Groups the indexes of the unconditional queries by row, in the order the rows are first seen.
+     */
+    private Map<K, List<Integer>> groupUnconditionalById(List<MutationQuery<T, K>> mutations) {
+        Map<K, List<Integer>> rows = Maps.newLinkedHashMap();
+        for (int i = 0; i < mutations.size(); i++) {
+            MutationQuery<T, K> mutation = mutations.get(i);
+            if (!isConditional(mutation)) {
+                rows.computeIfAbsent(mutation.getId(), id -> Lists.newArrayList()).add(i);
+            }
+        }
+        return rows;
+    }
+
+    private boolean isConditional(MutationQuery<T, K> mutation) {
+        if (mutation instanceof UpdateQuery) {
+            return !((UpdateQuery<T, K>) mutation).ifEqualsElementIds.isEmpty();
+        } else if (mutation instanceof DeleteQuery) {
+            return !((DeleteQuery<T, K>) mutation).ifEqualsElementIds.isEmpty();
+        } else if (mutation instanceof MutationsQuery) {
+            return !((MutationsQuery<T, K>) mutation).ifEqualsElementIds.isEmpty();
+        } else {
+            throw new IllegalArgumentException("Unsupported query " + mutation.getClass().getName());
+        }
+    }
+
+    /**
+     * Creates a batch with one operation per row.  A row with a single mutation is sent as is; otherwise its
+     * mutations are combined so that they are applied atomically.
+     */
+    private BatchOperation<K, byte[]> rawBatch(Table<K, byte[]> table,
+                                               List<MutationQuery<T, K>> mutations,
+                                               Map<K, List<Integer>> rows) {
+        BatchOperation<K, byte[]> batch = table.batchOperations();
+        for (Map.Entry<K, List<Integer>> row : rows.entrySet()) {
+            List<RowMutation<K, byte[]>> rowMutations = Lists.newArrayList();
+            for (int index : row.getValue()) {
+                MutationQuery<T, K> mutation = mutations.get(index);
+                if (mutation instanceof MutationsQuery) {
+                    for (MutationQuery<T, K> mutationQuery : ((MutationsQuery<T, K>) mutation).mutations) {
+                        rowMutations.add(rawMutation(table, mutationQuery));
+                    }
+                } else {
+                    rowMutations.add(rawMutation(table, mutation));
+                }
+            }
+            if (rowMutations.size() == 1) {
+                batch.add(rowMutations.get(0));
+            } else {
+                RowMutations<K, byte[]> atomic = table.mutateRow(row.getKey());
+                for (RowMutation<K, byte[]> rowMutation : rowMutations) {
+                    atomic.add(rowMutation);
+                }
+                batch.add(atomic);
+            }
+        }
+        return batch;
+    }
+
+    private void setRowResults(List<Boolean> results, Map<K, List<Integer>> rows, Object[] rowResults) {
+        int i = 0;
+        for (List<Integer> indexes : rows.values()) {
+            Object rowResult = rowResults[i++];
+            boolean success = rowResult != null && !(rowResult instanceof Throwable);
+            for (int index : indexes) {
+                results.set(index, success);
+            }
+        }
+    }
+
+    private CompletableFuture<Boolean> executeIfAsync(RowMutation<K, byte[]> mutation,
+                                                      String ifFamily,
+                                                      Map<String, Object> ifEqualsElementIds,
+                                                      ColumnPredicate ifColumnPredicate) {
+        beforeAccess(Collections.singletonList(mutation.getKey()));
+        if (ifEqualsElementIds.isEmpty()) {
+            return mutation.executeAsync().thenApply(ignored -> true);
+        }
+        if (ifColumnPredicate == null) {
+            throw new IllegalArgumentException("Missing ifEquals() clause");
+        }
+        String family = ifFamily != null ? ifFamily : entityMapper.getDefaultColumnFamily().getName();
+        ByteBuffer columnName = entityMapper.toColumnName(ifEqualsElementIds, ifColumnPredicate.getName());
+        ByteBuffer value = ifColumnPredicate.getValue();
+        byte[] columnNameBytes = EntityMapper.BYTE_BUFFER_CODEC.encode(columnName);
+        return value != null
+                ? mutation.executeIfAsync(family, columnNameBytes, ifColumnPredicate.getOp().reverse(),
+                    EntityMapper.BYTE_BUFFER_CODEC.encode(value))
+                : mutation.executeIfAbsentAsync(family, columnNameBytes);
+    }
+
+    /**
+     * Runs an async operation against a table, closing the table once the operation completes.
+     *
+     * @param action the operation
+     * @param message the message of the exception with which a failed operation completes
+     * @return a future for the result of the operation
+     */
+    private <R> CompletableFuture<R> withTableAsync(Function<Table<K, byte[]>, CompletableFuture<R>> action,
+                                                    String message) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        Table<K, byte[]> table = null;
+        CompletableFuture<R> result;
+        try {
+            table = getTable();
+            result = action.apply(table);
+        } catch (Exception e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        final Table<K, byte[]> openTable = table;
+        result.whenComplete((value, cause) -> {
+            if (openTable != null) {
+                try {
+                    openTable.close();
+                } catch (Exception e) {
+                    LOG.warn("Failed to close table " + entityMapper.getTableName(), e);
+                }
+            }
+            if (cause == null) {
+                future.complete(value);
+            } else {
+                if (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                future.completeExceptionally(cause instanceof PersistenceException
+                        ? cause : new PersistenceException(message, cause));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncEntityContext<T, K> async() {
+        return asyncContext;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BufferedEntityContext<T, K> buffered(BufferedMutatorParams<K> params) {
+        return new DefaultBufferedEntityContext<>(this, params);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CachedEntityContext<T, K> cached(EntityCacheParams params) {
+        return new DefaultCachedEntityContext<>(this, params);
+    }
+
+    private class DefaultAsyncEntityContext implements AsyncEntityContext<T, K> {
+
+        @Override
+        public CompletableFuture<Void> put(T entity) {
+            return withTableAsync(table -> rawPut(table, entity).executeAsync(), "Failed to put entity ")
+                    .whenComplete((result, cause) -> afterMutation(groupById(Collections.singletonList(entity)).keySet()));
+        }
+
+        @Override
+        public CompletableFuture<Void> put(Collection<T> entities) {
+            return withTableAsync(table -> entityMapper.fillMutationBatch(table, groupById(entities)).executeAsync(),
+                    "Failed to put entity ")
+                    .whenComplete((result, cause) -> afterMutation(groupById(entities).keySet()));
+        }
+
+        @Override
+        public CompletableFuture<List<T>> get(K id) {
+            return select().whereId().eq(id).fetchAsync();
+        }
+
+        @Override
+        public CompletableFuture<Map<K, List<T>>> get(Collection<K> ids) {
+            return select().whereId().in(ids).fetchByIdAsync();
+        }
+
+        @Override
+        public CompletableFuture<Void> delete(K id) {
+            return withTableAsync(table -> table.delete(id).executeAsync(), "Failed to delete entity " + id)
+                    .whenComplete((result, cause) -> afterMutation(Collections.singletonList(id)));
+        }
+
+        @Override
+        public CompletableFuture<Void> remove(T entity) {
+            return withTableAsync(table -> rawRemove(table, entity).executeAsync(), "Failed to remove entity")
+                    .whenComplete((result, cause) -> afterMutation(groupById(Collections.singletonList(entity)).keySet()));
+        }
+
+        @Override
+        public CompletableFuture<Void> remove(Collection<T> entities) {
+            return withTableAsync(table -> entityMapper.fillMutationBatchForDelete(table, groupById(entities)).executeAsync(),
+                    "Failed to remove entities")
+                    .whenComplete((result, cause) -> afterMutation(groupById(entities).keySet()));
+        }
+
+        @Override
+        public SelectQuery<T, K> select() {
+            return DefaultEntityContext.this.select();
+        }
+
+        @Override
+        public SelectQuery<T, K> select(String... fields) {
+            return DefaultEntityContext.this.select(fields);
+        }
+
+        @Override
+        public UpdateQuery<T, K> update() {
+            return DefaultEntityContext.this.update();
+        }
+
+        @Override
+        public DeleteQuery<T, K> delete() {
+            return DefaultEntityContext.this.delete();
+        }
+
+        @Override
+        public MutationsQuery<T, K> mutate() {
+            return DefaultEntityContext.this.mutate();
+        }
+
+        @Override
+        public BatchQuery<T, K> batch() {
+            return DefaultEntityContext.this.batch();
+        }
+
+        @Override
+        public EntityContext<T, K> sync() {
+            return DefaultEntityContext.this;
+        }
+    }
+
     private ByteBuffer getRawValueUsingMapper(String name, Object value, boolean isComponent) {
         FieldMapper<?> valueMapper = isComponent ? entityMapper.getComponentMapper(name) : entityMapper.getValueMapper(name);
         if (valueMapper == null) {
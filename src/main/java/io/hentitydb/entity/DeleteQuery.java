@@ -9,6 +9,7 @@ import io.hentitydb.store.Table;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class DeleteQuery<T, K> implements MutationQuery<T, K> {
     protected String family;
@@ -134,6 +135,8 @@ public abstract class DeleteQuery<T, K> implements MutationQuery<T, K> {
 
     public abstract boolean execute();
 
+    public abstract CompletableFuture<Boolean> executeAsync();
+
     /**
      * Creates a raw delete operation.
      *
@@ -0,0 +1,133 @@
+package io.hentitydb.entity;
+
+import io.hentitydb.serialization.BigDecimalCodec;
+import io.hentitydb.serialization.ReadBuffer;
+import io.hentitydb.serialization.WriteBuffer;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * The count, sum, minimum and maximum of the non-null values of a numeric column over a set of entities.
+ * Partial aggregates are computed on the server and merged on the client.  Floating-point values that are NaN
+ * or infinite have no decimal value, so they are skipped and counted separately.
+ */
+public class EntityAggregate {
+
+    private static final BigDecimalCodec BIG_DECIMAL_CODEC = new BigDecimalCodec(true);
+
+    private long count = 0;
+    private long nonFiniteCount = 0;
+    private BigDecimal sum = BigDecimal.ZERO;
+    private BigDecimal min;
+    private BigDecimal max;
+
+    /**
+     * Returns the number of non-null values, not counting those that are NaN or infinite.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of values that are NaN or infinite, which are left out of the aggregate.
+     *
+     * @return the count of skipped values
+     */
+    public long getNonFiniteCount() {
+        return nonFiniteCount;
+    }
+
+    /**
+     * Returns the sum of the values.
+     *
+     * @return the sum, or zero if there are no values
+     */
+    public BigDecimal getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the minimum value.
+     *
+     * @return the minimum, or null if there are no values
+     */
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum value.
+     *
+     * @return the maximum, or null if there are no values
+     */
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the average value.
+     *
+     * @return the average, or null if there are no values
+     */
+    public BigDecimal getAverage() {
+        return count > 0 ? sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64) : null;
+    }
+
+    void add(Number value) {
+        if ((value instanceof Double || value instanceof Float) && !Double.isFinite(value.doubleValue())) {
+            nonFiniteCount++;
+            return;
+        }
+        BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value
+                : value instanceof Double || value instanceof Float ? BigDecimal.valueOf(value.doubleValue())
+                : BigDecimal.valueOf(value.longValue());
+        count++;
+        sum = sum.add(decimal);
+        min = min == null || decimal.compareTo(min) < 0 ? decimal : min;
+        max = max == null || decimal.compareTo(max) > 0 ? decimal : max;
+    }
+
+    void merge(EntityAggregate other) {
+        nonFiniteCount += other.nonFiniteCount;
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        sum = sum.add(other.sum);
+        min = min == null || other.min.compareTo(min) < 0 ? other.min : min;
+        max = max == null || other.max.compareTo(max) > 0 ? other.max : max;
+    }
+
+    byte[] encode() {
+        WriteBuffer buffer = new WriteBuffer(64);
+        buffer.writeVarLong(count);
+        buffer.writeVarLong(nonFiniteCount);
+        if (count > 0) {
+            BIG_DECIMAL_CODEC.encode(sum, buffer);
+            BIG_DECIMAL_CODEC.encode(min, buffer);
+            BIG_DECIMAL_CODEC.encode(max, buffer);
+        }
+        return buffer.finish();
+    }
+
+    static EntityAggregate decode(byte[] bytes) {
+        ReadBuffer buffer = new ReadBuffer(bytes);
+        EntityAggregate aggregate = new EntityAggregate();
+        aggregate.count = buffer.readVarLong();
+        aggregate.nonFiniteCount = buffer.readVarLong();
+        if (aggregate.count > 0) {
+            aggregate.sum = BIG_DECIMAL_CODEC.decode(buffer);
+            aggregate.min = BIG_DECIMAL_CODEC.decode(buffer);
+            aggregate.max = BIG_DECIMAL_CODEC.decode(buffer);
+        }
+        return aggregate;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityAggregate [count=" + count + ", nonFiniteCount=" + nonFiniteCount + ", sum=" + sum + ", min=" + min + ", max=" + max + "]";
+    }
+}
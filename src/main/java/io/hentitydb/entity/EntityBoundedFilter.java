@@ -2,7 +2,6 @@ package io.hentitydb.entity;
 
 import com.google.common.base.Throwables;
 import io.hentitydb.serialization.ReadBuffer;
-import io.hentitydb.serialization.WriteBuffer;
 import io.hentitydb.store.Filter;
 import io.hentitydb.store.KeyColumn;
 import io.hentitydb.store.TableName;
@@ -15,6 +14,8 @@ public class EntityBoundedFilter<K> extends EntityFilter<K> {
     private int maxEntitiesPerRow = 0;
 
     private transient int entitiesInRowCount = 0;
+    // the last column seen, including those outside the range, so that every entity in the row is counted
+    private transient KeyColumn<K, byte[]> last = null;
 
     // Required for serialization
     public EntityBoundedFilter() {
@@ -50,24 +51,38 @@ public class EntityBoundedFilter<K> extends EntityFilter<K> {
     public void reset() {
         super.reset();
         entitiesInRowCount = 0;
+        last = null;
+    }
+
+    /**
+     * Returns no hint while the entities per row are bounded, as the entities that a seek would skip must still be
+     * counted against the bound.
+     */
+    @Override
+    public byte[] getNextColumnHint(KeyColumn<K, byte[]> keyColumn) {
+        return maxEntitiesPerRow > 0 ? null : super.getNextColumnHint(keyColumn);
     }
 
     @Override
     public boolean filterKeyColumn(KeyColumn<K, byte[]> keyColumn) {
         Optional<Boolean> matchesPrevious = Optional.empty();
-        KeyColumn<K, byte[]> previous = getPreviousKeyColumn();
         // We don't check that the keys match as this filter is only used by gets.
         // We don't check that the families match as the maxEntitiesPerRow is only passed
         // when the get is specific to a family
-        if (previous != null) {
-            matchesPrevious = Optional.of(compare(ByteBuffer.wrap(previous.getColumn().getRawName()),
-                    ByteBuffer.wrap(keyColumn.getColumn().getRawName())) == 0);
-            if (!matchesPrevious.get()) {
+        if (last != null) {
+            boolean matchesLast = compare(last.getColumn().getRawNameBuffer(),
+                    keyColumn.getColumn().getRawNameBuffer()) == 0;
+            if (!matchesLast) {
                 entitiesInRowCount++;
             }
+            if (last == getPreviousKeyColumn()) {
+                matchesPrevious = Optional.of(matchesLast);
+            }
         }
+        last = keyColumn;
 
-        int maxEntities = Math.max(maxEntitiesPerRow, getLimit());
+        // a tail query must see every entity in the row
+        int maxEntities = isTail() ? maxEntitiesPerRow : Math.max(maxEntitiesPerRow, getLimit());
         if (maxEntities > 0 && entitiesInRowCount >= maxEntities) {
             setDone(true);
             return false;
@@ -76,26 +91,23 @@ public class EntityBoundedFilter<K> extends EntityFilter<K> {
     }
 
     @Override
-    public void encode(Filter<K, byte[]> value, WriteBuffer buffer) {
-        buffer.writeVarInt(maxEntitiesPerRow);
-        super.encode(value, buffer);
+    EntityFilter<K> copyWith(ByteBuffer start, ByteBuffer end, QueryPredicate queryPredicate) {
+        return copyConfiguration(new EntityBoundedFilter<>(getNumComponents(), start, end, queryPredicate, getLimit(),
+                maxEntitiesPerRow, tableName));
+    }
+
+    @Override
+    void encodeConfiguration(FilterTemplate.Builder template) {
+        template.getBuffer().writeVarInt(maxEntitiesPerRow);
+        super.encodeConfiguration(template);
     }
 
     @Override
     public Filter<K, byte[]> decode(ReadBuffer buffer) {
         try {
-            int maxEntitiesPerRow = buffer.readVarInt();
-            int numComponents = buffer.readVarInt();
-            int limit = buffer.readVarInt();
-            ByteBuffer start = BYTE_BUFFER_CODEC.decode(buffer);
-            ByteBuffer end = BYTE_BUFFER_CODEC.decode(buffer);
-            QueryPredicate queryPredicate = null;
-            if (buffer.readByte() == 1) {
-                final Class predicateClass = CLASS_CODEC.decode(buffer);
-                queryPredicate = (QueryPredicate) predicateClass.newInstance();
-                queryPredicate = queryPredicate.decode(buffer);
-            }
-            return new EntityBoundedFilter<>(numComponents, start, end, queryPredicate, limit, maxEntitiesPerRow);
+            EntityBoundedFilter<K> filter = new EntityBoundedFilter<>();
+            filter.maxEntitiesPerRow = buffer.readVarInt();
+            return decodeConfiguration(buffer, filter);
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
@@ -0,0 +1,36 @@
+package io.hentitydb.entity;
+
+public class EntityCacheParams {
+
+    private long maximumSize = 10000;
+    private long expireAfterWriteMs = 0;
+
+    /**
+     * Returns the maximum number of cached rows.  The least recently used rows are evicted first.
+     *
+     * @return the maximum size
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public EntityCacheParams setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Returns the maximum time a row stays in the cache after it is loaded into the cache.  Rows with a TTL are also evicted
+     * once their earliest column could have expired.
+     *
+     * @return the expiration time in milliseconds, or 0 if rows only expire with their TTL
+     */
+    public long getExpireAfterWriteMs() {
+        return expireAfterWriteMs;
+    }
+
+    public EntityCacheParams setExpireAfterWriteMs(long expireAfterWriteMs) {
+        this.expireAfterWriteMs = expireAfterWriteMs;
+        return this;
+    }
+}
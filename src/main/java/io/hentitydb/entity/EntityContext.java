@@ -1,10 +1,12 @@
 package io.hentitydb.entity;
 
+import io.hentitydb.store.BufferedMutatorParams;
 import io.hentitydb.store.Table;
 
 import javax.persistence.PersistenceException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface EntityContext<T, K> {
 
@@ -36,6 +38,22 @@ public interface EntityContext<T, K> {
      */
     List<T> getAll() throws PersistenceException;
 
+    /**
+     * Scans all entities, decoding them row by row.  The scanner must be closed.
+     *
+     * @return the entity scanner
+     */
+    EntityScanner<T> scanAll() throws PersistenceException;
+
+    /**
+     * Scans all entities, decoding them row by row.  The scanner must be closed.
+     *
+     * @param caching the number of rows to fetch per round trip, or 0 for the default
+     * @param batch   the maximum number of columns to fetch per partial row, or 0 for whole rows
+     * @return the entity scanner
+     */
+    EntityScanner<T> scanAll(int caching, int batch) throws PersistenceException;
+
     /**
      * Retrieves the entities with the given row key.
      *
@@ -44,6 +62,14 @@ public interface EntityContext<T, K> {
      */
     List<T> get(K id) throws PersistenceException;
 
+    /**
+     * Retrieves the entities with the given row keys in a single batch.
+     *
+     * @param ids row keys
+     * @return the entities by row key
+     */
+    Map<K, List<T>> get(Collection<K> ids) throws PersistenceException;
+
     /**
      * Deletes the row with the given row key.
      *
@@ -72,6 +98,25 @@ public interface EntityContext<T, K> {
      */
     SelectQuery<T, K> select();
 
+    /**
+     * Create a select query that only returns the given fields of each entity; the remaining non-ID fields
+     * are left unset.  Query predicates may still reference fields outside the projection.
+     *
+     * @param fields the fields to return
+     * @return the query
+     */
+    SelectQuery<T, K> select(String... fields);
+
+    /**
+     * Prepare a select query to be executed many times.  The query is built with {@link #select()} or
+     * {@link #select(String...)}, without a row key, and with {@link PreparedSelect#param(String, Class)}
+     * in place of the values that change between executions.  The query must not be modified once prepared.
+     *
+     * @param query the query
+     * @return the prepared query
+     */
+    PreparedSelect<T, K> prepareSelect(SelectQuery<T, K> query);
+
     /**
      * Create a get query to return a single entity.
      *
@@ -100,6 +145,38 @@ public interface EntityContext<T, K> {
      */
     MutationsQuery<T, K> mutate();
 
+    /**
+     * Create a batch query to execute mutation queries for many rows in a single round trip.
+     *
+     * @return the query
+     */
+    BatchQuery<T, K> batch();
+
+    /**
+     * Returns a non-blocking view of this entity context.
+     *
+     * @return the async entity context
+     */
+    AsyncEntityContext<T, K> async();
+
+    /**
+     * Returns a new entity context whose writes are buffered on the client and sent to the server in batches.
+     * The returned context must be closed.
+     *
+     * @param params the write buffer parameters
+     * @return the buffered entity context
+     */
+    BufferedEntityContext<T, K> buffered(BufferedMutatorParams<K> params);
+
+    /**
+     * Returns a new entity context that caches rows on the client.  Writes made through the returned context
+     * invalidate the rows they touch.
+     *
+     * @param params the cache parameters
+     * @return the cached entity context
+     */
+    CachedEntityContext<T, K> cached(EntityCacheParams params);
+
     /**
      * Truncate all data.
      */
@@ -1,10 +1,13 @@
 package io.hentitydb.entity;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.hentitydb.serialization.ByteBufferCodec;
+import io.hentitydb.serialization.BytesUtil;
 import io.hentitydb.serialization.ClassCodec;
+import io.hentitydb.serialization.Codec;
 import io.hentitydb.serialization.ReadBuffer;
 import io.hentitydb.serialization.WriteBuffer;
 import io.hentitydb.store.AbstractFilter;
@@ -14,6 +17,9 @@ import io.hentitydb.store.KeyColumn;
 import io.hentitydb.store.TableName;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,26 +30,50 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class EntityFilter<K> extends AbstractFilter<K, byte[]> {
 
     final static ByteBufferCodec BYTE_BUFFER_CODEC = new ByteBufferCodec(true);
-    final static ClassCodec CLASS_CODEC = new ClassCodec();
+    final static ClassCodec CLASS_CODEC = new ClassCodec(null, true);
 
     protected TableName tableName = null;
     protected int limit = 0;
     protected int numComponents;
     protected ByteBuffer start;
     protected ByteBuffer end;
+    protected ByteBuffer cursor = ByteBuffer.allocate(0);
     protected QueryPredicate queryPredicate;
+    protected Set<String> projection;
+    protected boolean tail = false;
+    protected boolean countOnly = false;
+    protected String aggregateColumn;
+    protected Codec<?> aggregateCodec;
+    protected Map<String, String> taggedValueNames = Collections.emptyMap();
+    protected boolean packed = false;
+    protected boolean contiguousRange = false;
+    protected boolean singleFamily = false;
 
     private transient KeyColumn<K, byte[]> previous = null;
     private transient Map<String, Column<byte[]>> current = Maps.newHashMap();
+    private transient CompiledPredicate compiledPredicate = null;
+    private transient boolean compiled = false;
+    private transient ByteBuffer[] currentValues = null;
+    private transient int aggregateSlot = -1;
     private transient int count = 0;
     private transient boolean done = false;
+    private transient byte[] cursorBytes = null;
+    private transient byte[] startSeekBytes = null;
+    private transient Map<ByteBuffer, String> valueNames = Maps.newHashMap();
+    private transient Set<Map.Entry<String, ByteBuffer>> matchingEntities = Sets.newLinkedHashSet();
+    private transient List<Column<byte[]>> pendingColumns = Lists.newArrayList();
+    private transient Map<Map.Entry<String, ByteBuffer>, List<Column<byte[]>>> tailColumns = Maps.newLinkedHashMap();
+    private transient boolean carrierIncluded = false;
+    private transient EntityAggregate rowAggregate = new EntityAggregate();
+    private transient byte[] rowSummary = null;
+    private transient byte[] encoded = null;
 
     private final static boolean debug = false;
 
     final static Maps.EntryTransformer<String, Column<byte[]>, ByteBuffer> COLUMN_TRANSFORMER =
-            (key, value) -> value != null ? ByteBuffer.wrap(value.getBytes()) : null;
+            (key, value) -> value != null ? value.getValueBuffer() : null;
     final static Maps.EntryTransformer<String, IndexedColumn<byte[]>, ByteBuffer> INDEXED_COLUMN_TRANSFORMER =
-            (key, value) -> value != null ? ByteBuffer.wrap(value.getColumn().getBytes()) : null;
+            (key, value) -> value != null ? value.getColumn().getValueBuffer() : null;
 
     // Required for serialization
     public EntityFilter() {
@@ -87,6 +117,172 @@ public class EntityFilter<K> extends AbstractFilter<K, byte[]> {
         this.limit = limit;
     }
 
+    /**
+     * Sets the page cursor.  Columns that sort before the cursor in storage order are skipped
+     * with a server-side seek, rather than being compared against the start endpoint one by one,
+     * unless the filter must count them.
+     *
+     * @param cursor the raw column name to resume from
+     * @return the filter
+     */
+    public EntityFilter<K> setCursor(ByteBuffer cursor) {
+        this.cursor = checkNotNull(cursor);
+        this.cursorBytes = null;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of matching entities to return.
+     *
+     * @param limit the limit, or 0 for no limit
+     * @return the filter
+     */
+    public EntityFilter<K> setLimit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Sets the value names to return.  All columns are still used to evaluate the query predicate, but
+     * columns with other value names are not returned.  The entity marker column is always returned.
+     *
+     * @param projection the value names to return, or null to return all of them
+     * @return the filter
+     */
+    public EntityFilter<K> setProjection(Set<String> projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    /**
+     * Sets whether the limit applies to the trailing entities of the row rather than the leading ones.
+     * Copies of the columns of the last matching entities are kept in a ring bounded by the limit, and are
+     * returned in place of the included columns, so that only one column of the row is held by the caller.
+     *
+     * @param tail whether to return the last entities
+     * @return the filter
+     */
+    public EntityFilter<K> setTail(boolean tail) {
+        this.tail = tail;
+        return this;
+    }
+
+    /**
+     * Sets whether only the number of matching entities should be returned.  In that case the columns of the row
+     * are evaluated on the server, and the row is returned as a single column whose value is the count.
+     *
+     * @param countOnly whether to return the count
+     * @return the filter
+     */
+    public EntityFilter<K> setCountOnly(boolean countOnly) {
+        this.countOnly = countOnly;
+        return this;
+    }
+
+    /**
+     * Sets the numeric column to aggregate.  In that case the values of the matching entities are decoded on
+     * the server, and the row is returned as a single column whose value is the partial {@link EntityAggregate}.
+     *
+     * @param column the value name to aggregate, or null to return the matching entities
+     * @param codec the codec of the column values
+     * @return the filter
+     */
+    public EntityFilter<K> setAggregate(String column, Codec<?> codec) {
+        this.aggregateColumn = column;
+        this.aggregateCodec = column != null ? checkNotNull(codec) : null;
+        this.compiled = false;
+        return this;
+    }
+
+    /**
+     * Sets the field names of the tagged value names stored in the column qualifiers, so that predicates,
+     * projections, and aggregates can refer to tagged columns by field name.
+     *
+     * @param taggedValueNames the field names by tagged value name
+     * @return the filter
+     */
+    public EntityFilter<K> setTaggedValueNames(Map<String, String> taggedValueNames) {
+        this.taggedValueNames = checkNotNull(taggedValueNames);
+        this.valueNames.clear();
+        return this;
+    }
+
+    /**
+     * Sets whether the value fields are packed into the entity marker column, in which case the marker value is
+     * unpacked to evaluate predicates and aggregates.  A packed entity is returned whole, regardless of the
+     * projection.
+     *
+     * @param packed whether the value fields are packed
+     * @return the filter
+     */
+    public EntityFilter<K> setPacked(boolean packed) {
+        this.packed = packed;
+        this.compiled = false;
+        return this;
+    }
+
+    /**
+     * Sets whether the columns between the start and end endpoints form a contiguous range in storage order.
+     * In that case columns that sort before the start endpoint are skipped with a server-side seek.
+     *
+     * @param contiguousRange whether the range is contiguous
+     * @return the filter
+     */
+    public EntityFilter<K> setContiguousRange(boolean contiguousRange) {
+        this.contiguousRange = contiguousRange;
+        this.startSeekBytes = null;
+        return this;
+    }
+
+    /**
+     * Sets whether the filter only sees the columns of a single column family.  If the range is also
+     * contiguous, the rest of the row is skipped once a column sorts after the end endpoint.
+     *
+     * @param singleFamily whether only a single column family is read
+     * @return the filter
+     */
+    public EntityFilter<K> setSingleFamily(boolean singleFamily) {
+        this.singleFamily = singleFamily;
+        return this;
+    }
+
+    /**
+     * Sets the serialized form of the filter, such as one filled in from the template of a prepared select, so
+     * that the filter is not serialized again.  It must match the configuration of the filter.  The serialized
+     * form is not changed by the setters.
+     *
+     * @param encoded the serialized filter, or null to serialize the filter when it is sent
+     * @return the filter
+     */
+    EntityFilter<K> setEncoded(byte[] encoded) {
+        this.encoded = encoded;
+        return this;
+    }
+
+    /**
+     * Decodes the value of an aggregate column.
+     *
+     * @param value the column value
+     * @return the partial aggregate of the matching entities
+     */
+    public static EntityAggregate decodeAggregate(byte[] value) {
+        return EntityAggregate.decode(value);
+    }
+
+    /**
+     * Decodes the value of a count column.
+     *
+     * @param value the column value
+     * @return the number of matching entities
+     */
+    public static int decodeCount(byte[] value) {
+        return ByteBuffer.wrap(value).getInt();
+    }
+
+    protected boolean isTail() {
+        return tail;
+    }
+
     protected int getLimit() {
         return limit;
     }
@@ -114,7 +310,12 @@ public class EntityFilter<K> extends AbstractFilter<K, byte[]> {
     @Override
     public void reset() {
         previous = null;
-        current.clear();
+        clearCurrent();
+        matchingEntities.clear();
+        tailColumns.clear();
+        carrierIncluded = false;
+        rowAggregate = new EntityAggregate();
+        rowSummary = null;
         count = 0;
         done = false;
     }
@@ -124,86 +325,253 @@ public class EntityFilter<K> extends AbstractFilter<K, byte[]> {
         return done;
     }
 
+    @Override
+    public byte[] getNextColumnHint(KeyColumn<K, byte[]> keyColumn) {
+        if (cursor.remaining() != 0 &&
+                BytesUtil.compareTo(keyColumn.getColumn().getRawNameBuffer(), cursor) < 0) {
+            if (cursorBytes == null) {
+                cursorBytes = EntityMapper.BYTE_BUFFER_CODEC.encode(cursor.duplicate());
+            }
+            return cursorBytes;
+        }
+        if (contiguousRange && start.remaining() != 0) {
+            if (startSeekBytes == null) {
+                // the control byte of the last component is dropped, as the stored columns
+                // have a control byte that sorts before it
+                startSeekBytes = EntityMapper.BYTE_BUFFER_CODEC.encode(
+                        (ByteBuffer) start.duplicate().limit(start.limit() - 1));
+            }
+            if (BytesUtil.compareTo(keyColumn.getColumn().getRawNameBuffer(),
+                    ByteBuffer.wrap(startSeekBytes)) < 0) {
+                return startSeekBytes;
+            }
+        }
+        return null;
+    }
+
     @Override
     public boolean filterKeyColumn(KeyColumn<K, byte[]> keyColumn) {
         return filterKeyColumn(keyColumn, Optional.empty());
     }
 
     protected boolean filterKeyColumn(KeyColumn<K, byte[]> keyColumn, Optional<Boolean> matchesPrevious) {
-        ByteBuffer columnName = ByteBuffer.wrap(keyColumn.getColumn().getRawName());
-        if (start.remaining() != 0 && compare(start, columnName) > 0) {
+        ByteBuffer columnName = keyColumn.getColumn().getRawNameBuffer();
+        if (cursor.remaining() != 0 && BytesUtil.compareTo(columnName, cursor) < 0) {
+            // the column was not skipped by a seek to the cursor
+            return false;
+        } else if (start.remaining() != 0 && compare(start, columnName) > 0) {
             return false;
         } else if (end.remaining() != 0 && compare(end, columnName) < 0) {
-            // we could have an optimization here to set done = true if
-            // all the element IDs are of fixed length (such as Long or Integer)
-            // which would allow element IDs to be comparable;
-            // however, most use cases use start and limit to get the next page
+            // the remaining columns of a contiguous range also sort after the end endpoint,
+            // unless they belong to another family
+            if (contiguousRange && singleFamily) {
+                done = true;
+            }
             return false;
         }
         boolean filter = true;
         //noinspection StatementWithEmptyBody
         if (previous == null ||
                 (matchesPrevious.isPresent() && matchesPrevious.get()) ||
-                (previous.getColumn().getFamily().equals(keyColumn.getColumn().getFamily()) &&
-                        compare(ByteBuffer.wrap(previous.getColumn().getRawName()), columnName) == 0)) {
+                (previous.getColumn().getRawFamilyBuffer().equals(keyColumn.getColumn().getRawFamilyBuffer()) &&
+                        compare(previous.getColumn().getRawNameBuffer(), columnName) == 0)) {
             // noop
         } else {
-            if (checkColumns(current)) {
+            if (matchCurrent()) {
                 count++;
-                if (limit > 0 && count >= limit) {
+                if (tail) {
+                    addTailEntity(previous);
+                } else if (projection != null) {
+                    addMatchingEntity(previous);
+                }
+                if (limit > 0 && count >= limit && !tail) {
                     done = true;
                     filter = false;
                 }
             }
-            current.clear();
+            clearCurrent();
         }
         String valueName = getValueName(columnName);
         // We may get a duplicate as filterKeyColumn will be called for multiple hfiles
         // In that case keep the more recent one
         // NOTE: this assumes columns are traversed in descending timestamp order
-        current.computeIfAbsent(valueName, k -> keyColumn.getColumn());
+        addCurrent(valueName, keyColumn.getColumn());
         previous = keyColumn;
-        return filter;
+        if (isSummary()) {
+            // only one column is returned to carry the summary
+            return includeCarrier(filter);
+        }
+        if (tail) {
+            // the columns are copied, as only one column is returned to carry the columns of the ring
+            if (filter && isProjected(valueName)) {
+                pendingColumns.add(keyColumn.getColumn().copy());
+            }
+            return includeCarrier(filter);
+        }
+        return filter && isProjected(valueName);
+    }
+
+    private boolean includeCarrier(boolean filter) {
+        boolean include = filter && !carrierIncluded;
+        carrierIncluded |= include;
+        return include;
+    }
+
+    private boolean isSummary() {
+        return countOnly || aggregateColumn != null;
+    }
+
+    /**
+     * Compiles the query predicate on first use, once the filter has been configured.  Packed entities and
+     * predicates of other types are evaluated against a map of values instead.
+     */
+    private CompiledPredicate getCompiledPredicate() {
+        if (!compiled) {
+            compiledPredicate = !packed ? CompiledPredicate.compile(queryPredicate) : null;
+            if (compiledPredicate != null) {
+                aggregateSlot = aggregateColumn != null ? compiledPredicate.addSlot(aggregateColumn) : -1;
+                currentValues = new ByteBuffer[compiledPredicate.getNumSlots()];
+            } else {
+                currentValues = null;
+            }
+            compiled = true;
+        }
+        return compiledPredicate;
+    }
+
+    private void addCurrent(String valueName, Column<byte[]> column) {
+        if (getCompiledPredicate() != null) {
+            int slot = compiledPredicate.getSlot(valueName);
+            if (slot >= 0 && currentValues[slot] == null) {
+                currentValues[slot] = column.getValueBuffer();
+            }
+        } else {
+            current.computeIfAbsent(valueName, k -> column);
+        }
+    }
+
+    private void clearCurrent() {
+        current.clear();
+        pendingColumns.clear();
+        if (currentValues != null) {
+            Arrays.fill(currentValues, null);
+        }
+    }
+
+    /**
+     * Checks whether the pending entity matches, in which case it is also added to the aggregate.
+     */
+    private boolean matchCurrent() {
+        ByteBuffer value;
+        if (getCompiledPredicate() != null) {
+            if (!compiledPredicate.evaluate(currentValues)) {
+                return false;
+            }
+            value = aggregateSlot >= 0 ? currentValues[aggregateSlot] : null;
+        } else {
+            Map<String, ByteBuffer> values = toValues(current);
+            if (!checkColumns(values)) {
+                return false;
+            }
+            value = aggregateColumn != null ? values.get(aggregateColumn) : null;
+        }
+        if (aggregateColumn != null) {
+            aggregate(value);
+        }
+        return true;
+    }
+
+    private void aggregate(ByteBuffer value) {
+        if (value != null && value.remaining() > 0) {
+            rowAggregate.add((Number) (value.hasArray()
+                    ? aggregateCodec.decode(value.array(), value.arrayOffset() + value.position(), value.remaining())
+                    : aggregateCodec.decode(EntityMapper.BYTE_BUFFER_CODEC.encode(value.duplicate()))));
+        }
+    }
+
+    private boolean isProjected(String valueName) {
+        return projection == null || valueName == null || projection.contains(valueName);
+    }
+
+    private void addMatchingEntity(KeyColumn<K, byte[]> keyColumn) {
+        matchingEntities.add(getEntityKey(keyColumn));
+    }
+
+    private void addTailEntity(KeyColumn<K, byte[]> keyColumn) {
+        tailColumns.put(getEntityKey(keyColumn), pendingColumns);
+        pendingColumns = Lists.newArrayList();
+        if (limit > 0 && tailColumns.size() > limit) {
+            // evict the oldest entity along with its columns
+            Iterator<List<Column<byte[]>>> iter = tailColumns.values().iterator();
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Returns the family and element IDs of the entity of a column, as entities in different families
+     * may have the same element IDs.
+     */
+    private Map.Entry<String, ByteBuffer> getEntityKey(KeyColumn<K, byte[]> keyColumn) {
+        Column<byte[]> column = keyColumn.getColumn();
+        return Maps.immutableEntry(column.getFamily(),
+                EntityMapper.getElementIds(numComponents, column.getRawNameBuffer()));
     }
 
     @Override
     public boolean hasFilterRow() {
-        return queryPredicate != null;
+        return queryPredicate != null || tail || isSummary();
     }
 
     @Override
     public Set<Integer> filterRow(List<KeyColumn<K, byte[]>> columns) {
+        if (isSummary()) {
+            return summarizeRow(columns);
+        }
+        if (projection != null || tail) {
+            return filterMatchingRow(columns);
+        }
         Set<Integer> toKeepIndexes = Sets.newHashSetWithExpectedSize(columns.size());
         // first group columns
         Map<String, IndexedColumn<byte[]>> groupedColumns = Maps.newHashMap();
+        ByteBuffer[] groupedValues = getCompiledPredicate() != null
+                ? new ByteBuffer[compiledPredicate.getNumSlots()]
+                : null;
         KeyColumn<K, byte[]> previous = null;
         int count = 0;
         int index = 0;
         for (KeyColumn<K, byte[]> keyColumn : columns) {
-            ByteBuffer columnName = ByteBuffer.wrap(keyColumn.getColumn().getRawName());
+            ByteBuffer columnName = keyColumn.getColumn().getRawNameBuffer();
             //noinspection StatementWithEmptyBody
             if (previous == null ||
-                    (previous.getColumn().getFamily().equals(keyColumn.getColumn().getFamily()) &&
-                            compare(ByteBuffer.wrap(previous.getColumn().getRawName()), columnName) == 0)) {
+                    (previous.getColumn().getRawFamilyBuffer().equals(keyColumn.getColumn().getRawFamilyBuffer()) &&
+                            compare(previous.getColumn().getRawNameBuffer(), columnName) == 0)) {
                 // noop
             } else {
-                if (checkGroupedColumns(groupedColumns)) {
+                if (checkGroupedColumns(groupedColumns, groupedValues)) {
                     count++;
                     for (IndexedColumn<byte[]> indexedColumn : groupedColumns.values()) {
                         toKeepIndexes.add(indexedColumn.getIndex());
                     }
                 }
                 groupedColumns.clear();
+                if (groupedValues != null) {
+                    Arrays.fill(groupedValues, null);
+                }
             }
             String valueName = getValueName(columnName);
             IndexedColumn<byte[]> old = groupedColumns.get(valueName);
             if (old == null) {
                 groupedColumns.put(valueName, new IndexedColumn<>(index, keyColumn.getColumn()));
+                int slot = groupedValues != null ? compiledPredicate.getSlot(valueName) : -1;
+                if (slot >= 0) {
+                    groupedValues[slot] = keyColumn.getColumn().getValueBuffer();
+                }
             }
             previous = keyColumn;
             index++;
         }
-        if (checkGroupedColumns(groupedColumns)) {
+        if (checkGroupedColumns(groupedColumns, groupedValues)) {
             count++;
             for (IndexedColumn<byte[]> indexedColumn : groupedColumns.values()) {
                 toKeepIndexes.add(indexedColumn.getIndex());
@@ -224,14 +592,111 @@ public class EntityFilter<K> extends AbstractFilter<K, byte[]> {
         return toKeepIndexes;
     }
 
-    private boolean checkColumns(Map<String, Column<byte[]>> columns) {
-        if (columns.isEmpty()) return false;
-        return queryPredicate == null || queryPredicate.evaluate(Maps.transformEntries(columns, COLUMN_TRANSFORMER));
+    /**
+     * Columns outside the projection were never returned, and a tail query returns the columns of its ring
+     * instead, so rather than evaluating the predicate against the remaining columns, use the results
+     * computed against all columns in filterKeyColumn.
+     */
+    private Set<Integer> filterMatchingRow(List<KeyColumn<K, byte[]>> columns) {
+        // the last entity has not been checked yet
+        if (previous != null && matchCurrent()) {
+            if (tail) {
+                addTailEntity(previous);
+            } else {
+                addMatchingEntity(previous);
+            }
+        }
+        if (tail) {
+            // the carrier column is replaced by the columns of the ring
+            return Collections.emptySet();
+        }
+        Set<Integer> toKeepIndexes = Sets.newHashSetWithExpectedSize(columns.size());
+        int index = 0;
+        for (KeyColumn<K, byte[]> keyColumn : columns) {
+            if (matchingEntities.contains(getEntityKey(keyColumn))) {
+                toKeepIndexes.add(index);
+            }
+            index++;
+        }
+        return toKeepIndexes;
+    }
+
+    private Set<Integer> summarizeRow(List<KeyColumn<K, byte[]>> columns) {
+        // the last entity has not been checked yet
+        if (previous != null && !(limit > 0 && count >= limit)) {
+            if (matchCurrent()) {
+                count++;
+            }
+        }
+        if (limit > 0) {
+            // a count with last() keeps counting past the limit, as it cannot know which entities are last
+            // until the end of the row; aggregates cannot be computed with last()
+            count = Math.min(count, limit);
+        }
+        rowSummary = aggregateColumn != null
+                ? rowAggregate.encode()
+                : ByteBuffer.allocate(Integer.BYTES).putInt(count).array();
+        return columns.isEmpty() ? Collections.emptySet() : Collections.singleton(0);
     }
 
-    private boolean checkGroupedColumns(Map<String, IndexedColumn<byte[]>> groupedColumns) {
-        if (groupedColumns.isEmpty()) return false;
-        return queryPredicate == null || queryPredicate.evaluate(Maps.transformEntries(groupedColumns, INDEXED_COLUMN_TRANSFORMER));
+    @Override
+    public byte[] summarizeRow() {
+        return rowSummary;
+    }
+
+    @Override
+    public List<Column<byte[]>> getRowColumns() {
+        if (!tail || isSummary()) {
+            return null;
+        }
+        List<Column<byte[]>> columns = Lists.newArrayList();
+        for (List<Column<byte[]>> entityColumns : tailColumns.values()) {
+            columns.addAll(entityColumns);
+        }
+        return columns;
+    }
+
+    private boolean checkColumns(Map<String, ByteBuffer> values) {
+        if (values.isEmpty()) return false;
+        return queryPredicate == null || queryPredicate.evaluate(values);
+    }
+
+    private boolean checkGroupedColumns(Map<String, IndexedColumn<byte[]>> groupedColumns,
+                                        ByteBuffer[] groupedValues) {
+        if (groupedValues != null) {
+            return !groupedColumns.isEmpty() && compiledPredicate.evaluate(groupedValues);
+        }
+        return checkColumns(toGroupedValues(groupedColumns));
+    }
+
+    private Map<String, ByteBuffer> toValues(Map<String, Column<byte[]>> columns) {
+        if (packed) {
+            Column<byte[]> marker = columns.get(null);
+            return marker != null ? unpack(marker.getValueBuffer()) : Collections.emptyMap();
+        }
+        return Maps.transformEntries(columns, COLUMN_TRANSFORMER);
+    }
+
+    private Map<String, ByteBuffer> toGroupedValues(Map<String, IndexedColumn<byte[]>> groupedColumns) {
+        if (packed) {
+            IndexedColumn<byte[]> marker = groupedColumns.get(null);
+            return marker != null ? unpack(marker.getColumn().getValueBuffer()) : Collections.emptyMap();
+        }
+        return Maps.transformEntries(groupedColumns, INDEXED_COLUMN_TRANSFORMER);
+    }
+
+    /**
+     * Unpacks the value of an entity marker column, keyed by field name.  The marker itself is kept under
+     * a null value name, as for unpacked entities.
+     */
+    private Map<String, ByteBuffer> unpack(ByteBuffer packedValue) {
+        Map<String, ByteBuffer> values = Maps.newHashMap();
+        values.put(null, ByteBuffer.allocate(0));
+        for (Map.Entry<String, ByteBuffer> entry : EntityMapper.unpack(packedValue).entrySet()) {
+            String fieldName = taggedValueNames.get(entry.getKey());
+            values.put(fieldName != null ? fieldName : entry.getKey(), entry.getValue());
+        }
+        return values;
     }
 
     static class IndexedColumn<C> {
@@ -252,44 +717,210 @@ public class EntityFilter<K> extends AbstractFilter<K, byte[]> {
         }
     }
 
+    @Override
+    public EntityFilter<K> copy() {
+        return copyWith(start, end, queryPredicate);
+    }
+
+    /**
+     * Returns a new filter with the same configuration and no row state, except for the given endpoints and
+     * query predicate.
+     *
+     * @param start the start endpoint
+     * @param end the end endpoint
+     * @param queryPredicate the query predicate, or null
+     * @return the copy
+     */
+    EntityFilter<K> copyWith(ByteBuffer start, ByteBuffer end, QueryPredicate queryPredicate) {
+        return copyConfiguration(new EntityFilter<>(numComponents, start, end, queryPredicate, limit, tableName));
+    }
+
+    /**
+     * Copies the configuration set after construction to a new filter.  The configuration is shared, as it is
+     * not modified while filtering.
+     */
+    protected EntityFilter<K> copyConfiguration(EntityFilter<K> filter) {
+        return filter.setCursor(cursor)
+                .setProjection(projection)
+                .setTail(tail)
+                .setCountOnly(countOnly)
+                .setAggregate(aggregateColumn, aggregateCodec)
+                .setTaggedValueNames(taggedValueNames)
+                .setPacked(packed)
+                .setContiguousRange(contiguousRange)
+                .setSingleFamily(singleFamily);
+    }
+
     @Override
     public void encode(Filter<K, byte[]> value, WriteBuffer buffer) {
-        buffer.writeVarInt(numComponents);
-        buffer.writeVarInt(limit);
-        BYTE_BUFFER_CODEC.encode(start, buffer);
-        BYTE_BUFFER_CODEC.encode(end, buffer);
+        if (encoded != null) {
+            buffer.writeBytes(encoded);
+        } else {
+            encodeConfiguration(new FilterTemplate.Builder(buffer));
+        }
+    }
+
+    /**
+     * Returns the serialized form of the filter, leaving holes for the values with the given keys: the
+     * {@link FilterTemplate#START} and {@link FilterTemplate#END} endpoints, and the column predicates of
+     * the query predicate.
+     *
+     * @param holeKeys the keys of the values to leave out, compared by identity
+     * @return the template
+     */
+    FilterTemplate toTemplate(Set<Object> holeKeys) {
+        FilterTemplate.Builder template = new FilterTemplate.Builder(holeKeys);
+        encodeConfiguration(template);
+        return template.build();
+    }
+
+    void encodeConfiguration(FilterTemplate.Builder template) {
+        template.getBuffer().writeVarInt(numComponents);
+        template.getBuffer().writeVarInt(limit);
+        template.writeValue(FilterTemplate.START, start);
+        template.writeValue(FilterTemplate.END, end);
+        WriteBuffer buffer = template.getBuffer();
+        BYTE_BUFFER_CODEC.encode(cursor.duplicate(), buffer);
         buffer.writeByte(queryPredicate != null ? 1 : 0);
         if (queryPredicate != null) {
             CLASS_CODEC.encode(queryPredicate.getClass(), buffer);
-            queryPredicate.encode(buffer);
+            queryPredicate.encode(template);
+        }
+        buffer = template.getBuffer();
+        encodeProjection(projection, buffer);
+        buffer.writeByte(tail ? 1 : 0);
+        buffer.writeByte(countOnly ? 1 : 0);
+        buffer.writeByte(aggregateColumn != null ? 1 : 0);
+        if (aggregateColumn != null) {
+            buffer.writeUtf8String(aggregateColumn);
+            encodeCodec(aggregateCodec, buffer);
+        }
+        encodeTaggedValueNames(taggedValueNames, buffer);
+        buffer.writeByte(packed ? 1 : 0);
+        buffer.writeByte(contiguousRange ? 1 : 0);
+        buffer.writeByte(singleFamily ? 1 : 0);
+    }
+
+    static void encodeTaggedValueNames(Map<String, String> taggedValueNames, WriteBuffer buffer) {
+        buffer.writeVarInt(taggedValueNames.size());
+        for (Map.Entry<String, String> entry : taggedValueNames.entrySet()) {
+            buffer.writeByte(entry.getKey().charAt(0));
+            buffer.writeUtf8String(entry.getValue());
         }
     }
 
+    static Map<String, String> decodeTaggedValueNames(ReadBuffer buffer) {
+        int size = buffer.readVarInt();
+        if (size == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> taggedValueNames = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            String taggedValueName = EntityMapper.toTaggedName(buffer.readByte());
+            taggedValueNames.put(taggedValueName, buffer.readUtf8String());
+        }
+        return taggedValueNames;
+    }
+
+    @SuppressWarnings("unchecked")
+    static void encodeCodec(Codec<?> codec, WriteBuffer buffer) {
+        Codec<Codec<?>> codecCodec = (Codec<Codec<?>>) (Codec) codec.getSelfCodec();
+        CLASS_CODEC.encode(codecCodec.getClass(), buffer);
+        codecCodec.encode(codec, buffer);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Codec<?> decodeCodec(ReadBuffer buffer) throws ReflectiveOperationException {
+        final Class codecCodecClass = CLASS_CODEC.decode(buffer);
+        Codec<Codec<?>> codecCodec = (Codec<Codec<?>>) codecCodecClass.newInstance();
+        return codecCodec.decode(buffer);
+    }
+
+    static void encodeProjection(Set<String> projection, WriteBuffer buffer) {
+        buffer.writeByte(projection != null ? 1 : 0);
+        if (projection != null) {
+            buffer.writeVarInt(projection.size());
+            for (String valueName : projection) {
+                buffer.writeUtf8String(valueName);
+            }
+        }
+    }
+
+    static Set<String> decodeProjection(ReadBuffer buffer) {
+        Set<String> projection = null;
+        if (buffer.readByte() == 1) {
+            int size = buffer.readVarInt();
+            projection = Sets.newHashSetWithExpectedSize(size);
+            for (int i = 0; i < size; i++) {
+                projection.add(buffer.readUtf8String());
+            }
+        }
+        return projection;
+    }
+
     @Override
     public Filter<K, byte[]> decode(ReadBuffer buffer) {
         try {
-            int numComponents = buffer.readVarInt();
-            int limit = buffer.readVarInt();
-            ByteBuffer start = BYTE_BUFFER_CODEC.decode(buffer);
-            ByteBuffer end = BYTE_BUFFER_CODEC.decode(buffer);
-            QueryPredicate queryPredicate = null;
-            if (buffer.readByte() == 1) {
-                final Class predicateClass = CLASS_CODEC.decode(buffer);
-                queryPredicate = (QueryPredicate) predicateClass.newInstance();
-                queryPredicate = queryPredicate.decode(buffer);
-            }
-            return new EntityFilter<>(numComponents, start, end, queryPredicate, limit);
+            return decodeConfiguration(buffer, new EntityFilter<>());
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
     }
 
+    /**
+     * Reads the configuration written by {@link #encodeConfiguration(FilterTemplate.Builder)} into the given
+     * filter.
+     *
+     * @param buffer the buffer to read from
+     * @param filter a new filter
+     * @return the filter
+     */
+    protected EntityFilter<K> decodeConfiguration(ReadBuffer buffer, EntityFilter<K> filter)
+            throws ReflectiveOperationException {
+        filter.numComponents = buffer.readVarInt();
+        filter.limit = buffer.readVarInt();
+        filter.start = BYTE_BUFFER_CODEC.decode(buffer);
+        filter.end = BYTE_BUFFER_CODEC.decode(buffer);
+        filter.setCursor(BYTE_BUFFER_CODEC.decode(buffer));
+        if (buffer.readByte() == 1) {
+            final Class predicateClass = CLASS_CODEC.decode(buffer);
+            QueryPredicate queryPredicate = (QueryPredicate) predicateClass.newInstance();
+            filter.queryPredicate = queryPredicate.decode(buffer);
+        }
+        filter.setProjection(decodeProjection(buffer))
+                .setTail(buffer.readByte() == 1)
+                .setCountOnly(buffer.readByte() == 1);
+        if (buffer.readByte() == 1) {
+            filter.setAggregate(buffer.readUtf8String(), decodeCodec(buffer));
+        }
+        filter.setTaggedValueNames(decodeTaggedValueNames(buffer));
+        filter.setPacked(buffer.readByte() == 1);
+        filter.setContiguousRange(buffer.readByte() == 1);
+        filter.setSingleFamily(buffer.readByte() == 1);
+        return filter;
+    }
+
     public int compare(ByteBuffer o1, ByteBuffer o2) {
         return EntityMapper.compare(numComponents, o1, o2);
     }
 
     public String getValueName(ByteBuffer columnName) {
-        return EntityMapper.getValueName(numComponents, columnName);
+        ByteBuffer rawValueName = EntityMapper.getRawValueName(numComponents, columnName);
+        if (rawValueName == null) {
+            return null;
+        }
+        // a row has few distinct value names, so they are only decoded once
+        String valueName = valueNames.get(rawValueName);
+        if (valueName == null) {
+            byte[] bytes = EntityMapper.BYTE_BUFFER_CODEC.encode(rawValueName.duplicate());
+            valueName = EntityMapper.STRING_CODEC.decode(bytes);
+            String fieldName = taggedValueNames.get(valueName);
+            if (fieldName != null) {
+                valueName = fieldName;
+            }
+            valueNames.put(ByteBuffer.wrap(bytes), valueName);
+        }
+        return valueName;
     }
 
     private String getKeyString(KeyColumn<K, byte[]> keyColumn) {
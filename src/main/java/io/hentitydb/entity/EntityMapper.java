@@ -1,16 +1,30 @@
 package io.hentitydb.entity;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Defaults;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import io.hentitydb.serialization.BooleanCodec;
 import io.hentitydb.serialization.ByteBufferCodec;
+import io.hentitydb.serialization.ByteCodec;
 import io.hentitydb.serialization.BytesUtil;
+import io.hentitydb.serialization.DateCodec;
+import io.hentitydb.serialization.DoubleCodec;
+import io.hentitydb.serialization.FloatCodec;
+import io.hentitydb.serialization.IntCodec;
+import io.hentitydb.serialization.InvertedIntCodec;
+import io.hentitydb.serialization.InvertedLongCodec;
 import io.hentitydb.serialization.LongCodec;
+import io.hentitydb.serialization.ReadBuffer;
+import io.hentitydb.serialization.ShortCodec;
 import io.hentitydb.serialization.StringCodec;
+import io.hentitydb.serialization.UUIDCodec;
+import io.hentitydb.serialization.WriteBuffer;
 import io.hentitydb.store.*;
 
 import javax.persistence.Entity;
@@ -21,6 +35,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -86,11 +101,61 @@ public class EntityMapper<T, K> {
      */
     private final Map<String, FieldMapper<?>> valueMappers = Maps.newHashMap();
 
+    /**
+     * Mapper for the value parts of the entity, by the value name stored in the column qualifier.
+     */
+    private final Map<String, FieldMapper<?>> storedValueMappers = Maps.newHashMap();
+
+    /**
+     * Value names stored in the column qualifiers as UTF-8 bytes, with their mappers at the same index, so that
+     * the value name of a column can be resolved without decoding it.
+     */
+    private final byte[][] storedValueNameBytes;
+    private final FieldMapper<?>[] storedValueNameMappers;
+
+    /**
+     * Tagged value names stored in the column qualifiers, by field name.
+     */
+    private final Map<String, String> storedNames = Maps.newHashMap();
+
+    /**
+     * Names of the tagged fields whose columns may still be stored under the field name.
+     */
+    private final Set<String> legacyNames = Sets.newHashSet();
+
+    /**
+     * Value name components of the column qualifiers, by field name, so that each is encoded only once.
+     */
+    private final Map<String, byte[]> qualifierSuffixes = Maps.newHashMap();
+
+    /**
+     * Whether the value fields are packed into the entity marker column.
+     */
+    private final boolean packed;
+
+    /**
+     * Largest column tag.
+     */
+    final static int MAX_COLUMN_TAG = 31;
+
     /**
      * Largest buffer size.
      */
     private final static int BUFFER_SIZE = 64;
 
+    /**
+     * Codecs whose encoded values all have the same length, so that they sort the same way in storage order.
+     */
+    private final static Set<Class<?>> FIXED_LENGTH_CODECS = ImmutableSet.of(
+            BooleanCodec.class, ByteCodec.class, ShortCodec.class, IntCodec.class, InvertedIntCodec.class,
+            LongCodec.class, InvertedLongCodec.class, FloatCodec.class, DoubleCodec.class, DateCodec.class,
+            UUIDCodec.class);
+
+    /**
+     * Length and control byte of each component of a column qualifier.
+     */
+    private final static int COMPONENT_OVERHEAD = 3;
+
     @SuppressWarnings("unchecked")
     public EntityMapper(Class<T> clazz) {
         this.clazz = clazz;
@@ -103,6 +168,7 @@ public class EntityMapper<T, K> {
 
         javax.persistence.Table tableAnnotation = clazz.getAnnotation(javax.persistence.Table.class);
         tableName = new TableName(tableAnnotation != null ? tableAnnotation.name() : entityName);
+        packed = clazz.isAnnotationPresent(Packed.class);
 
         Field[] declaredFields = clazz.getDeclaredFields();
         FieldMapper<K> tempIdMapper = null;
@@ -128,6 +194,22 @@ public class EntityMapper<T, K> {
                     field.setAccessible(true);
                     FieldMapper<?> fieldMapper = new FieldMapper(field);
                     valueMappers.put(fieldMapper.getName(), fieldMapper);
+                    storedValueMappers.put(fieldMapper.getName(), fieldMapper);
+                    ColumnTag tagAnnotation = field.getAnnotation(ColumnTag.class);
+                    if (tagAnnotation != null) {
+                        Preconditions.checkArgument(tagAnnotation.value() >= 1 && tagAnnotation.value() <= MAX_COLUMN_TAG,
+                                "Column tag must be between 1 and " + MAX_COLUMN_TAG + ": " + field.getName());
+                        String storedName = toTaggedName(tagAnnotation.value());
+                        Preconditions.checkArgument(!storedValueMappers.containsKey(storedName),
+                                "Duplicate column tag " + tagAnnotation.value() + ": " + field.getName());
+                        storedValueMappers.put(storedName, fieldMapper);
+                        storedNames.put(fieldMapper.getName(), storedName);
+                        if (tagAnnotation.legacyName()) {
+                            legacyNames.add(fieldMapper.getName());
+                        } else {
+                            storedValueMappers.remove(fieldMapper.getName());
+                        }
+                    }
                 }
             }
 
@@ -173,10 +255,22 @@ public class EntityMapper<T, K> {
                                         String.valueOf(family.indexingValueName()))
                                 .put(CompactionFilter.HENTITYDB_PREFIX + "." + familyName + "." + EntityTrimmingCompactionFilter.INDEXING_VALUE_CODEC,
                                         LongCodec.class.getName());
+                        if (getColumnTag(family.indexingValueName()) != null) {
+                            builder.put(CompactionFilter.HENTITYDB_PREFIX + "." + familyName + "." + EntityTrimmingCompactionFilter.INDEXING_VALUE_TAG,
+                                    String.valueOf(getColumnTag(family.indexingValueName())));
+                        }
                     }
                     if (!family.referencingFamily().isEmpty() || !family.indexingFamily().isEmpty()) {
                         builder.put(CompactionFilter.HENTITYDB_PREFIX + "." + familyName + "." + EntityTrimmingCompactionFilter.VALUE_NAMES,
                                 getValueNamesAsString());
+                        if (!storedNames.isEmpty()) {
+                            builder.put(CompactionFilter.HENTITYDB_PREFIX + "." + familyName + "." + EntityTrimmingCompactionFilter.VALUE_TAGS,
+                                    getValueTagsAsString());
+                        }
+                    }
+                    if (packed) {
+                        builder.put(CompactionFilter.HENTITYDB_PREFIX + "." + familyName + "." + EntityTrimmingCompactionFilter.PACKED,
+                                String.valueOf(true));
                     }
                     filterProps = builder.build();
                 }
@@ -201,6 +295,19 @@ public class EntityMapper<T, K> {
         }
         this.ttlMethod = tmpTtlMethod;
 
+        storedValueNameBytes = new byte[storedValueMappers.size()][];
+        storedValueNameMappers = new FieldMapper<?>[storedValueMappers.size()];
+        int index = 0;
+        for (Map.Entry<String, FieldMapper<?>> entry : storedValueMappers.entrySet()) {
+            storedValueNameBytes[index] = STRING_CODEC.encode(entry.getKey());
+            storedValueNameMappers[index] = entry.getValue();
+            index++;
+        }
+        for (String valueName : valueMappers.keySet()) {
+            ByteBuffer suffix = toColumnName(Collections.<ByteBuffer>emptyList(), getStoredName(valueName));
+            qualifierSuffixes.put(valueName, BYTE_BUFFER_CODEC.encode(suffix));
+        }
+
         Preconditions.checkNotNull(tempIdMapper, "Missing @Id annotation");
         idMapper = tempIdMapper;
         cfNameMapper = tempCfNameMapper;
@@ -248,16 +355,97 @@ public class EntityMapper<T, K> {
         return valueMappers.keySet();
     }
 
+    boolean isPacked() {
+        return packed;
+    }
+
     String getValueNamesAsString() {
         boolean first = true;
         StringBuilder sb = new StringBuilder();
         for (String valueName : getValueNames()){
+            if (storedNames.containsKey(valueName) && !legacyNames.contains(valueName)) continue;
             if (!first) sb.append(";"); else first = false;
             sb.append(valueName);
         }
         return sb.toString();
     }
 
+    String getValueTagsAsString() {
+        boolean first = true;
+        StringBuilder sb = new StringBuilder();
+        for (String storedName : storedNames.values()){
+            if (!first) sb.append(";"); else first = false;
+            sb.append((int) storedName.charAt(0));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the field names of the tagged value names stored in the column qualifiers.
+     *
+     * @return the field names by tagged value name, empty if no field is tagged
+     */
+    Map<String, String> getTaggedValueNames() {
+        Map<String, String> taggedValueNames = Maps.newHashMap();
+        for (Map.Entry<String, String> entry : storedNames.entrySet()) {
+            taggedValueNames.put(entry.getValue(), entry.getKey());
+        }
+        return taggedValueNames;
+    }
+
+    Set<String> getLegacyNames() {
+        return legacyNames;
+    }
+
+    private Integer getColumnTag(String valueName) {
+        String storedName = storedNames.get(valueName);
+        return storedName != null ? (int) storedName.charAt(0) : null;
+    }
+
+    /**
+     * Returns the mapper of the given value name stored in a column qualifier.
+     *
+     * @param valueName a view of the stored value name
+     * @return the mapper, or null if the value name is unknown
+     */
+    private FieldMapper<?> getStoredValueMapper(ByteBuffer valueName) {
+        if (!valueName.hasArray()) {
+            return storedValueMappers.get(STRING_CODEC.decode(BYTE_BUFFER_CODEC.encode(valueName.duplicate())));
+        }
+        byte[] array = valueName.array();
+        int offset = valueName.arrayOffset() + valueName.position();
+        int length = valueName.remaining();
+        for (int i = 0; i < storedValueNameBytes.length; i++) {
+            byte[] name = storedValueNameBytes[i];
+            if (name.length == length && BytesUtil.compareTo(name, 0, name.length, array, offset, length) == 0) {
+                return storedValueNameMappers[i];
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTaggedName(ByteBuffer valueName) {
+        if (valueName.remaining() != 1) return false;
+        byte b = valueName.get(valueName.position());
+        return b >= 1 && b <= MAX_COLUMN_TAG;
+    }
+
+    private String getStoredName(String valueName) {
+        String storedName = storedNames.get(valueName);
+        return storedName != null ? storedName : valueName;
+    }
+
+    /**
+     * Returns the value name stored in the column qualifier for the given tag.  Tags sort before any field name
+     * that is not a single control character, so a tagged column precedes its legacy column within an entity.
+     *
+     * @param tag the tag
+     * @return the stored value name
+     */
+    static String toTaggedName(int tag) {
+        return String.valueOf((char) tag);
+    }
+
     FieldMapper<?> getValueMapper(String name) {
         return valueMappers.get(name);
     }
@@ -271,9 +459,15 @@ public class EntityMapper<T, K> {
             Get<K, byte[]> get = table.get(id);
             ByteBuffer columnName = toColumnName(elementIds, null);
             get.addColumn(family, BYTE_BUFFER_CODEC.encode(columnName));
+            if (packed) {
+                return get;
+            }
             for (String valueName : getValueNames()) {
                 ByteBuffer name = toColumnName(elementIds, valueName);
                 get.addColumn(family, BYTE_BUFFER_CODEC.encode(name));
+                if (legacyNames.contains(valueName)) {
+                    get.addColumn(family, BYTE_BUFFER_CODEC.encode(toLegacyColumnName(name, valueName)));
+                }
             }
             return get;
         } catch (Exception e) {
@@ -294,16 +488,16 @@ public class EntityMapper<T, K> {
         try {
             Integer ttl = getTtl(entity);
             if (ttl != null) put.setTTL(ttl);
-            ByteBuffer columnName = toColumnName(entity, null);
-            put.addColumn(getColumnFamilyName(entity), BYTE_BUFFER_CODEC.encode(columnName), new byte[0]);
+            String family = getColumnFamilyName(entity);
+            // the element IDs are the qualifier of the entity marker, and the prefix of every other qualifier
+            byte[] elementIds = toElementIds(entity);
+            if (packed) {
+                put.addColumn(family, elementIds, packValues(entity));
+                return put;
+            }
+            put.addColumn(family, elementIds, FieldMapper.EMPTY_BYTES);
             for (FieldMapper<?> valueMapper : valueMappers.values()) {
-                ByteBuffer name = toColumnName(entity, valueMapper.getName());
-                ByteBuffer value = valueMapper.toByteBuffer(entity);
-                if (value != null) {
-                    put.addColumn(getColumnFamilyName(entity), BYTE_BUFFER_CODEC.encode(name), BYTE_BUFFER_CODEC.encode(value));
-                } else {
-                    put.addColumn(getColumnFamilyName(entity), BYTE_BUFFER_CODEC.encode(name), new byte[0]);
-                }
+                put.addColumn(family, toQualifier(elementIds, valueMapper), valueMapper.toBytes(entity));
             }
             return put;
         } catch (Exception e) {
@@ -320,6 +514,10 @@ public class EntityMapper<T, K> {
             String family = columnFamily != null ? columnFamily : getDefaultColumnFamily().getName();
             Put<K, byte[]> put = table.put(id);
             ByteBuffer columnName = toColumnName(elementIds, null);
+            if (packed) {
+                put.addColumn(family, BYTE_BUFFER_CODEC.encode(columnName), packColumns(setColumns));
+                return put;
+            }
             put.addColumn(family, BYTE_BUFFER_CODEC.encode(columnName), new byte[0]);
             for (Map.Entry<String, Object> setColumn : setColumns.entrySet()) {
                 ByteBuffer name = toColumnName(elementIds, setColumn.getKey());
@@ -363,11 +561,19 @@ public class EntityMapper<T, K> {
 
     Delete<K, byte[]> fillMutationBatchForDelete(Delete<K, byte[]> delete, T entity) {
         try {
-            ByteBuffer columnName = toColumnName(entity, null);
-            delete.addColumn(getColumnFamilyName(entity), BYTE_BUFFER_CODEC.encode(columnName));
+            String family = getColumnFamilyName(entity);
+            byte[] elementIds = toElementIds(entity);
+            delete.addColumn(family, elementIds);
+            if (packed) {
+                return delete;
+            }
             for (FieldMapper<?> valueMapper : valueMappers.values()) {
-                ByteBuffer name = toColumnName(entity, valueMapper.getName());
-                delete.addColumn(getColumnFamilyName(entity), BYTE_BUFFER_CODEC.encode(name));
+                byte[] name = toQualifier(elementIds, valueMapper);
+                delete.addColumn(family, name);
+                if (legacyNames.contains(valueMapper.getName())) {
+                    delete.addColumn(family,
+                            BYTE_BUFFER_CODEC.encode(toLegacyColumnName(ByteBuffer.wrap(name), valueMapper.getName())));
+                }
             }
             return delete;
         } catch (Exception e) {
@@ -388,14 +594,23 @@ public class EntityMapper<T, K> {
                     for (String column : columns) {
                         ByteBuffer name = toColumnName(elementIds, column);
                         delete.addColumn(family, BYTE_BUFFER_CODEC.encode(name));
+                        if (legacyNames.contains(column)) {
+                            delete.addColumn(family, BYTE_BUFFER_CODEC.encode(toLegacyColumnName(name, column)));
+                        }
                     }
                 } else {
                     // Delete all columns for the entity
                     ByteBuffer columnName = toColumnName(elementIds, null);
                     delete.addColumn(family, BYTE_BUFFER_CODEC.encode(columnName));
+                    if (packed) {
+                        return delete;
+                    }
                     for (FieldMapper<?> valueMapper : valueMappers.values()) {
                         ByteBuffer name = toColumnName(elementIds, valueMapper.getName());
                         delete.addColumn(family, BYTE_BUFFER_CODEC.encode(name));
+                        if (legacyNames.contains(valueMapper.getName())) {
+                            delete.addColumn(family, BYTE_BUFFER_CODEC.encode(toLegacyColumnName(name, valueMapper.getName())));
+                        }
                     }
                 }
             }
@@ -421,7 +636,22 @@ public class EntityMapper<T, K> {
         }
     }
 
-    private Integer getTtl(T entity) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+    /**
+     * Returns the columns that the tagged fields of the entity were stored under before they were tagged.
+     *
+     * @param entity the entity
+     * @return the column names stored under the tags, by the column names stored under the field names
+     */
+    Map<ByteBuffer, byte[]> getLegacyColumnNames(T entity) {
+        Map<ByteBuffer, byte[]> columnNames = Maps.newHashMap();
+        for (String valueName : legacyNames) {
+            ByteBuffer name = toColumnName(entity, valueName);
+            columnNames.put(toLegacyColumnName(name, valueName), BYTE_BUFFER_CODEC.encode(name.duplicate()));
+        }
+        return columnNames;
+    }
+
+    Integer getTtl(T entity) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
         Integer retTtl = null;
         if (ttlMethod != null) {
             Object retobj = ttlMethod.invoke(entity);
@@ -439,7 +669,7 @@ public class EntityMapper<T, K> {
                 composite.addWithoutControl(mapper.toByteBuffer(obj));
             }
             if (valueName != null) {
-                composite.addWithoutControl(ByteBuffer.wrap(STRING_CODEC.encode(valueName)));
+                composite.addWithoutControl(ByteBuffer.wrap(STRING_CODEC.encode(getStoredName(valueName))));
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -448,6 +678,9 @@ public class EntityMapper<T, K> {
     }
 
     protected ByteBuffer toColumnName(Map<String, Object> obj, String valueName) {
+        if (packed && valueName != null) {
+            throw new IllegalArgumentException("Field '" + valueName + "' of a packed entity has no column of its own");
+        }
         CompositeBuilder composite = new CompositeBuilder(BUFFER_SIZE, CompareOp.EQUAL);
 
         // Iterate through each component and add to a CompositeType structure
@@ -459,7 +692,7 @@ public class EntityMapper<T, K> {
                 composite.addWithoutControl(mapper.toByteBuffer(obj));
             }
             if (valueName != null) {
-                composite.addWithoutControl(ByteBuffer.wrap(STRING_CODEC.encode(valueName)));
+                composite.addWithoutControl(ByteBuffer.wrap(STRING_CODEC.encode(getStoredName(valueName))));
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -467,6 +700,51 @@ public class EntityMapper<T, K> {
         return composite.get();
     }
 
+    /**
+     * Encodes the element IDs of the entity into an array of the exact size, in the same format as
+     * {@link #toColumnName(Object, String)} without a value name.
+     */
+    private byte[] toElementIds(T entity) throws IllegalAccessException {
+        int numComponents = components.size();
+        if (numComponents == 0) {
+            return FieldMapper.EMPTY_BYTES;
+        }
+        byte[][] values = new byte[numComponents][];
+        int length = 0;
+        for (int i = 0; i < numComponents; i++) {
+            values[i] = components.get(i).toBytes(entity);
+            length += values[i].length + COMPONENT_OVERHEAD;
+        }
+        byte[] elementIds = new byte[length];
+        int pos = 0;
+        for (byte[] value : values) {
+            elementIds[pos++] = (byte) (value.length >>> 8);
+            elementIds[pos++] = (byte) value.length;
+            System.arraycopy(value, 0, elementIds, pos, value.length);
+            pos += value.length;
+            elementIds[pos++] = CompareOp.EQUAL.toByte();
+        }
+        return elementIds;
+    }
+
+    /**
+     * Appends the cached value name component of the field to the encoded element IDs.
+     */
+    private byte[] toQualifier(byte[] elementIds, FieldMapper<?> valueMapper) {
+        byte[] suffix = qualifierSuffixes.get(valueMapper.getName());
+        byte[] qualifier = new byte[elementIds.length + suffix.length];
+        System.arraycopy(elementIds, 0, qualifier, 0, elementIds.length);
+        System.arraycopy(suffix, 0, qualifier, elementIds.length, suffix.length);
+        return qualifier;
+    }
+
+    /**
+     * Returns the column name under which a tagged field was stored before it was tagged.
+     */
+    private ByteBuffer toLegacyColumnName(ByteBuffer columnName, String valueName) {
+        return toColumnName(getNumComponents(), columnName, valueName);
+    }
+
     // Extract the component bytes from the byte buffer and add the value name
     public static ByteBuffer toColumnName(int numComponents, ByteBuffer byteBuffer, String valueName) {
         CompositeBuilder composite = new CompositeBuilder(BUFFER_SIZE, CompareOp.EQUAL);
@@ -501,6 +779,99 @@ public class EntityMapper<T, K> {
         return composite.get();
     }
 
+    /**
+     * Packs the value fields of the entity, under their stored value names.
+     */
+    private byte[] packValues(T entity) throws IllegalAccessException {
+        Map<String, ByteBuffer> values = Maps.newHashMapWithExpectedSize(valueMappers.size());
+        for (FieldMapper<?> valueMapper : valueMappers.values()) {
+            values.put(getStoredName(valueMapper.getName()), valueMapper.toByteBuffer(entity));
+        }
+        return pack(values);
+    }
+
+    private byte[] packColumns(Map<String, Object> setColumns) {
+        if (!setColumns.keySet().containsAll(valueMappers.keySet())) {
+            throw new IllegalArgumentException("All fields of a packed entity must be set: " + valueMappers.keySet());
+        }
+        Map<String, ByteBuffer> values = Maps.newHashMapWithExpectedSize(valueMappers.size());
+        for (FieldMapper<?> valueMapper : valueMappers.values()) {
+            values.put(getStoredName(valueMapper.getName()),
+                    valueMapper.valueToByteBuffer(setColumns.get(valueMapper.getName())));
+        }
+        return pack(values);
+    }
+
+    /**
+     * Packs values into the value of an entity marker column.  Each value is written after its value name, with
+     * null values written as empty, like the value of an unpacked column.
+     *
+     * @param values the values by value name
+     * @return the packed value
+     */
+    static byte[] pack(Map<String, ByteBuffer> values) {
+        WriteBuffer buffer = new WriteBuffer(BUFFER_SIZE);
+        buffer.writeVarInt(values.size());
+        for (Map.Entry<String, ByteBuffer> entry : values.entrySet()) {
+            buffer.writeUtf8String(entry.getKey());
+            ByteBuffer value = entry.getValue();
+            if (value != null) {
+                EntityFilter.BYTE_BUFFER_CODEC.encode(value.duplicate(), buffer);
+            } else {
+                buffer.writeVarInt(0);
+            }
+        }
+        return buffer.finish();
+    }
+
+    /**
+     * Unpacks the value of an entity marker column.
+     *
+     * @param packedValue the packed value
+     * @return the values by value name, empty if the value is empty
+     */
+    static Map<String, ByteBuffer> unpack(byte[] packedValue) {
+        return unpack(ByteBuffer.wrap(packedValue));
+    }
+
+    /**
+     * Unpacks the value of an entity marker column, in place if the value is backed by an array.
+     *
+     * @param packedValue a view of the packed value
+     * @return the values by value name, empty if the value is empty
+     */
+    static Map<String, ByteBuffer> unpack(ByteBuffer packedValue) {
+        if (packedValue.remaining() == 0) {
+            return Collections.emptyMap();
+        }
+        ReadBuffer buffer = packedValue.hasArray()
+                ? new ReadBuffer(packedValue.array(), packedValue.arrayOffset() + packedValue.position(), packedValue.remaining())
+                : new ReadBuffer(BYTE_BUFFER_CODEC.encode(packedValue.duplicate()));
+        int size = buffer.readVarInt();
+        Map<String, ByteBuffer> values = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            String valueName = buffer.readUtf8String();
+            values.put(valueName, EntityFilter.BYTE_BUFFER_CODEC.decode(buffer));
+        }
+        return values;
+    }
+
+    /**
+     * Resets the value fields of a packed entity that are not in the projection, as their columns would not have
+     * been returned had the entity not been packed.
+     */
+    void project(T entity, Set<String> projection) {
+        try {
+            for (FieldMapper<?> valueMapper : valueMappers.values()) {
+                if (!projection.contains(valueMapper.getName())) {
+                    valueMapper.setValue(entity, Defaults.defaultValue(valueMapper.getField().getType()));
+                }
+            }
+        } catch (Exception e) {
+            throw new PersistenceException("Failed to project entity", e);
+        }
+    }
+
     T constructEntity(K id, List<Column<byte[]>> columns) {
         try {
             // First, construct the parent class and give it an id
@@ -509,10 +880,12 @@ public class EntityMapper<T, K> {
             if (!columns.isEmpty()) {
                 setColumnFamilyName(entity, columns.get(0).getFamily());
             }
+            Set<FieldMapper<?>> taggedFields = legacyNames.isEmpty() ? null : Sets.newHashSet();
             for (Column<byte[]> column : columns) {
                 setEntityFieldsFromColumnName(entity,
-                        ByteBuffer.wrap(column.getRawName()),
-                        ByteBuffer.wrap(column.getBytes()));
+                        column.getRawNameBuffer(),
+                        column.getValueBuffer(),
+                        taggedFields);
             }
             return entity;
         } catch (Exception e) {
@@ -584,10 +957,11 @@ public class EntityMapper<T, K> {
         if (columnName.remaining() > 0) {
             ByteBuffer data = getWithShortLength(columnName);
             if (data != null && data.remaining() > 0) {
-                byte[] bytes = BYTE_BUFFER_CODEC.encode(data);
-                String valueName = STRING_CODEC.decode(bytes);
-                FieldMapper<?> valueMapper = valueMappers.get(valueName);
-                result.put(valueName, valueMapper.fromByteBuffer(columnValue));
+                FieldMapper<?> valueMapper = getStoredValueMapper(data);
+                if (valueMapper == null) {
+                    throw new RuntimeException("Unknown value name in composite type");
+                }
+                result.put(valueMapper.getName(), valueMapper.fromByteBuffer(columnValue));
                 byte end_of_component = columnName.get();
                 if (end_of_component != CompareOp.EQUAL.toByte()) {
                     throw new RuntimeException("Invalid composite column.  Expected END_OF_COMPONENT.");
@@ -595,11 +969,29 @@ public class EntityMapper<T, K> {
             } else {
                 throw new RuntimeException("Invalid value name in composite type");
             }
+        } else if (packed) {
+            for (Map.Entry<String, ByteBuffer> entry : unpack(columnValue).entrySet()) {
+                FieldMapper<?> valueMapper = storedValueMappers.get(entry.getKey());
+                if (valueMapper != null) {
+                    result.put(valueMapper.getName(), valueMapper.fromByteBuffer(entry.getValue()));
+                }
+            }
         }
         return result;
     }
 
-    void setEntityFieldsFromColumnName(Object entity, ByteBuffer columnName, ByteBuffer columnValue)
+    /**
+     * Sets the fields of the entity from the given column.
+     *
+     * @return the mapper of the value field that was set, or null for the entity marker
+     */
+    FieldMapper<?> setEntityFieldsFromColumnName(Object entity, ByteBuffer columnName, ByteBuffer columnValue)
+            throws IllegalArgumentException, IllegalAccessException {
+        return setEntityFieldsFromColumnName(entity, columnName, columnValue, null);
+    }
+
+    private FieldMapper<?> setEntityFieldsFromColumnName(Object entity, ByteBuffer columnName, ByteBuffer columnValue,
+                                                         Set<FieldMapper<?>> taggedFields)
             throws IllegalArgumentException, IllegalAccessException {
         // Iterate through components in order and set fields
         for (FieldMapper<?> component : components) {
@@ -620,18 +1012,37 @@ public class EntityMapper<T, K> {
         if (columnName.remaining() > 0) {
             ByteBuffer data = getWithShortLength(columnName);
             if (data != null && data.remaining() > 0) {
-                byte[] bytes = BYTE_BUFFER_CODEC.encode(data);
-                String valueName = STRING_CODEC.decode(bytes);
-                FieldMapper<?> valueMapper = valueMappers.get(valueName);
+                FieldMapper<?> valueMapper = getStoredValueMapper(data);
+                if (valueMapper == null) {
+                    throw new RuntimeException("Unknown value name in composite type");
+                }
+                if (taggedFields != null) {
+                    if (isTaggedName(data)) {
+                        taggedFields.add(valueMapper);
+                    } else if (taggedFields.contains(valueMapper)) {
+                        // the tagged column precedes and supersedes the legacy column
+                        return valueMapper;
+                    }
+                }
                 valueMapper.setField(entity, columnValue);
                 byte end_of_component = columnName.get();
                 if (end_of_component != CompareOp.EQUAL.toByte()) {
                     throw new RuntimeException("Invalid composite column.  Expected END_OF_COMPONENT.");
                 }
+                return valueMapper;
             } else {
                 throw new RuntimeException("Invalid value name in composite type");
             }
+        } else if (packed) {
+            for (Map.Entry<String, ByteBuffer> entry : unpack(columnValue).entrySet()) {
+                FieldMapper<?> valueMapper = storedValueMappers.get(entry.getKey());
+                // fields removed from the entity are ignored
+                if (valueMapper != null) {
+                    valueMapper.setField(entity, entry.getValue());
+                }
+            }
         }
+        return null;
     }
 
     public static int getShortLength(ByteBuffer bb) {
@@ -678,7 +1089,66 @@ public class EntityMapper<T, K> {
         return result;
     }
 
+    /**
+     * Returns the page cursor that follows the entity of the given column.  The cursor is the composite of the
+     * entity's element IDs with a final control byte of GREATER_THAN, so in storage order it sorts after every
+     * column of that entity and before the columns of the next one.
+     *
+     * @param numComponents the number of element IDs
+     * @param byteBuffer the raw column name
+     * @return the cursor, or null if the entity has no element IDs
+     */
+    public static ByteBuffer getCursor(int numComponents, ByteBuffer byteBuffer) {
+        if (numComponents == 0) {
+            return null;
+        }
+        ByteBuffer elementIds = getElementIds(numComponents, byteBuffer);
+        byte[] cursor = new byte[elementIds.remaining()];
+        elementIds.get(cursor);
+        cursor[cursor.length - 1] = CompareOp.GREATER_THAN.toByte();
+        return ByteBuffer.wrap(cursor);
+    }
+
+    /**
+     * Returns the composite of the element IDs of the given column, which is shared by all columns of an entity.
+     *
+     * @param numComponents the number of element IDs
+     * @param byteBuffer the raw column name
+     * @return a view of the element IDs in the column name
+     */
+    public static ByteBuffer getElementIds(int numComponents, ByteBuffer byteBuffer) {
+        ByteBuffer bb = byteBuffer.duplicate();
+        int i = 0;
+        while (bb.remaining() > 0 && i < numComponents) {
+            getWithShortLength(bb);
+
+            // consume equality
+            bb.get();
+            i++;
+        }
+        ByteBuffer elementIds = byteBuffer.duplicate();
+        elementIds.limit(bb.position());
+        return elementIds;
+    }
+
     public static String getValueName(int numComponents, ByteBuffer byteBuffer) {
+        ByteBuffer data = getRawValueName(numComponents, byteBuffer);
+        if (data != null) {
+            byte[] bytes = BYTE_BUFFER_CODEC.encode(data);
+            return STRING_CODEC.decode(bytes);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a view of the encoded value name of a column name, or null for the entity marker.
+     *
+     * @param numComponents the number of element IDs
+     * @param byteBuffer the column name
+     * @return the value name as a buffer
+     */
+    static ByteBuffer getRawValueName(int numComponents, ByteBuffer byteBuffer) {
         ByteBuffer bb = byteBuffer.duplicate();
         int i = 0;
         while (bb.remaining() > 0 && i < numComponents) {
@@ -691,8 +1161,7 @@ public class EntityMapper<T, K> {
         if (bb.remaining() > 0) {
             ByteBuffer data = getWithShortLength(bb);
             if (data != null && data.remaining() > 0) {
-                byte[] bytes = BYTE_BUFFER_CODEC.encode(data);
-                return STRING_CODEC.decode(bytes);
+                return data;
             } else {
                 throw new RuntimeException("Invalid value name in composite type");
             }
@@ -775,6 +1244,39 @@ public class EntityMapper<T, K> {
         return new ByteBuffer[]{start.get(), end.get()};
     }
 
+    /**
+     * Returns whether the columns matching the given element ID predicates form a contiguous range in storage
+     * order.  Storage order sorts each component by length first, so this only holds if the predicates constrain
+     * a prefix of the components, with equalities on all but the last, and the last is either an equality or
+     * is of fixed length.
+     *
+     * @param predicates the element ID predicates
+     * @return whether the range of matching columns is contiguous
+     */
+    boolean isContiguousRange(Collection<ColumnPredicate> predicates) {
+        ArrayListMultimap<Object, ColumnPredicate> lookup = ArrayListMultimap.create();
+        for (ColumnPredicate predicate : predicates) {
+            lookup.put(predicate.getName(), predicate);
+        }
+        int remaining = lookup.keySet().size();
+        for (FieldMapper<?> mapper : components) {
+            if (remaining == 0) {
+                return true;
+            }
+            List<ColumnPredicate> componentPredicates = lookup.get(mapper.getName());
+            if (componentPredicates.isEmpty()) {
+                return false;
+            }
+            remaining--;
+            for (ColumnPredicate p : componentPredicates) {
+                if (p.getOp() != CompareOp.EQUAL) {
+                    return remaining == 0 && FIXED_LENGTH_CODECS.contains(mapper.getCodec().getClass());
+                }
+            }
+        }
+        return true;
+    }
+
     void applyPredicate(FieldMapper<?> mapper, CompositeBuilder start, CompositeBuilder end,
                         ColumnPredicate predicate) {
         ByteBuffer bb = predicate.getValue();
@@ -0,0 +1,67 @@
+package io.hentitydb.entity;
+
+import com.google.common.io.BaseEncoding;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A page of entities, along with an opaque cursor from which the next page can be fetched
+ * using {@link SelectQuery#after(String)}.
+ */
+public class EntityPage<T> {
+
+    private static final BaseEncoding CURSOR_ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    private final List<T> entities;
+    private final String cursor;
+
+    public EntityPage(List<T> entities, String cursor) {
+        this.entities = entities;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Returns the entities in this page.
+     *
+     * @return the entities
+     */
+    public List<T> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Returns the cursor for the next page.
+     *
+     * @return the cursor, or null if this is the last page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Whether there may be more entities after this page.
+     *
+     * @return true if there is a cursor for the next page
+     */
+    public boolean hasMore() {
+        return cursor != null;
+    }
+
+    static String encodeCursor(ByteBuffer cursor) {
+        return cursor != null ? CURSOR_ENCODING.encode(EntityMapper.BYTE_BUFFER_CODEC.encode(cursor.duplicate())) : null;
+    }
+
+    static ByteBuffer decodeCursor(String cursor) {
+        try {
+            return ByteBuffer.wrap(CURSOR_ENCODING.decode(cursor));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EntityPage [entities=" + entities + ", cursor=" + cursor + "]";
+    }
+}
@@ -0,0 +1,31 @@
+package io.hentitydb.entity;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A closeable iterator over entities that are decoded as the underlying rows are scanned.
+ */
+public interface EntityScanner<T> extends AutoCloseable, Iterable<T>, Iterator<T> {
+
+    @Override
+    default Iterator<T> iterator() {
+        return this;
+    }
+
+    /**
+     * Returns a sequential stream over the remaining entities.  Closing the stream closes this scanner.
+     *
+     * @return the stream of entities
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    void close();
+}
@@ -26,6 +26,9 @@ public class EntityTrimmingCompactionFilter<K> implements CompactionFilter<K, by
     public static final String INDEXING_VALUE_CODEC = "indexingValueCodec";
     public static final String INDEXING_VALUE_NAME = "indexingValueName";
     public static final String VALUE_NAMES = "valueNames";
+    public static final String VALUE_TAGS = "valueTags";
+    public static final String INDEXING_VALUE_TAG = "indexingValueTag";
+    public static final String PACKED = "packed";
 
     private int maxCount = Integer.MAX_VALUE;
     private int maxCountTtl = 0;
@@ -36,7 +39,9 @@ public class EntityTrimmingCompactionFilter<K> implements CompactionFilter<K, by
     private Codec<Long> indexingColumnCodec;
     private Codec<Long> indexingValueCodec;
     private String indexingValueName;
+    private String indexingValueTag;
     private List<String> valueNames = Lists.newArrayList();
+    private boolean packed = false;
 
     private int count = 0;
     private KeyColumn<K, byte[]> previous = null;
@@ -80,13 +85,33 @@ public class EntityTrimmingCompactionFilter<K> implements CompactionFilter<K, by
             indexingValueCodec = new LongCodec();
         }
         indexingValueName = config.get(HENTITYDB_PREFIX + "." + family + "." + INDEXING_VALUE_NAME);
+        String indexingValueTagStr = config.get(HENTITYDB_PREFIX + "." + family + "." + INDEXING_VALUE_TAG);
+        try {
+            if (indexingValueTagStr != null) indexingValueTag = EntityMapper.toTaggedName(Integer.parseInt(indexingValueTagStr));
+        } catch (NumberFormatException e) {
+            // noop
+        }
         String valueNamesStr = config.get(HENTITYDB_PREFIX + "." + family + "." + VALUE_NAMES);
-        if (valueNamesStr != null) {
+        if (valueNamesStr != null && !valueNamesStr.isEmpty()) {
             String[] parts = valueNamesStr.split(";");
             for (String part : parts) {
                 valueNames.add(part);
             }
         }
+        // tagged columns are stored under a one-byte value name
+        String valueTagsStr = config.get(HENTITYDB_PREFIX + "." + family + "." + VALUE_TAGS);
+        if (valueTagsStr != null && !valueTagsStr.isEmpty()) {
+            String[] parts = valueTagsStr.split(";");
+            for (String part : parts) {
+                try {
+                    valueNames.add(EntityMapper.toTaggedName(Integer.parseInt(part)));
+                } catch (NumberFormatException e) {
+                    // noop
+                }
+            }
+        }
+        // packed entities store the indexing value in the entity marker
+        packed = Boolean.parseBoolean(config.get(HENTITYDB_PREFIX + "." + family + "." + PACKED));
         if (debug) System.out.println(new Date() + " Started entity trimming for: " + tableName + ", " + family + ", " + regionName);
     }
 
@@ -127,23 +152,39 @@ public class EntityTrimmingCompactionFilter<K> implements CompactionFilter<K, by
             }
         }
         if (indexingFamily != null && indexingValueName != null) {
-            if (indexingValueName.equals(EntityMapper.getValueName(
-                    numElementIds, ByteBuffer.wrap(keyColumn.getColumn().getRawName())))) {
-                Long value = keyColumn.getColumn().getValue(indexingValueCodec);
-                if (value != null) { // may be a tombstone
-                    List<ByteBuffer> byteBuffers = ImmutableList.of(ByteBuffer.wrap(indexingColumnCodec.encode(value)));
-                    // using the long index, delete entity marker
-                    deleteColumn(delete, indexingFamily, byteBuffers, null);
-                    // using the long index, delete columns of the indexing family
-                    for (String valueName : valueNames) {
-                        deleteColumn(delete, indexingFamily, byteBuffers, valueName);
-                    }
+            Long value = getIndexingValue(keyColumn);
+            if (value != null) { // may be a tombstone
+                List<ByteBuffer> byteBuffers = ImmutableList.of(ByteBuffer.wrap(indexingColumnCodec.encode(value)));
+                // using the long index, delete entity marker
+                deleteColumn(delete, indexingFamily, byteBuffers, null);
+                // using the long index, delete columns of the indexing family
+                for (String valueName : valueNames) {
+                    deleteColumn(delete, indexingFamily, byteBuffers, valueName);
                 }
             }
         }
         return delete;
     }
 
+    private Long getIndexingValue(KeyColumn<K, byte[]> keyColumn) {
+        String columnValueName = EntityMapper.getValueName(
+                numElementIds, ByteBuffer.wrap(keyColumn.getColumn().getRawName()));
+        if (packed) {
+            if (columnValueName != null) return null;
+            Map<String, ByteBuffer> values = EntityMapper.unpack(keyColumn.getColumn().getBytes());
+            ByteBuffer value = indexingValueTag != null ? values.get(indexingValueTag) : null;
+            if (value == null) value = values.get(indexingValueName);
+            if (value == null || value.remaining() == 0) return null;
+            byte[] bytes = new byte[value.remaining()];
+            value.duplicate().get(bytes);
+            return indexingValueCodec.decode(bytes);
+        }
+        if (indexingValueName.equals(columnValueName) || (indexingValueTag != null && indexingValueTag.equals(columnValueName))) {
+            return keyColumn.getColumn().getValue(indexingValueCodec);
+        }
+        return null;
+    }
+
     private void deleteColumn(Delete<K, byte[]> delete, String family, int numComponents, ByteBuffer componentBytes, String valueName) {
         ByteBuffer columnNameBytes = EntityMapper.toColumnName(
                 numComponents, componentBytes, valueName);
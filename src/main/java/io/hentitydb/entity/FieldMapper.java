@@ -9,6 +9,8 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 
 public class FieldMapper<T> {
+    final static byte[] EMPTY_BYTES = new byte[0];
+
     final Codec<T> serializer;
     final Field field;
     final String name;
@@ -57,12 +59,30 @@ public class FieldMapper<T> {
         return valueToByteBuffer(getValue(entity));
     }
 
+    /**
+     * Encodes the value of the field directly, without wrapping it in a buffer.
+     *
+     * @param entity the entity
+     * @return the encoded value, or an empty array if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public byte[] toBytes(Object entity) throws IllegalArgumentException, IllegalAccessException {
+        T value = getValue(entity);
+        return value != null ? serializer.encode(value) : EMPTY_BYTES;
+    }
+
     public ByteBuffer toByteBuffer(Map<String, Object> entity) throws IllegalArgumentException {
         return valueToByteBuffer(entity.get(field.getName()));
     }
 
     public T fromByteBuffer(ByteBuffer buffer) {
         if (buffer.remaining() == 0) return null;
+        if (buffer.hasArray()) {
+            // decode in place, such as from the backing array of a cell
+            T value = serializer.decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return value;
+        }
         byte[] bytes = new byte[buffer.remaining()];
         buffer.get(bytes);
         return serializer.decode(bytes);
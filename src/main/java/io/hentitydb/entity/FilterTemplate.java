@@ -0,0 +1,130 @@
+package io.hentitydb.entity;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.hentitydb.serialization.ByteBufferCodec;
+import io.hentitydb.serialization.WriteBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The serialized form of an entity filter with holes for some of its values, such as the endpoints and the
+ * values of the column predicates of a prepared select.  Filling in the holes gives the same bytes as
+ * serializing a filter with those values, without walking the filter and its predicates again.
+ */
+final class FilterTemplate {
+
+    /**
+     * The hole for the start endpoint.
+     */
+    final static Object START = new Object();
+
+    /**
+     * The hole for the end endpoint.
+     */
+    final static Object END = new Object();
+
+    private final static ByteBufferCodec BYTE_BUFFER_CODEC = new ByteBufferCodec(true);
+
+    private final List<byte[]> fragments;
+    private final List<Object> holes;
+    private final int size;
+
+    private FilterTemplate(List<byte[]> fragments, List<Object> holes) {
+        this.fragments = ImmutableList.copyOf(fragments);
+        this.holes = ImmutableList.copyOf(holes);
+        int size = 0;
+        for (byte[] fragment : fragments) {
+            size += fragment.length;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Returns the serialized filter with the given values in its holes.
+     *
+     * @param values the values by hole
+     * @return the serialized filter, or null if a hole has a null value
+     */
+    byte[] fill(Map<Object, ByteBuffer> values) {
+        if (holes.isEmpty()) {
+            return fragments.get(0);
+        }
+        WriteBuffer buffer = new WriteBuffer(size + 16 * holes.size());
+        for (int i = 0; i < holes.size(); i++) {
+            ByteBuffer value = values.get(holes.get(i));
+            if (value == null) {
+                buffer.finish();
+                return null;
+            }
+            buffer.writeBytes(fragments.get(i));
+            BYTE_BUFFER_CODEC.encode(value.duplicate(), buffer);
+        }
+        buffer.writeBytes(fragments.get(holes.size()));
+        return buffer.finish();
+    }
+
+    /**
+     * Serializes a filter, leaving holes for the values with the given keys.
+     */
+    static class Builder {
+        private final Set<Object> holeKeys;
+        private final List<byte[]> fragments = Lists.newArrayList();
+        private final List<Object> holes = Lists.newArrayList();
+        private WriteBuffer buffer;
+
+        /**
+         * Creates a builder that writes every value to the given buffer.
+         *
+         * @param buffer the buffer
+         */
+        Builder(WriteBuffer buffer) {
+            this.holeKeys = Collections.emptySet();
+            this.buffer = buffer;
+        }
+
+        /**
+         * Creates a builder for a template.
+         *
+         * @param holeKeys the keys of the values to leave out, compared by identity
+         */
+        Builder(Set<Object> holeKeys) {
+            this.holeKeys = holeKeys;
+            this.buffer = new WriteBuffer(256);
+        }
+
+        /**
+         * Returns the buffer to write to.  The buffer changes after each hole.
+         *
+         * @return the buffer
+         */
+        WriteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Writes the value with the given key, or a hole in its place.
+         *
+         * @param key the key of the value
+         * @param value the value
+         */
+        void writeValue(Object key, ByteBuffer value) {
+            if (!holeKeys.contains(key)) {
+                BYTE_BUFFER_CODEC.encode(value.duplicate(), buffer);
+                return;
+            }
+            fragments.add(buffer.finish());
+            holes.add(key);
+            buffer = new WriteBuffer(256);
+        }
+
+        FilterTemplate build() {
+            fragments.add(buffer.finish());
+            return new FilterTemplate(fragments, holes);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.hentitydb.entity;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * A read-only list of entities, each of which is constructed on first access and then kept.  The list is not
+ * thread-safe.
+ */
+class LazyEntityList<T> extends AbstractList<T> implements RandomAccess {
+    private final Object[] entities;
+    private final IntFunction<T> constructor;
+
+    /**
+     * Creates a list of entities.
+     *
+     * @param size the number of entities
+     * @param constructor constructs the entity at an index, such as from the columns retained for it
+     */
+    LazyEntityList(int size, IntFunction<T> constructor) {
+        this.entities = new Object[size];
+        this.constructor = constructor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Object entity = entities[index];
+        if (entity == null) {
+            entity = constructor.apply(index);
+            entities[index] = entity;
+        }
+        return (T) entity;
+    }
+
+    @Override
+    public int size() {
+        return entities.length;
+    }
+}
@@ -1,5 +1,7 @@
 package io.hentitydb.entity;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface MutationQuery<T, K> {
 
     K getId();
@@ -38,4 +40,6 @@ public interface MutationQuery<T, K> {
     MutateIfColumnQuery<T, K> ifColumn(String family);
 
     boolean execute();
+
+    CompletableFuture<Boolean> executeAsync();
 }
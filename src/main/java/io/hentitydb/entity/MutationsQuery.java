@@ -7,6 +7,7 @@ import io.hentitydb.store.CompareOp;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class MutationsQuery<T, K> implements MutationQuery<T, K> {
     protected K id;
@@ -116,6 +117,8 @@ public abstract class MutationsQuery<T, K> implements MutationQuery<T, K> {
 
     public abstract boolean execute();
 
+    public abstract CompletableFuture<Boolean> executeAsync();
+
     protected abstract ByteBuffer getRawValue(String name, Object value, boolean isComponent);
 }
 
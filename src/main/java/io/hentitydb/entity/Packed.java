@@ -0,0 +1,17 @@
+package io.hentitydb.entity;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores the value fields of each entity packed into the value of the entity marker column, rather than in one
+ * column per field.  Packed entities can only be updated as a whole.
+ */
+@Documented
+@Target({ ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Packed {
+}
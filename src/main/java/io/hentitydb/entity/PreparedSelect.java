@@ -0,0 +1,300 @@
+package io.hentitydb.entity;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+import io.hentitydb.store.Column;
+import io.hentitydb.store.Row;
+
+import javax.persistence.PersistenceException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A select query whose shape is captured once, to be executed many times against different rows with
+ * different parameter values.  When the select is prepared, the field mappers of the parameters are resolved,
+ * the element ID endpoints and the entity filter are built, and the filter is serialized into a template with
+ * holes for the parameters.  Each execution copies the filter with its bound values, and fills the encoded
+ * values into the template instead of serializing the filter again.  Element ID endpoints that depend on a
+ * parameter are still encoded for each execution, and a parameter bound to null falls back to serializing the
+ * whole filter.  A prepared select is thread-safe; each execution binds its own values with
+ * {@link #bind(Object)} and gets its own filter.
+ */
+public abstract class PreparedSelect<T, K> {
+
+    /**
+     * A typed placeholder for the value of an element ID or column predicate, such as
+     * {@code whereElementId("part2").gte(PreparedSelect.param("from", Long.class))}.
+     */
+    public static final class Parameter<V> {
+        private final String name;
+        private final Class<V> type;
+
+        private Parameter(String name, Class<V> type) {
+            this.name = checkNotNull(name);
+            this.type = checkNotNull(type);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<V> getType() {
+            return type;
+        }
+
+        @Override
+        public String toString() {
+            return "Parameter [name=" + name + ", type=" + type.getName() + "]";
+        }
+    }
+
+    /**
+     * Creates a parameter to use in place of a value when building the query to prepare.
+     *
+     * @param name the name of the parameter, used in error messages
+     * @param type the type of the values bound to the parameter
+     * @return the parameter
+     */
+    public static <V> Parameter<V> param(String name, Class<V> type) {
+        return new Parameter<>(name, type);
+    }
+
+    private final EntityMapper<T, K> entityMapper;
+    private final SelectQuery<T, K> query;
+    private final ListMultimap<Parameter<?>, ColumnPredicate> predicatesByParameter = ArrayListMultimap.create();
+    private final Map<ColumnPredicate, FieldMapper<?>> parameterMappers = Maps.newIdentityHashMap();
+    private final boolean elementIdParameters;
+    private final EntityFilter<K> filter;
+    private final EntityFilter<K> countFilter;
+    private final FilterTemplate template;
+    private final FilterTemplate countTemplate;
+
+    protected PreparedSelect(EntityMapper<T, K> entityMapper, SelectQuery<T, K> query) {
+        Preconditions.checkArgument(query.ids == null && !query.idRange,
+                "Prepared selects are executed against the single row passed to bind()");
+        this.entityMapper = entityMapper;
+        this.query = query;
+
+        boolean elementIdParameters = false;
+        if (query.parameters != null) {
+            for (Map.Entry<ColumnPredicate, Parameter<?>> entry : query.parameters.entrySet()) {
+                ColumnPredicate predicate = entry.getKey();
+                Parameter<?> parameter = entry.getValue();
+                boolean isComponent = query.elementIdPredicates != null
+                        && Iterables.any(query.elementIdPredicates, p -> p == predicate);
+                FieldMapper<?> mapper = isComponent
+                        ? entityMapper.getComponentMapper(predicate.getName())
+                        : entityMapper.getValueMapper(predicate.getName());
+                if (mapper == null) {
+                    throw new IllegalArgumentException("Field '" + predicate.getName() + "' is not a valid column");
+                }
+                if (!Primitives.wrap(mapper.getField().getType()).isAssignableFrom(Primitives.wrap(parameter.getType()))) {
+                    throw new IllegalArgumentException("Parameter '" + parameter.getName() + "' of type "
+                            + parameter.getType().getName() + " cannot be compared to field '" + predicate.getName() + "'");
+                }
+                predicatesByParameter.put(parameter, predicate);
+                parameterMappers.put(predicate, mapper);
+                elementIdParameters |= isComponent;
+            }
+        }
+        this.elementIdParameters = elementIdParameters;
+
+        // the prototype filters are only copied, never run, so that executions do not share row state
+        Set<Object> holeKeys = Sets.newIdentityHashSet();
+        ByteBuffer[] endpoints;
+        if (elementIdParameters) {
+            endpoints = new ByteBuffer[]{ByteBuffer.allocate(0), ByteBuffer.allocate(0)};
+            holeKeys.add(FilterTemplate.START);
+            holeKeys.add(FilterTemplate.END);
+        } else {
+            endpoints = getEndpoints(query.elementIdPredicates);
+        }
+        for (ColumnPredicate predicate : parameterMappers.keySet()) {
+            holeKeys.add(predicate);
+        }
+        this.filter = query.newFilter(endpoints, query.columnPredicate, false);
+        this.countFilter = query.newFilter(endpoints, query.columnPredicate, true);
+        this.template = filter.toTemplate(holeKeys);
+        this.countTemplate = countFilter.toTemplate(holeKeys);
+    }
+
+    /**
+     * Starts an execution of the query against the given row.
+     *
+     * @param id row key
+     * @return the bound query
+     */
+    public BoundSelect bind(K id) {
+        return new BoundSelect(checkNotNull(id));
+    }
+
+    public class BoundSelect {
+        private final K id;
+        private final Map<ColumnPredicate, ByteBuffer> values = Maps.newIdentityHashMap();
+
+        private BoundSelect(K id) {
+            this.id = id;
+        }
+
+        /**
+         * Binds the value of a parameter.
+         *
+         * @param parameter the parameter
+         * @param value the value
+         * @return the bound query
+         */
+        public <V> BoundSelect bind(Parameter<V> parameter, V value) {
+            List<ColumnPredicate> predicates = predicatesByParameter.get(parameter);
+            if (predicates.isEmpty()) {
+                throw new IllegalArgumentException("Parameter '" + parameter.getName() + "' is not used by the query");
+            }
+            for (ColumnPredicate predicate : predicates) {
+                values.put(predicate, parameterMappers.get(predicate).valueToByteBuffer(value));
+            }
+            return this;
+        }
+
+        /**
+         * Return a single entity.
+         *
+         * @return entity
+         */
+        public T fetchOne() throws PersistenceException {
+            return Iterables.getFirst(fetch(), null);
+        }
+
+        /**
+         * Return a collection of entities.
+         *
+         * @return entities
+         */
+        public List<T> fetch() throws PersistenceException {
+            return convertRowToEntities(execute(id, getFilter(values, false)), false);
+        }
+
+        /**
+         * Return a collection of entities that are each constructed from the fetched columns when first accessed.
+         *
+         * @return entities
+         * @see SelectQuery#fetchLazy()
+         */
+        public List<T> fetchLazy() throws PersistenceException {
+            return convertRowToEntities(execute(id, getFilter(values, false)), true);
+        }
+
+        /**
+         * Return a count of entities.
+         *
+         * @return count
+         */
+        public int count() throws PersistenceException {
+            return convertRowToCount(execute(id, getFilter(values, true)));
+        }
+
+        /**
+         * Return a collection of entities without blocking.
+         *
+         * @return a future for the entities
+         */
+        public CompletableFuture<List<T>> fetchAsync() {
+            return executeAsync(id, getFilter(values, false)).thenApply(row -> convertRowToEntities(row, false));
+        }
+
+        /**
+         * Return a count of entities without blocking.
+         *
+         * @return a future for the count
+         */
+        public CompletableFuture<Integer> countAsync() {
+            return executeAsync(id, getFilter(values, true)).thenApply(PreparedSelect::convertRowToCount);
+        }
+    }
+
+    /**
+     * Returns a new filter for the bound values, with its serialized form filled in from the template.
+     */
+    private EntityFilter<K> getFilter(Map<ColumnPredicate, ByteBuffer> values, boolean countOnly) {
+        if (values.size() != parameterMappers.size()) {
+            for (Map.Entry<Parameter<?>, ColumnPredicate> entry : predicatesByParameter.entries()) {
+                Preconditions.checkState(values.containsKey(entry.getValue()),
+                        "Parameter '" + entry.getKey().getName() + "' is not bound");
+            }
+        }
+        EntityFilter<K> prototype = countOnly ? countFilter : filter;
+        FilterTemplate template = countOnly ? countTemplate : this.template;
+        if (values.isEmpty()) {
+            return prototype.copy().setEncoded(template.fill(Collections.emptyMap()));
+        }
+        Map<Object, ByteBuffer> holeValues = Maps.newIdentityHashMap();
+        holeValues.putAll(values);
+        ByteBuffer start = prototype.start;
+        ByteBuffer end = prototype.end;
+        if (elementIdParameters) {
+            List<ColumnPredicate> elementIdPredicates = Lists.newArrayListWithExpectedSize(query.elementIdPredicates.size());
+            for (ColumnPredicate predicate : query.elementIdPredicates) {
+                elementIdPredicates.add(predicate.bind(values));
+            }
+            ByteBuffer[] endpoints = getEndpoints(elementIdPredicates);
+            start = endpoints[0];
+            end = endpoints[1];
+            holeValues.put(FilterTemplate.START, start);
+            holeValues.put(FilterTemplate.END, end);
+        }
+        QueryPredicate queryPredicate = prototype.queryPredicate != null ? prototype.queryPredicate.bind(values) : null;
+        return prototype.copyWith(start, end, queryPredicate).setEncoded(template.fill(holeValues));
+    }
+
+    private ByteBuffer[] getEndpoints(List<ColumnPredicate> elementIdPredicates) {
+        if (elementIdPredicates == null || elementIdPredicates.isEmpty()) {
+            return null;
+        }
+        return entityMapper.getQueryEndpoints(elementIdPredicates);
+    }
+
+    /**
+     * Reads the count computed on the server, which is returned as a single column.
+     */
+    private static int convertRowToCount(Row<?, byte[]> row) {
+        List<Column<byte[]>> columns = row.getColumns();
+        return !columns.isEmpty() ? EntityFilter.decodeCount(columns.get(0).getBytes()) : 0;
+    }
+
+    /**
+     * Reads the row with the given filter.
+     *
+     * @param id row key
+     * @param filter the entity filter
+     * @return the row
+     */
+    protected abstract Row<K, byte[]> execute(K id, EntityFilter<K> filter) throws PersistenceException;
+
+    /**
+     * Reads the row with the given filter without blocking.
+     *
+     * @param id row key
+     * @param filter the entity filter
+     * @return a future for the row
+     */
+    protected abstract CompletableFuture<Row<K, byte[]>> executeAsync(K id, EntityFilter<K> filter);
+
+    /**
+     * Converts the row to entities.
+     *
+     * @param row the row
+     * @param lazy whether to construct each entity when first accessed
+     * @return entities
+     */
+    protected abstract List<T> convertRowToEntities(Row<K, byte[]> row, boolean lazy);
+}
@@ -14,6 +14,17 @@ public abstract class QueryPredicate extends AbstractCodec<QueryPredicate> {
 
     public abstract boolean evaluate(Map<String, ByteBuffer> entity);
 
+    /**
+     * Returns this predicate with the values of the given column predicates replaced.  Predicates that are not
+     * changed are shared with the result.
+     *
+     * @param values the new values by column predicate
+     * @return the predicate
+     */
+    QueryPredicate bind(Map<ColumnPredicate, ByteBuffer> values) {
+        return this;
+    }
+
     @Override
     public void encode(QueryPredicate value, WriteBuffer buffer) {
         encode(buffer);
@@ -21,5 +32,14 @@ public abstract class QueryPredicate extends AbstractCodec<QueryPredicate> {
 
     public abstract void encode(WriteBuffer buffer);
 
+    /**
+     * Serializes this predicate as part of a filter template.
+     *
+     * @param template the template
+     */
+    void encode(FilterTemplate.Builder template) {
+        encode(template.getBuffer());
+    }
+
     public abstract QueryPredicate decode(ReadBuffer buffer);
 }
@@ -1,19 +1,37 @@
 package io.hentitydb.entity;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import io.hentitydb.store.CompareOp;
 import io.hentitydb.store.BooleanOp;
+import io.hentitydb.store.Row;
 
 import javax.persistence.PersistenceException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 public abstract class SelectQuery<T, K> {
     protected K id;
+    protected List<K> ids;
+    protected boolean idRange = false;
+    protected K startId;
+    protected K endId;
+    protected ExecutorService executor;
     protected String family;
     protected List<ColumnPredicate> elementIdPredicates;
     protected BooleanPredicate columnPredicate;
     protected int entityLimit = -1;
+    protected boolean tail = false;
+    protected ByteBuffer cursor;
+    protected Set<String> projection;
+    protected Map<ColumnPredicate, PreparedSelect.Parameter<?>> parameters;
 
     public SelectQuery<T, K> fromColumnFamily(String family) {
         this.family = family;
@@ -23,8 +41,47 @@ public abstract class SelectQuery<T, K> {
     public class SelectIdQuery {
         public SelectQuery<T, K> eq(K key) {
             id = key;
+            ids = null;
+            idRange = false;
             return SelectQuery.this;
         }
+
+        @SafeVarargs
+        public final SelectQuery<T, K> in(K... keys) {
+            return in(Arrays.asList(keys));
+        }
+
+        public SelectQuery<T, K> in(Collection<K> keys) {
+            id = null;
+            ids = Lists.newArrayList(keys);
+            idRange = false;
+            return SelectQuery.this;
+        }
+
+        /**
+         * Select the rows with keys in the range {@code [startKey, endKey]}, in storage order, with a scan.
+         * The entity filter is applied to each row on the server.
+         *
+         * @param startKey the first row key, or null to start at the first row
+         * @param endKey the last row key, or null to end at the last row
+         * @return the query
+         */
+        public SelectQuery<T, K> between(K startKey, K endKey) {
+            id = null;
+            ids = null;
+            idRange = true;
+            startId = startKey;
+            endId = endKey;
+            return SelectQuery.this;
+        }
+
+        public SelectQuery<T, K> gte(K startKey) {
+            return between(startKey, null);
+        }
+
+        public SelectQuery<T, K> lte(K endKey) {
+            return between(null, endKey);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -36,23 +93,23 @@ public abstract class SelectQuery<T, K> {
         }
 
         public SelectQuery<T, K> eq(Object value) {
-            return addElementIdPredicate(predicate.setOp(CompareOp.EQUAL).setValue(getRawValue(predicate.getName(), value, true)));
+            return addElementIdPredicate(predicate.setOp(CompareOp.EQUAL).setValue(toRawValue(predicate, value, true)));
         }
 
         public SelectQuery<T, K> gt(Object value) {
-            return addElementIdPredicate(predicate.setOp(CompareOp.GREATER_THAN).setValue(getRawValue(predicate.getName(), value, true)));
+            return addElementIdPredicate(predicate.setOp(CompareOp.GREATER_THAN).setValue(toRawValue(predicate, value, true)));
         }
 
         public SelectQuery<T, K> lt(Object value) {
-            return addElementIdPredicate(predicate.setOp(CompareOp.LESS_THAN).setValue(getRawValue(predicate.getName(), value, true)));
+            return addElementIdPredicate(predicate.setOp(CompareOp.LESS_THAN).setValue(toRawValue(predicate, value, true)));
         }
 
         public SelectQuery<T, K> gte(Object value) {
-            return addElementIdPredicate(predicate.setOp(CompareOp.GREATER_THAN_EQUAL).setValue(getRawValue(predicate.getName(), value, true)));
+            return addElementIdPredicate(predicate.setOp(CompareOp.GREATER_THAN_EQUAL).setValue(toRawValue(predicate, value, true)));
         }
 
         public SelectQuery<T, K> lte(Object value) {
-            return addElementIdPredicate(predicate.setOp(CompareOp.LESS_THAN_EQUAL).setValue(getRawValue(predicate.getName(), value, true)));
+            return addElementIdPredicate(predicate.setOp(CompareOp.LESS_THAN_EQUAL).setValue(toRawValue(predicate, value, true)));
         }
     }
 
@@ -64,28 +121,28 @@ public abstract class SelectQuery<T, K> {
         }
 
         public SelectQuery<T, K> eq(Object value) {
-            return addColumnPredicate(predicate.setOp(CompareOp.EQUAL).setValue(getRawValue(predicate.getName(), value, false)));
+            return addColumnPredicate(predicate.setOp(CompareOp.EQUAL).setValue(toRawValue(predicate, value, false)));
         }
 
         public SelectQuery<T, K> neq(Object value) {
             return addColumnPredicate(new BooleanPredicate().setOp(BooleanOp.NOT).addPredicate(
-                    predicate.setOp(CompareOp.EQUAL).setValue(getRawValue(predicate.getName(), value, false))));
+                    predicate.setOp(CompareOp.EQUAL).setValue(toRawValue(predicate, value, false))));
         }
 
         public SelectQuery<T, K> gt(Object value) {
-            return addColumnPredicate(predicate.setOp(CompareOp.GREATER_THAN).setValue(getRawValue(predicate.getName(), value, false)));
+            return addColumnPredicate(predicate.setOp(CompareOp.GREATER_THAN).setValue(toRawValue(predicate, value, false)));
         }
 
         public SelectQuery<T, K> lt(Object value) {
-            return addColumnPredicate(predicate.setOp(CompareOp.LESS_THAN).setValue(getRawValue(predicate.getName(), value, false)));
+            return addColumnPredicate(predicate.setOp(CompareOp.LESS_THAN).setValue(toRawValue(predicate, value, false)));
         }
 
         public SelectQuery<T, K> gte(Object value) {
-            return addColumnPredicate(predicate.setOp(CompareOp.GREATER_THAN_EQUAL).setValue(getRawValue(predicate.getName(), value, false)));
+            return addColumnPredicate(predicate.setOp(CompareOp.GREATER_THAN_EQUAL).setValue(toRawValue(predicate, value, false)));
         }
 
         public SelectQuery<T, K> lte(Object value) {
-            return addColumnPredicate(predicate.setOp(CompareOp.LESS_THAN_EQUAL).setValue(getRawValue(predicate.getName(), value, false)));
+            return addColumnPredicate(predicate.setOp(CompareOp.LESS_THAN_EQUAL).setValue(toRawValue(predicate, value, false)));
         }
 
         public SelectQuery<T, K> isNull() {
@@ -111,6 +168,45 @@ public abstract class SelectQuery<T, K> {
 
     public SelectQuery<T, K> limit(int entityLimit) {
         this.entityLimit = entityLimit;
+        this.tail = false;
+        return this;
+    }
+
+    /**
+     * Return only the last entities of each row, in storage order.  The trailing entities are
+     * selected on the server, so the rest of the row is not sent to the client.
+     *
+     * @param entityLimit the number of entities to return
+     * @return the query
+     */
+    public SelectQuery<T, K> last(int entityLimit) {
+        if (entityLimit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.entityLimit = entityLimit;
+        this.tail = true;
+        return this;
+    }
+
+    /**
+     * Use the given executor to scan the salt buckets of a range of row keys in parallel.
+     *
+     * @param executor the executor
+     * @return the query
+     */
+    public SelectQuery<T, K> withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Resume after the last entity of a previous page.
+     *
+     * @param cursor the cursor of the previous page, or null to start from the beginning of the row
+     * @return the query
+     */
+    public SelectQuery<T, K> after(String cursor) {
+        this.cursor = cursor != null ? EntityPage.decodeCursor(cursor) : null;
         return this;
     }
 
@@ -123,6 +219,21 @@ public abstract class SelectQuery<T, K> {
         return this;
     }
 
+    /**
+     * Encodes the value of the predicate, or records the predicate as taking its value from a parameter of
+     * a prepared select.
+     */
+    private ByteBuffer toRawValue(ColumnPredicate predicate, Object value, boolean isComponent) {
+        if (value instanceof PreparedSelect.Parameter) {
+            if (parameters == null) {
+                parameters = Maps.newIdentityHashMap();
+            }
+            parameters.put(predicate, (PreparedSelect.Parameter<?>) value);
+            return ByteBuffer.allocate(0);
+        }
+        return getRawValue(predicate.getName(), value, isComponent);
+    }
+
     public SelectQuery<T, K> addColumnPredicate(QueryPredicate predicate) {
         if (columnPredicate == null) {
             columnPredicate = new BooleanPredicate().setOp(BooleanOp.AND);
@@ -146,6 +257,47 @@ public abstract class SelectQuery<T, K> {
      */
     public abstract List<T> fetch() throws PersistenceException;
 
+    /**
+     * Return a collection of entities that are each constructed from the fetched columns when first accessed,
+     * so that callers that only inspect some of the results do not pay for decoding the rest.  The returned
+     * list is read-only and not thread-safe.
+     *
+     * @return entities
+     */
+    public abstract List<T> fetchLazy() throws PersistenceException;
+
+    /**
+     * Return the rows holding the selected entities, as returned by the store.
+     *
+     * @return rows
+     */
+    abstract List<Row<K, byte[]>> fetchRows() throws PersistenceException;
+
+    /**
+     * Return a new entity filter with the configuration of this query, for the given endpoints and column
+     * predicate.
+     *
+     * @param endpoints the raw element ID endpoints, or null to select all elements
+     * @param columnPredicate the column predicate, or null
+     * @param countOnly whether to only count the matching entities
+     * @return the filter
+     */
+    abstract EntityFilter<K> newFilter(ByteBuffer[] endpoints, BooleanPredicate columnPredicate, boolean countOnly);
+
+    /**
+     * Return the entities for each of the row keys, fetched in a single batch.
+     *
+     * @return entities by row key
+     */
+    public abstract Map<K, List<T>> fetchById() throws PersistenceException;
+
+    /**
+     * Return a page of at most {@code limit} entities, in storage order, along with the cursor for the next page.
+     *
+     * @return page of entities
+     */
+    public abstract EntityPage<T> fetchPage() throws PersistenceException;
+
     /**
      * Return a count of entities.
      *
@@ -153,5 +305,59 @@ public abstract class SelectQuery<T, K> {
      */
     public abstract int count() throws PersistenceException;
 
+    /**
+     * Return the count, sum, minimum, maximum and average of a numeric column over the matching entities.
+     * Partial aggregates are computed on the server, so the entities are not sent to the client.
+     *
+     * @param column the column to aggregate
+     * @return aggregate
+     */
+    public abstract EntityAggregate aggregate(String column) throws PersistenceException;
+
+    /**
+     * Return a single entity without blocking.
+     *
+     * @return a future for the entity
+     */
+    public CompletableFuture<T> fetchOneAsync() {
+        return fetchAsync().thenApply(entities -> Iterables.getFirst(entities, null));
+    }
+
+    /**
+     * Return a collection of entities without blocking.
+     *
+     * @return a future for the entities
+     */
+    public abstract CompletableFuture<List<T>> fetchAsync();
+
+    /**
+     * Return the entities for each of the row keys, fetched in a single batch, without blocking.
+     *
+     * @return a future for the entities by row key
+     */
+    public abstract CompletableFuture<Map<K, List<T>>> fetchByIdAsync();
+
+    /**
+     * Return a page of at most {@code limit} entities without blocking.
+     *
+     * @return a future for the page of entities
+     */
+    public abstract CompletableFuture<EntityPage<T>> fetchPageAsync();
+
+    /**
+     * Return a count of entities without blocking.
+     *
+     * @return a future for the count
+     */
+    public abstract CompletableFuture<Integer> countAsync();
+
+    /**
+     * Return the aggregate of a numeric column over the matching entities without blocking.
+     *
+     * @param column the column to aggregate
+     * @return a future for the aggregate
+     */
+    public abstract CompletableFuture<EntityAggregate> aggregateAsync(String column);
+
     protected abstract ByteBuffer getRawValue(String name, Object value, boolean isComponent);
 }
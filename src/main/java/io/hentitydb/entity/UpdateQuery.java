@@ -7,6 +7,7 @@ import io.hentitydb.store.Table;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class UpdateQuery<T, K> implements MutationQuery<T, K> {
     protected String family;
@@ -140,5 +141,7 @@ public abstract class UpdateQuery<T, K> implements MutationQuery<T, K> {
 
     public abstract boolean execute();
 
+    public abstract CompletableFuture<Boolean> executeAsync();
+
     protected abstract ByteBuffer getRawValue(String name, Object value, boolean isComponent);
 }
@@ -1,13 +1,71 @@
 package io.hentitydb.serialization;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
 
 /**
- * A {@link Codec} implementation which stores Class names.
+ * A {@link Codec} implementation which stores Class names.  Optionally, the built-in filters, predicates, and
+ * codecs are stored as a varint type ID instead, which takes one byte for each built-in class, with other classes
+ * stored as a zero type ID followed by the name.
  */
 public class ClassCodec extends AbstractCodec<Class> {
 
+    /**
+     * Built-in classes that are stored by type ID.  The type ID is the position in this list plus one, so new
+     * classes must only be appended.
+     */
+    private final static List<String> REGISTERED_CLASS_NAMES = ImmutableList.of(
+            "io.hentitydb.entity.EntityFilter",
+            "io.hentitydb.entity.EntityBoundedFilter",
+            "io.hentitydb.entity.ColumnPredicate",
+            "io.hentitydb.entity.BooleanPredicate",
+            "io.hentitydb.store.ColumnCountGetFilter",
+            CodecCodec.class.getName(),
+            VarLengthCodecCodec.class.getName(),
+            SaltingCodecCodec.class.getName(),
+            EnumCodecCodec.class.getName(),
+            BigDecimalCodec.class.getName(),
+            BooleanCodec.class.getName(),
+            ByteArrayCodec.class.getName(),
+            ByteBufferCodec.class.getName(),
+            ByteCodec.class.getName(),
+            DateCodec.class.getName(),
+            DoubleCodec.class.getName(),
+            FloatCodec.class.getName(),
+            IntCodec.class.getName(),
+            InvertedIntCodec.class.getName(),
+            InvertedLongCodec.class.getName(),
+            LongCodec.class.getName(),
+            ShortCodec.class.getName(),
+            StringCodec.class.getName(),
+            UUIDCodec.class.getName(),
+            VarIntCodec.class.getName(),
+            VarLongCodec.class.getName(),
+            VarIntArrayCodec.class.getName(),
+            VarLongArrayCodec.class.getName());
+
+    private final static Map<String, Integer> TYPE_IDS = Maps.newHashMap();
+    private final static Class[] REGISTERED_CLASSES = new Class[REGISTERED_CLASS_NAMES.size() + 1];
+
+    static {
+        for (int i = 0; i < REGISTERED_CLASS_NAMES.size(); i++) {
+            String className = REGISTERED_CLASS_NAMES.get(i);
+            TYPE_IDS.put(className, i + 1);
+            // the built-in classes are loaded with this class, and are initialized on first use
+            try {
+                REGISTERED_CLASSES[i + 1] = Class.forName(className, false, ClassCodec.class.getClassLoader());
+            } catch (ClassNotFoundException cnfe) {
+                throw new ExceptionInInitializerError(cnfe);
+            }
+        }
+    }
+
     private ClassLoader classLoader;
+    private boolean typeIds = false;
 
     public ClassCodec() {
     }
@@ -16,13 +74,37 @@ public class ClassCodec extends AbstractCodec<Class> {
         this.classLoader = classLoader;
     }
 
+    /**
+     * Creates a class codec.
+     *
+     * @param classLoader the class loader for classes stored by name, or null for the default
+     * @param typeIds whether to store built-in classes by type ID
+     */
+    public ClassCodec(ClassLoader classLoader, boolean typeIds) {
+        this.classLoader = classLoader;
+        this.typeIds = typeIds;
+    }
+
     @Override
     public void encode(Class value, WriteBuffer buffer) {
+        if (typeIds) {
+            Integer typeId = TYPE_IDS.get(value.getName());
+            buffer.writeVarInt(typeId != null ? typeId : 0);
+            if (typeId != null) {
+                return;
+            }
+        }
         buffer.writeUtf8String(value.getName());
     }
 
     @Override
     public Class decode(ReadBuffer buffer) {
+        if (typeIds) {
+            int typeId = buffer.readVarInt();
+            if (typeId != 0) {
+                return getRegisteredClass(typeId);
+            }
+        }
         String className = buffer.readUtf8String();
         try {
             return classLoader != null ? Class.forName(className, true, classLoader) : Class.forName(className);
@@ -30,4 +112,11 @@ public class ClassCodec extends AbstractCodec<Class> {
             throw Throwables.propagate(cnfe);
         }
     }
+
+    private static Class getRegisteredClass(int typeId) {
+        if (typeId < 0 || typeId > REGISTERED_CLASS_NAMES.size()) {
+            throw new IllegalArgumentException("Unknown type ID " + typeId);
+        }
+        return REGISTERED_CLASSES[typeId];
+    }
 }
@@ -46,6 +46,18 @@ public interface Codec<T> {
      */
     T decode(byte[] bytes);
 
+    /**
+     * Decodes a value from a slice of the given byte array, without copying it.
+     *
+     * @param bytes a byte array containing the encoded form
+     * @param offset the index of the first byte of the encoded form
+     * @param length the length of the encoded form
+     * @return the decoded instance
+     */
+    default T decode(byte[] bytes, int offset, int length) {
+        return decode(new ReadBuffer(bytes, offset, length));
+    }
+
     /**
      * Returns a codec to serialize and deserialize this codec.
      *
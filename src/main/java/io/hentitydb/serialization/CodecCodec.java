@@ -6,18 +6,18 @@ import com.google.common.base.Throwables;
  * A {@link Codec} implementation which stores {@link Codec}s.
  */
 public class CodecCodec<T> extends AbstractCodec<Codec<T>> {
+    private final static ClassCodec CLASS_CODEC = new ClassCodec(null, true);
+
     @Override
     public void encode(Codec<T> value, WriteBuffer buffer) {
-        ClassCodec classCodec = new ClassCodec();
-        classCodec.encode(value.getClass(), buffer);
+        CLASS_CODEC.encode(value.getClass(), buffer);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public Codec<T> decode(ReadBuffer buffer) {
         try {
-            ClassCodec classCodec = new ClassCodec();
-            final Class cls = classCodec.decode(buffer);
+            final Class cls = CLASS_CODEC.decode(buffer);
             return (Codec<T>)cls.newInstance();
         } catch (Exception e) {
             throw Throwables.propagate(e);
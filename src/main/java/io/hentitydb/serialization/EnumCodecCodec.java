@@ -6,11 +6,11 @@ import javax.persistence.EnumType;
  * A {@link Codec} implementation which stores {@link EnumCodec}s.
  */
 public class EnumCodecCodec<T extends Enum<T>> extends AbstractCodec<EnumCodec<T>> {
-    private final static ClassCodec CLASS_CODEC = new ClassCodec();
+    private final static ClassCodec CLASS_CODEC = new ClassCodec(null, true);
 
     @Override
     public void encode(EnumCodec<T> value, WriteBuffer buffer) {
-        CLASS_CODEC.encode(value.getEnumClass());
+        CLASS_CODEC.encode(value.getEnumClass(), buffer);
         buffer.writeByte(value.getEnumType() == EnumType.ORDINAL ? 1 : 0);
     }
 
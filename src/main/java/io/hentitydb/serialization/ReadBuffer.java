@@ -9,6 +9,7 @@ import static java.lang.System.arraycopy;
  */
 public class ReadBuffer {
     private final byte[] buf;
+    private final int limit;
     private int pos;
 
     /**
@@ -17,8 +18,20 @@ public class ReadBuffer {
      * @param buf an array of bytes
      */
     public ReadBuffer(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    /**
+     * Creates a new read buffer for a slice of a byte array, without copying it.
+     *
+     * @param buf an array of bytes
+     * @param offset the index of the first byte to read
+     * @param length the number of bytes that may be read
+     */
+    public ReadBuffer(byte[] buf, int offset, int length) {
         this.buf = buf;
-        this.pos = 0;
+        this.limit = offset + length;
+        this.pos = offset;
     }
 
     protected byte[] getRawBytes() {
@@ -32,7 +45,7 @@ public class ReadBuffer {
      * @return a byte array filled with {@code count} bytes from the buffer
      */
     public byte[] readBytes(int count) {
-        final int len = Math.min(count, buf.length - pos);
+        final int len = Math.min(count, limit - pos);
         final byte[] bytes = new byte[len];
         arraycopy(buf, pos, bytes, 0, len);
         pos += len;
@@ -45,7 +58,7 @@ public class ReadBuffer {
      * @return a byte array filled with bytes from the buffer
      */
     public byte[] readBytes() {
-        return readBytes(buf.length - pos);
+        return readBytes(limit - pos);
     }
 
     /**
@@ -80,6 +93,7 @@ public class ReadBuffer {
      * @return a single byte
      */
     public byte readByte() {
+        checkRemaining(1);
         return buf[pos++];
     }
 
@@ -89,6 +103,7 @@ public class ReadBuffer {
      * @return a 16-bit, signed integer
      */
     public short readShort() {
+        checkRemaining(2);
         return (short) ((((int) buf[pos++] & 0xFF) << 8) +
                          ((int) buf[pos++] & 0xFF));
     }
@@ -99,6 +114,7 @@ public class ReadBuffer {
      * @return a 32-bit, signed integer
      */
     public int readInt() {
+        checkRemaining(4);
         return ((buf[pos++] & 0xFF) << 24) +
                 ((buf[pos++] & 0xFF) << 16) +
                 ((buf[pos++] & 0xFF) << 8) +
@@ -111,6 +127,7 @@ public class ReadBuffer {
      * @return a 64-bit, signed integer
      */
     public long readLong() {
+        checkRemaining(8);
         return ((long) (buf[pos++] & 0xFF) << 56) +
                 ((long) (buf[pos++] & 0xFF) << 48) +
                 ((long) (buf[pos++] & 0xFF) << 40) +
@@ -127,19 +144,19 @@ public class ReadBuffer {
      * @return a 32-bit, signed integer
      */
     public int readVarInt() {
-        int b = buf[pos++] & 0xff;
+        int b = nextByte();
         int n = b & 0x7f;
         if (b > 0x7f) {
-            b = buf[pos++] & 0xff;
+            b = nextByte();
             n ^= (b & 0x7f) << 7;
             if (b > 0x7f) {
-                b = buf[pos++] & 0xff;
+                b = nextByte();
                 n ^= (b & 0x7f) << 14;
                 if (b > 0x7f) {
-                    b = buf[pos++] & 0xff;
+                    b = nextByte();
                     n ^= (b & 0x7f) << 21;
                     if (b > 0x7f) {
-                        b = buf[pos++] & 0xff;
+                        b = nextByte();
                         n ^= (b & 0x7f) << 28;
                     }
                     if (b > 0x7f) {
@@ -157,34 +174,34 @@ public class ReadBuffer {
      * @return a 64-bit, signed integer
      */
     public long readVarLong() {
-        long b = buf[pos++] & 0xff;
+        long b = nextByte();
         long n = b & 0x7f;
         if (b > 0x7f) {
-            b = buf[pos++] & 0xff;
+            b = nextByte();
             n ^= (b & 0x7f) << 7;
             if (b > 0x7f) {
-                b = buf[pos++] & 0xff;
+                b = nextByte();
                 n ^= (b & 0x7f) << 14;
                 if (b > 0x7f) {
-                    b = buf[pos++] & 0xff;
+                    b = nextByte();
                     n ^= (b & 0x7f) << 21;
                     if (b > 0x7f) {
-                        b = buf[pos++] & 0xff;
+                        b = nextByte();
                         n ^= (b & 0x7f) << 28;
                         if (b > 0x7f) {
-                            b = buf[pos++] & 0xff;
+                            b = nextByte();
                             n ^= (b & 0x7f) << 35;
                             if (b > 0x7f) {
-                                b = buf[pos++] & 0xff;
+                                b = nextByte();
                                 n ^= (b & 0x7f) << 42;
                                 if (b > 0x7f) {
-                                    b = buf[pos++] & 0xff;
+                                    b = nextByte();
                                     n ^= (b & 0x7f) << 49;
                                     if (b > 0x7f) {
-                                        b = buf[pos++] & 0xff;
+                                        b = nextByte();
                                         n ^= (b & 0x7f) << 56;
                                         if (b > 0x7f) {
-                                            b = buf[pos++] & 0xff;
+                                            b = nextByte();
                                             n ^= (b & 0x7f) << 63;
                                             if (b > 0x7f) {
                                                 throw new RuntimeException("Invalid int encoding");
@@ -201,6 +218,20 @@ public class ReadBuffer {
         return (n >>> 1) ^ -(n & 1); // back to two's-complement
     }
 
+    private int nextByte() {
+        checkRemaining(1);
+        return buf[pos++] & 0xff;
+    }
+
+    /**
+     * Checks that the given number of bytes may be read, as the array may extend past the end of the buffer.
+     */
+    private void checkRemaining(int count) {
+        if (count > limit - pos) {
+            throw new IndexOutOfBoundsException("Cannot read " + count + " bytes at " + pos + " past " + limit);
+        }
+    }
+
     /**
      * Reads a 32-bit floating-point number.
      *
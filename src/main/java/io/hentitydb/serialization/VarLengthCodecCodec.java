@@ -6,11 +6,12 @@ import com.google.common.base.Throwables;
  * A {@link Codec} implementation which stores {@link VarLengthCodec}s.
  */
 public class VarLengthCodecCodec<T> extends AbstractCodec<Codec<T>> {
+    private final static ClassCodec CLASS_CODEC = new ClassCodec(null, true);
+
     @Override
     public void encode(Codec<T> value, WriteBuffer buffer) {
         VarLengthCodec<T> codec = (VarLengthCodec<T>)value;
-        ClassCodec classCodec = new ClassCodec();
-        classCodec.encode(codec.getClass(), buffer);
+        CLASS_CODEC.encode(codec.getClass(), buffer);
         buffer.writeByte(codec.getEncodeLength() ? 1 : 0);
     }
 
@@ -18,8 +19,7 @@ public class VarLengthCodecCodec<T> extends AbstractCodec<Codec<T>> {
     @SuppressWarnings("unchecked")
     public VarLengthCodec<T> decode(ReadBuffer buffer) {
         try {
-            ClassCodec classCodec = new ClassCodec();
-            final Class<VarLengthCodec<T>> cls = classCodec.decode(buffer);
+            final Class<VarLengthCodec<T>> cls = CLASS_CODEC.decode(buffer);
             final boolean encodeLength = buffer.readByte() == 1;
             return cls.getConstructor(boolean.class).newInstance(encodeLength);
         } catch (Exception e) {
@@ -19,6 +19,11 @@ public abstract class AbstractFilter<K, C> extends AbstractCodec<Filter<K, C>> i
         return false;
     }
 
+    @Override
+    public C getNextColumnHint(KeyColumn<K, C> keyColumn) {
+        return null;
+    }
+
     @Override
     public byte[] transformKeyColumn(KeyColumn<K, C> keyColumn) {
         return null;
@@ -34,6 +39,11 @@ public abstract class AbstractFilter<K, C> extends AbstractCodec<Filter<K, C>> i
         return Collections.emptySet();
     }
 
+    @Override
+    public byte[] summarizeRow() {
+        return null;
+    }
+
     @Override
     public void encode(Filter<K, C> value, WriteBuffer buffer) {
     }
@@ -1,6 +1,7 @@
 package io.hentitydb.store;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface BatchMutation<K, C> {
 
@@ -24,4 +25,11 @@ public interface BatchMutation<K, C> {
      * Executes a batch of row mutations.
      */
     void execute();
+
+    /**
+     * Executes a batch of row mutations without blocking.
+     *
+     * @return a future that completes when all mutations have been applied
+     */
+    CompletableFuture<Void> executeAsync();
 }
@@ -1,6 +1,7 @@
 package io.hentitydb.store;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface BatchOperation<K, C> {
 
@@ -23,11 +24,21 @@ public interface BatchOperation<K, C> {
     /**
      * Executes a batch of row operations.
      *
-     * Each result will either be null if the operation failed to communicate with the server, an empty row for
-     * put and delete operations, a valid row for get operations, or an exception returned by the server.
+     * Each result will either be an empty row for put and delete operations, a valid row for get operations, or
+     * the exception with which the operation failed.  The failure of some operations does not fail the batch.
      *
      * @return the results of the operations
      *
      */
     Object[] execute();
+
+    /**
+     * Executes a batch of row operations without blocking.
+     *
+     * As with {@link #execute()}, the failure of some operations does not fail the batch, but is reported in their
+     * results.
+     *
+     * @return a future for the results of the operations
+     */
+    CompletableFuture<Object[]> executeAsync();
 }
@@ -0,0 +1,46 @@
+package io.hentitydb.store;
+
+public interface BufferedMutator<K, C> extends AutoCloseable {
+
+    /**
+     * Adds a put or delete to the write buffer.  The buffer is sent to the server when it is full,
+     * when the flush interval elapses, or when it is explicitly flushed.
+     *
+     * @param rowMutation a put or delete
+     */
+    void mutate(RowMutation<K, C> rowMutation);
+
+    /**
+     * Whether a mutation of the given row may still be in the write buffer.
+     *
+     * @param key the row key
+     * @return true if a mutation of the row has not yet been successfully flushed
+     */
+    boolean isPending(K key);
+
+    /**
+     * Sends all buffered mutations to the server, and waits for them to complete.
+     */
+    void flush();
+
+    /**
+     * Flushes the buffered mutations and releases the mutator.
+     */
+    @Override
+    void close();
+
+    /**
+     * Receives the mutations that failed after being sent to the server.
+     */
+    @FunctionalInterface
+    interface ErrorListener<K> {
+
+        /**
+         * Called once for each failed mutation.
+         *
+         * @param key the row key of the failed mutation
+         * @param cause the failure
+         */
+        void onError(K key, Throwable cause);
+    }
+}
@@ -0,0 +1,50 @@
+package io.hentitydb.store;
+
+public class BufferedMutatorParams<K> {
+
+    private long writeBufferSize = 0;
+    private long flushIntervalMs = 0;
+    private BufferedMutator.ErrorListener<K> errorListener;
+
+    /**
+     * Returns the size of the write buffer in bytes.
+     *
+     * @return the write buffer size, or 0 for the HBase client default
+     */
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public BufferedMutatorParams<K> setWriteBufferSize(long writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+        return this;
+    }
+
+    /**
+     * Returns the maximum time a mutation stays in the write buffer before it is flushed.
+     *
+     * @return the flush interval in milliseconds, or 0 if the buffer is not periodically flushed
+     */
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public BufferedMutatorParams<K> setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+        return this;
+    }
+
+    /**
+     * Returns the listener for failed mutations.
+     *
+     * @return the listener, or null if failures are thrown from the next flush or mutation
+     */
+    public BufferedMutator.ErrorListener<K> getErrorListener() {
+        return errorListener;
+    }
+
+    public BufferedMutatorParams<K> setErrorListener(BufferedMutator.ErrorListener<K> errorListener) {
+        this.errorListener = errorListener;
+        return this;
+    }
+}
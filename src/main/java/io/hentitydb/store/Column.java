@@ -2,6 +2,8 @@ package io.hentitydb.store;
 
 import io.hentitydb.serialization.Codec;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 public interface Column<C> {
@@ -20,6 +22,16 @@ public interface Column<C> {
      */
     String getFamily();
 
+    /**
+     * Returns a view of the raw bytes of the column family name, which may share the storage of the column and
+     * must not be modified.
+     *
+     * @return the column family as a buffer
+     */
+    default ByteBuffer getRawFamilyBuffer() {
+        return ByteBuffer.wrap(getFamily().getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Returns the name of the column.
      *
@@ -34,6 +46,16 @@ public interface Column<C> {
      */
     byte[] getRawName();
 
+    /**
+     * Returns a view of the raw bytes of the column name, which may share the storage of the column and must not
+     * be modified.
+     *
+     * @return the column name as a buffer
+     */
+    default ByteBuffer getRawNameBuffer() {
+        return ByteBuffer.wrap(getRawName());
+    }
+
     /**
      * Returns the column value as a boolean.
      *
@@ -90,6 +112,15 @@ public interface Column<C> {
      */
     byte[] getBytes();
 
+    /**
+     * Returns a view of the column value, which may share the storage of the column and must not be modified.
+     *
+     * @return the column value as a buffer
+     */
+    default ByteBuffer getValueBuffer() {
+        return ByteBuffer.wrap(getBytes());
+    }
+
     /**
      * Returns the column value as a String.
      *
@@ -112,4 +143,14 @@ public interface Column<C> {
      * @return the column timestamp
      */
     long getTimestamp();
+
+    /**
+     * Returns a copy of the column that does not share the storage of the column, so that it can be held after
+     * the storage is released.  Columns that own their storage may return themselves.
+     *
+     * @return the copy
+     */
+    default Column<C> copy() {
+        return this;
+    }
 }
@@ -39,6 +39,11 @@ public class ColumnCountGetFilter<K, C> extends AbstractFilter<K, C> {
         count = 0;
     }
 
+    @Override
+    public Filter<K, C> copy() {
+        return new ColumnCountGetFilter<>(limit);
+    }
+
     @Override
     public void encode(Filter<K, C> value, WriteBuffer buffer) {
         buffer.writeVarInt(limit);
@@ -1,5 +1,7 @@
 package io.hentitydb.store;
 
+import java.util.concurrent.Executor;
+
 public interface Connection extends AutoCloseable {
 
     /**
@@ -19,4 +21,24 @@ public interface Connection extends AutoCloseable {
      *
      */
     <K, C> Table<K, C> getTable(TableName tableName);
+
+    /**
+     * Returns a new buffered mutator for the table with the given name.  The mutator is thread-safe,
+     * and must be closed to flush the remaining mutations.
+     *
+     * @param <K> the row key type
+     * @param <C> the column type
+     * @param tableName the table name
+     * @param params the write buffer parameters
+     * @return the buffered mutator
+     */
+    <K, C> BufferedMutator<K, C> getBufferedMutator(TableName tableName, BufferedMutatorParams<K> params);
+
+    /**
+     * Returns the executor owned by the connection for running operations that block, such as scans, on behalf
+     * of callers that must not block.  The executor is shut down when the connection is closed.
+     *
+     * @return the executor
+     */
+    Executor getBlockingExecutor();
 }
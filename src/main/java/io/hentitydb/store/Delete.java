@@ -26,6 +26,16 @@ public interface Delete<K, C> extends RowMutation<K, C> {
      */
     Delete<K, C> addColumn(String family, C column);
 
+    /**
+     * Deletes a single version of a column for this row.
+     *
+     * @param family the column family
+     * @param column the column to delete
+     * @param timestamp the timestamp of the version
+     * @return the delete operation
+     */
+    Delete<K, C> addColumnVersion(String family, C column, long timestamp);
+
     /**
      * Deletes all columns for a family for this row.
      *
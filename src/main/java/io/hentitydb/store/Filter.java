@@ -19,6 +19,15 @@ public interface Filter<K, C> extends Codec<Filter<K, C>> {
      */
     boolean ignoreRemainingRow();
 
+    /**
+     * Gives the filter a chance to seek past the given column.  If a hint is returned, the column is skipped and
+     * filtering resumes at the first column that is greater than or equal to the hint.
+     *
+     * @param keyColumn the key column
+     * @return the column to seek to, or null if the column should be filtered
+     */
+    C getNextColumnHint(KeyColumn<K, C> keyColumn);
+
     /**
      * Determines whether the value should be included in the result.
      *
@@ -49,4 +58,32 @@ public interface Filter<K, C> extends Codec<Filter<K, C>> {
      * @return the indexes of the key columns to keep
      */
     Set<Integer> filterRow(List<KeyColumn<K, C>> columns);
+
+    /**
+     * Gives the filter a chance to replace the columns kept by filterRow with a single column that summarizes
+     * the row, such as a count.  The summary column has the name of the first kept column.
+     *
+     * @return the value of the summary column, or null if the kept columns should be returned
+     */
+    byte[] summarizeRow();
+
+    /**
+     * Returns the columns to return for the row in place of the columns kept by {@link #filterRow(List)}, for a
+     * filter that holds copies of the columns it returns rather than having them included as they are seen.
+     *
+     * @return the columns, or null to return the kept columns
+     */
+    default List<Column<C>> getRowColumns() {
+        return null;
+    }
+
+    /**
+     * Returns a new filter with the same configuration and no row state, so that a decoded filter can be reused
+     * as a prototype for later requests with the same serialized form.
+     *
+     * @return the copy, or null if the filter cannot be copied
+     */
+    default Filter<K, C> copy() {
+        return null;
+    }
 }
@@ -1,5 +1,7 @@
 package io.hentitydb.store;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface Get<K, C> extends RowOperation<K, C> {
 
     /**
@@ -117,4 +119,11 @@ public interface Get<K, C> extends RowOperation<K, C> {
      * @return the resulting row
      */
     Row<K, C> execute();
+
+    /**
+     * Executes the get operation without blocking.
+     *
+     * @return a future for the resulting row
+     */
+    CompletableFuture<Row<K, C>> executeAsync();
 }
@@ -2,15 +2,35 @@ package io.hentitydb.store;
 
 import io.hentitydb.serialization.Codec;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public class KeyColumn<K, C> {
 
     private final Codec<K> keyCodec;
     private final byte[] rawKey;
+    private final int keyOffset;
+    private final int keyLength;
     private final Column<C> column;
 
     public KeyColumn(Codec<K> keyCodec, byte[] rawKey, Column<C> column) {
+        this(keyCodec, rawKey, 0, rawKey.length, column);
+    }
+
+    /**
+     * Creates a key column whose row key is a slice of the given array, which is not copied.
+     *
+     * @param keyCodec the key codec
+     * @param rawKey the array containing the row key
+     * @param keyOffset the index of the first byte of the row key
+     * @param keyLength the length of the row key
+     * @param column the column
+     */
+    public KeyColumn(Codec<K> keyCodec, byte[] rawKey, int keyOffset, int keyLength, Column<C> column) {
         this.keyCodec = keyCodec;
         this.rawKey = rawKey;
+        this.keyOffset = keyOffset;
+        this.keyLength = keyLength;
         this.column = column;
     }
 
@@ -29,7 +49,7 @@ public class KeyColumn<K, C> {
      * @return the row key
      */
     public K getKey() {
-        return keyCodec.decode(rawKey);
+        return keyCodec.decode(rawKey, keyOffset, keyLength);
     }
 
     /**
@@ -38,7 +58,19 @@ public class KeyColumn<K, C> {
      * @return the row key as bytes
      */
     public byte[] getRawKey() {
-        return rawKey;
+        return keyOffset == 0 && keyLength == rawKey.length
+                ? rawKey
+                : Arrays.copyOfRange(rawKey, keyOffset, keyOffset + keyLength);
+    }
+
+    /**
+     * Returns a view of the raw bytes of the row key, which may share the storage of the key column and must not
+     * be modified.
+     *
+     * @return the row key as a buffer
+     */
+    public ByteBuffer getRawKeyBuffer() {
+        return ByteBuffer.wrap(rawKey, keyOffset, keyLength).slice();
     }
 
     /**
@@ -158,6 +158,17 @@ public interface Put<K, C> extends RowMutation<K, C> {
      */
     Put<K, C> addColumn(String family, C column, byte[] value);
 
+    /**
+     * Specifies a version of a column to be set as a byte array.
+     *
+     * @param family the column family
+     * @param column the column name
+     * @param timestamp the timestamp of the version
+     * @param value the value to set
+     * @return the put operation
+     */
+    Put<K, C> addColumnVersion(String family, C column, long timestamp, byte[] value);
+
     /**
      * Specifies a column to be set as a String.
      *
@@ -3,6 +3,7 @@ package io.hentitydb.store;
 import io.hentitydb.serialization.Codec;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 public interface RowMutation<K, C> extends RowOperation<K, C> {
 
@@ -11,6 +12,33 @@ public interface RowMutation<K, C> extends RowOperation<K, C> {
      */
     void execute();
 
+    /**
+     * Executes the row mutation without blocking.
+     *
+     * @return a future that completes when the mutation has been applied
+     */
+    CompletableFuture<Void> executeAsync();
+
+    /**
+     * Executes the row mutation without blocking, only if the given column does not exist.
+     *
+     * @param family the column family
+     * @param column the column name
+     * @return a future for whether the mutation was applied
+     */
+    CompletableFuture<Boolean> executeIfAbsentAsync(String family, C column);
+
+    /**
+     * Executes the row mutation without blocking, only if the given column equals the given value.
+     *
+     * @param family the column family
+     * @param column the column name
+     * @param compareOp the comparison operator
+     * @param value the value to check
+     * @return a future for whether the mutation was applied
+     */
+    CompletableFuture<Boolean> executeIfAsync(String family, C column, CompareOp compareOp, byte[] value);
+
     /**
      * Executes the row mutation only if the given column does not exist.
      *
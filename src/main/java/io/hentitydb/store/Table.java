@@ -39,6 +39,15 @@ public interface Table<K, C> extends AutoCloseable {
     @VisibleForTesting
     RowScanner<K, C> getAll();
 
+    /**
+     * Scans over all rows.
+     *
+     * @param caching the number of rows to fetch per round trip, or 0 for the default
+     * @param batch   the maximum number of columns to return per partial row, or 0 for whole rows
+     * @return the row scanner for all rows
+     */
+    RowScanner<K, C> scanAll(int caching, int batch);
+
     /**
      * Creates an executable increment operation.
      *
@@ -133,6 +142,23 @@ public interface Table<K, C> extends AutoCloseable {
                           Filter<K, C> filter,
                           ExecutorService executor);
 
+    /**
+     * Scans over all entries in the range {@code [startKey, endKey]}, applying the filter to the columns of
+     * each row as a get would, rather than to the row as a whole.  Rows with no remaining columns are skipped.
+     *
+     * @param startKey    the first key in the range to scan, or null to start at the first row
+     * @param endKey      the last key in the range to scan, or null to end at the last row
+     * @param family      the column family to scan, or null to scan all families
+     * @param filter      a column filter to apply
+     * @param executor    an executor for parallel scans, if supported
+     * @return a {@link RowScanner} for the given range
+     */
+    RowScanner<K, C> scanColumns(K startKey,
+                                 K endKey,
+                                 String family,
+                                 Filter<K, C> filter,
+                                 ExecutorService executor);
+
     /**
      * Scans in reverse over all entries in the range {@code [startKey, endKey]}.
      *
@@ -5,6 +5,7 @@ import io.hentitydb.store.BatchMutation;
 import io.hentitydb.store.RowMutation;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class HBaseBatchMutation<K, C> implements BatchMutation<K, C> {
 
@@ -31,4 +32,9 @@ public class HBaseBatchMutation<K, C> implements BatchMutation<K, C> {
     public void execute() {
         table.doBatchMutations(mutations);
     }
+
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return table.doBatchMutationsAsync(mutations);
+    }
 }
@@ -5,6 +5,7 @@ import io.hentitydb.store.BatchOperation;
 import io.hentitydb.store.RowOperation;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class HBaseBatchOperation<K, C> implements BatchOperation<K, C> {
 
@@ -31,4 +32,9 @@ public class HBaseBatchOperation<K, C> implements BatchOperation<K, C> {
     public Object[] execute() {
         return table.doBatchOperations(operations);
     }
+
+    @Override
+    public CompletableFuture<Object[]> executeAsync() {
+        return table.doBatchOperationsAsync(operations);
+    }
 }
@@ -0,0 +1,186 @@
+package io.hentitydb.store.hbase;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.hentitydb.store.BufferedMutator;
+import io.hentitydb.store.BufferedMutatorParams;
+import io.hentitydb.store.RowMutation;
+import io.hentitydb.store.TableMetadata;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A buffered mutator that tracks the rows in its write buffer.  The HBase mutator does not report when it
+ * flushes on its own, so this mutator flushes it instead, both when the buffer is full and when the flush
+ * interval elapses.  The keys of each flushed batch remain pending until the flush succeeds.
+ */
+public class HBaseBufferedMutator<K, C> implements BufferedMutator<K, C> {
+    private static final Logger LOG = LoggerFactory.getLogger(HBaseBufferedMutator.class);
+
+    private static final String WRITE_BUFFER_SIZE_KEY = "hbase.client.write.buffer";
+    private static final long DEFAULT_WRITE_BUFFER_SIZE = 2097152L;
+
+    private final TableMetadata<K, C> metadata;
+    private final org.apache.hadoop.hbase.client.BufferedMutator hmutator;
+    private final long writeBufferSize;
+    private final AtomicLong bufferedSize = new AtomicLong();
+    // held shared while adding to the buffer, and exclusively while starting a flush
+    private final ReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private volatile Set<ByteBuffer> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final List<Set<ByteBuffer>> flushingKeys = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Creates a new {@link HBaseBufferedMutator}.
+     *
+     * @param conn the connection
+     * @param metadata the table metadata
+     * @param params the write buffer parameters
+     */
+    public HBaseBufferedMutator(HBaseConnection conn,
+                                TableMetadata<K, C> metadata,
+                                BufferedMutatorParams<K> params) {
+        try {
+            this.metadata = metadata;
+            this.writeBufferSize = params.getWriteBufferSize() > 0
+                    ? params.getWriteBufferSize()
+                    : conn.getConnectionFactory().getConfiguration().getHConfiguration()
+                    .getLong(WRITE_BUFFER_SIZE_KEY, DEFAULT_WRITE_BUFFER_SIZE);
+            this.hmutator = conn.getHBufferedMutator(metadata, toHParams(conn, params));
+            if (params.getFlushIntervalMs() > 0) {
+                flusher = Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("buffered-mutator-%d").build());
+                flusher.scheduleWithFixedDelay(() -> {
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        LOG.warn("Periodic flush failed", e);
+                    }
+                }, params.getFlushIntervalMs(), params.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private org.apache.hadoop.hbase.client.BufferedMutatorParams toHParams(HBaseConnection conn,
+                                                                            BufferedMutatorParams<K> params) {
+        org.apache.hadoop.hbase.client.BufferedMutatorParams hparams =
+                new org.apache.hadoop.hbase.client.BufferedMutatorParams(
+                        conn.getConnectionFactory().toHTableName(metadata.getTableName()));
+        // size-based and periodic flushes are done by this mutator, so that it knows when they complete
+        hparams.writeBufferSize(Long.MAX_VALUE);
+        BufferedMutator.ErrorListener<K> errorListener = params.getErrorListener();
+        if (errorListener != null) {
+            hparams.listener((e, mutator) -> {
+                for (int i = 0; i < e.getNumExceptions(); i++) {
+                    errorListener.onError(metadata.getKeyCodec().decode(e.getRow(i).getRow()), e.getCause(i));
+                }
+            });
+        }
+        return hparams;
+    }
+
+    @Override
+    public void mutate(RowMutation<K, C> rowMutation) {
+        Row operation = ((HBaseRowOperation<K, C>) rowMutation).getHOperation();
+        if (!(operation instanceof Mutation)) {
+            throw new IllegalArgumentException("Cannot buffer " + operation.getClass().getSimpleName());
+        }
+        Mutation mutation = (Mutation) operation;
+        boolean full;
+        bufferLock.readLock().lock();
+        try {
+            pendingKeys.add(ByteBuffer.wrap(mutation.getRow()));
+            hmutator.mutate(mutation);
+            full = bufferedSize.addAndGet(mutation.heapSize()) >= writeBufferSize;
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            bufferLock.readLock().unlock();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public boolean isPending(K key) {
+        Set<ByteBuffer> pendingKeys = this.pendingKeys;
+        if (pendingKeys.isEmpty() && flushingKeys.isEmpty()) {
+            return false;
+        }
+        ByteBuffer rowKey = ByteBuffer.wrap(HBaseUtil.keyToBytes(key, metadata));
+        if (pendingKeys.contains(rowKey)) {
+            return true;
+        }
+        for (Set<ByteBuffer> batch : flushingKeys) {
+            if (batch.contains(rowKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() {
+        // every mutation of a key in the batch has been handed to the HBase mutator before the swap,
+        // so the flush below sends it
+        Set<ByteBuffer> batch;
+        bufferLock.writeLock().lock();
+        try {
+            batch = pendingKeys;
+            flushingKeys.add(batch);
+            pendingKeys = ConcurrentHashMap.newKeySet();
+            bufferedSize.set(0);
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+        boolean flushed = false;
+        try {
+            hmutator.flush();
+            flushed = true;
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            if (!flushed) {
+                // the failed mutations may no longer be buffered, but reads keep flushing until a flush succeeds
+                bufferLock.readLock().lock();
+                try {
+                    pendingKeys.addAll(batch);
+                } finally {
+                    bufferLock.readLock().unlock();
+                }
+            }
+            flushingKeys.remove(batch);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        try {
+            flush();
+            hmutator.close();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
@@ -4,10 +4,16 @@ import io.hentitydb.serialization.Codec;
 import io.hentitydb.store.Column;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 
+/**
+ * A column backed by a cell.  Names and values are decoded from the array accessors of the cell, which copy
+ * the data of off-heap cells.
+ */
 public class HBaseColumn<C> implements Column<C> {
 
     private final Codec<C> columnCodec;
@@ -25,7 +31,7 @@ public class HBaseColumn<C> implements Column<C> {
 
     @Override
     public C getName() {
-        return columnCodec.decode(CellUtil.cloneQualifier(cell));
+        return columnCodec.decode(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
     }
 
     @Override
@@ -33,9 +39,19 @@ public class HBaseColumn<C> implements Column<C> {
         return CellUtil.cloneQualifier(cell);
     }
 
+    @Override
+    public ByteBuffer getRawNameBuffer() {
+        return ByteBuffer.wrap(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()).slice();
+    }
+
     @Override
     public String getFamily() {
-        return Bytes.toString(CellUtil.cloneFamily(cell));
+        return Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+    }
+
+    @Override
+    public ByteBuffer getRawFamilyBuffer() {
+        return ByteBuffer.wrap(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()).slice();
     }
 
     @Override
@@ -45,32 +61,32 @@ public class HBaseColumn<C> implements Column<C> {
 
     @Override
     public short getShort() {
-        return Bytes.toShort(CellUtil.cloneValue(cell));
+        return Bytes.toShort(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
     }
 
     @Override
     public int getInt() {
-        return Bytes.toInt(CellUtil.cloneValue(cell));
+        return Bytes.toInt(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
     }
 
     @Override
     public long getLong() {
-        return Bytes.toLong(CellUtil.cloneValue(cell));
+        return Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
     }
 
     @Override
     public Date getDate() {
-        return new Date(Bytes.toLong(CellUtil.cloneValue(cell)));
+        return new Date(getLong());
     }
 
     @Override
     public float getFloat() {
-        return Bytes.toFloat(CellUtil.cloneValue(cell));
+        return Bytes.toFloat(cell.getValueArray(), cell.getValueOffset());
     }
 
     @Override
     public double getDouble() {
-        return Bytes.toDouble(CellUtil.cloneValue(cell));
+        return Bytes.toDouble(cell.getValueArray(), cell.getValueOffset());
     }
 
     @Override
@@ -78,19 +94,34 @@ public class HBaseColumn<C> implements Column<C> {
         return CellUtil.cloneValue(cell);
     }
 
+    @Override
+    public ByteBuffer getValueBuffer() {
+        return ByteBuffer.wrap(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()).slice();
+    }
+
     @Override
     public String getString() {
-        return Bytes.toString(CellUtil.cloneValue(cell));
+        return Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
     }
 
     @Override
     public <V> V getValue(Codec<V> valueCodec) {
-        byte[] value = CellUtil.cloneValue(cell);
-        return value != null && value.length > 0 ? valueCodec.decode(value) : null;
+        return cell.getValueLength() > 0
+                ? valueCodec.decode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength())
+                : null;
     }
 
     @Override
     public long getTimestamp() {
         return cell.getTimestamp();
     }
+
+    @Override
+    public HBaseColumn<C> copy() {
+        return new HBaseColumn<>(columnCodec, KeyValueUtil.copyToNewKeyValue(cell));
+    }
+
+    public Cell getCell() {
+        return cell;
+    }
 }
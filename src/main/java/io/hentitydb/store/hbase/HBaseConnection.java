@@ -1,15 +1,23 @@
 package io.hentitydb.store.hbase;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.hentitydb.EntityConfiguration;
+import io.hentitydb.store.BufferedMutatorParams;
 import io.hentitydb.store.Connection;
 import io.hentitydb.store.TableMetadata;
 import io.hentitydb.store.TableName;
 import io.hentitydb.store.hbase.security.AuthUtil;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.BufferedMutator;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.mock.MockAsyncTable;
+import org.apache.hadoop.hbase.client.mock.MockBufferedMutator;
 import org.apache.hadoop.hbase.client.mock.MockHTable;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,8 +25,13 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static io.hentitydb.store.hbase.HBaseConnectionFactory.HBASE_CLIENT_JAAS_FILE;
 import static io.hentitydb.store.hbase.HBaseConnectionFactory.HBASE_CLIENT_KERBEROS_PRINCIPAL;
@@ -30,6 +43,13 @@ public class HBaseConnection implements Connection {
 
     private final HBaseConnectionFactory factory;
     private final org.apache.hadoop.hbase.client.Connection hconnection;
+    private final UserGroupInformation ugi;
+    private volatile CompletableFuture<AsyncConnection> hasyncConnection;
+    private final int tablePoolSize;
+    private final Map<TableName, BlockingQueue<HBaseTable<?, ?>>> tablePools = new ConcurrentHashMap<>();
+    private final ExecutorService blockingExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hentitydb-blocking-%d").build());
+    private volatile boolean closed = false;
 
     public HBaseConnection(HBaseConnectionFactory factory) {
         this(factory, null);
@@ -72,6 +92,8 @@ public class HBaseConnection implements Connection {
             } else {
                 this.hconnection = ugi.doAs((PrivilegedExceptionAction<org.apache.hadoop.hbase.client.Connection>) () -> ConnectionFactory.createConnection(hconfig, pool));
             }
+            this.ugi = ugi;
+            this.tablePoolSize = config.getTablePoolSize();
 
         } catch (Exception e) {
             throw Throwables.propagate(e);
@@ -87,17 +109,92 @@ public class HBaseConnection implements Connection {
         return hconnection;
     }
 
+    /**
+     * Returns the async connection, which is created on first use.  A connection that fails to be created is
+     * created again on the next call.
+     *
+     * @return a future for the async connection, or null in test mode
+     */
+    public CompletableFuture<AsyncConnection> getHAsyncConnection() {
+        if (getConnectionFactory().getConfiguration().getTestMode()) {
+            return null;
+        }
+        CompletableFuture<AsyncConnection> result = hasyncConnection;
+        if (result == null) {
+            synchronized (this) {
+                result = hasyncConnection;
+                if (result == null) {
+                    try {
+                        Configuration hconfig = getConnectionFactory().getConfiguration().getHConfiguration();
+                        result = ugi == null
+                                ? ConnectionFactory.createAsyncConnection(hconfig)
+                                : ConnectionFactory.createAsyncConnection(hconfig, User.create(ugi));
+                    } catch (Exception e) {
+                        result = new CompletableFuture<>();
+                        result.completeExceptionally(e);
+                    }
+                    hasyncConnection = result;
+                    final CompletableFuture<AsyncConnection> created = result;
+                    created.whenComplete((connection, cause) -> {
+                        if (cause != null) {
+                            synchronized (this) {
+                                if (hasyncConnection == created) {
+                                    hasyncConnection = null;
+                                }
+                            }
+                        }
+                    });
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a table handle.  Idle handles are reused from a pool, and are returned to it when they are closed.
+     * A handle must not be used after it has been closed.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public <K, C> HBaseTable<K, C> getTable(TableName tableName) {
         try {
             TableMetadata<K, C> tableMetadata = (TableMetadata<K, C>)factory.getTableMetadata(tableName);
+            BlockingQueue<HBaseTable<?, ?>> pool = tablePools.get(tableName);
+            HBaseTable<K, C> table;
+            while (pool != null && (table = (HBaseTable<K, C>) pool.poll()) != null) {
+                if (table.getMetadata() == tableMetadata) {
+                    table.open();
+                    return table;
+                }
+                // the table has been redeclared
+                table.closeHTable();
+            }
             return new HBaseTable<>(this, tableMetadata);
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
     }
 
+    /**
+     * Returns a closed table handle to the pool, or releases it if the pool is full or the connection is closed.
+     */
+    protected void releaseTable(HBaseTable<?, ?> table) throws IOException {
+        if (tablePoolSize > 0 && !closed) {
+            BlockingQueue<HBaseTable<?, ?>> pool = tablePools.get(table.getTableName());
+            if (pool == null) {
+                pool = tablePools.computeIfAbsent(table.getTableName(), k -> new ArrayBlockingQueue<>(tablePoolSize));
+            }
+            if (pool.offer(table)) {
+                // if the connection was closed meanwhile, the pool may already have been drained, so take the
+                // handle back unless the drain has it
+                if (!closed || !pool.remove(table)) {
+                    return;
+                }
+            }
+        }
+        table.closeHTable();
+    }
+
     private static final Map<TableName, Table> mockTables = new ConcurrentHashMap<>();
 
     protected Table getHTable(TableMetadata<?, ?> metadata) throws IOException {
@@ -116,9 +213,63 @@ public class HBaseConnection implements Connection {
         return table;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, C> HBaseBufferedMutator<K, C> getBufferedMutator(TableName tableName, BufferedMutatorParams<K> params) {
+        TableMetadata<K, C> tableMetadata = (TableMetadata<K, C>)factory.getTableMetadata(tableName);
+        return new HBaseBufferedMutator<>(this, tableMetadata, params);
+    }
+
+    protected BufferedMutator getHBufferedMutator(TableMetadata<?, ?> metadata,
+                                                  org.apache.hadoop.hbase.client.BufferedMutatorParams hparams)
+            throws IOException {
+        if (getConnectionFactory().getConfiguration().getTestMode()) {
+            return new MockBufferedMutator(getHTable(metadata), hparams);
+        }
+        return getHConnection().getBufferedMutator(hparams);
+    }
+
+    protected CompletableFuture<AsyncTable<?>> getHAsyncTable(TableMetadata<?, ?> metadata) {
+        if (getConnectionFactory().getConfiguration().getTestMode()) {
+            CompletableFuture<AsyncTable<?>> result = new CompletableFuture<>();
+            try {
+                result.complete(MockAsyncTable.create((MockHTable) getHTable(metadata)));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        return getHAsyncConnection().thenApply(asyncConnection ->
+                asyncConnection.getTable(factory.toHTableName(metadata.getTableName())));
+    }
+
+    @Override
+    public Executor getBlockingExecutor() {
+        return blockingExecutor;
+    }
+
     @Override
     public void close() {
         try {
+            closed = true;
+            blockingExecutor.shutdown();
+            for (BlockingQueue<HBaseTable<?, ?>> pool : tablePools.values()) {
+                HBaseTable<?, ?> table;
+                while ((table = pool.poll()) != null) {
+                    table.closeHTable();
+                }
+            }
+            CompletableFuture<AsyncConnection> asyncConnection = hasyncConnection;
+            if (asyncConnection != null) {
+                // a connection that is still being created is closed once it is created
+                asyncConnection.thenAccept(connection -> {
+                    try {
+                        connection.close();
+                    } catch (IOException e) {
+                        LOG.warn("Failed to close async connection", e);
+                    }
+                });
+            }
             if (hconnection != null) hconnection.close();
         } catch (Exception e) {
             throw Throwables.propagate(e);
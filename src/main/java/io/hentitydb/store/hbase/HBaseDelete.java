@@ -6,6 +6,7 @@ import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 public class HBaseDelete<K, C> extends HBaseRowMutation<K, C> implements io.hentitydb.store.Delete<K, C> {
 
@@ -61,6 +62,13 @@ public class HBaseDelete<K, C> extends HBaseRowMutation<K, C> implements io.hent
         return this;
     }
 
+    @Override
+    public HBaseDelete<K, C> addColumnVersion(String family, C column, long timestamp) {
+        delete.addColumn(Bytes.toBytes(family), columnCodec.encode(column), timestamp);
+        hasColumns = true;
+        return this;
+    }
+
     @Override
     public HBaseDelete<K, C> addFamily(String family) {
         delete.addFamily(Bytes.toBytes(family));
@@ -77,6 +85,21 @@ public class HBaseDelete<K, C> extends HBaseRowMutation<K, C> implements io.hent
         getTable().doDelete(this);
     }
 
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return getTable().doDeleteAsync(this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAbsentAsync(String family, C column) {
+        return getTable().doDeleteIfAsync(family, column, CompareOp.EQUAL, null, this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAsync(String family, C column, CompareOp compareOp, byte[] value) {
+        return getTable().doDeleteIfAsync(family, column, compareOp, value, this);
+    }
+
     @Override
     public boolean executeIfAbsent(C column) {
         return executeIfAbsent(defaultFamily, column);
@@ -1,7 +1,8 @@
 package io.hentitydb.store.hbase;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
-import io.hentitydb.store.Column;
 import io.hentitydb.store.KeyColumn;
 import io.hentitydb.util.Iterables;
 import io.hentitydb.serialization.ClassCodec;
@@ -10,21 +11,33 @@ import io.hentitydb.serialization.ReadBuffer;
 import io.hentitydb.serialization.WriteBuffer;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.exceptions.DeserializationException;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Set;
 
 public class HBaseFilter<K, C> extends FilterBase {
 
+    /**
+     * Decoded filters by serialized form, so that a region server decodes a filter that is sent repeatedly with
+     * the same values, such as a polling query, only once.  Filters that differ only in their values are decoded
+     * separately.
+     */
+    private final static Cache<ByteBuffer, HBaseFilter<?, ?>> PROTOTYPES = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build();
+
     private io.hentitydb.store.Filter<K, C> filter;
     private Codec<K> keyCodec;
     private Codec<C> columnCodec;
     private boolean isRowFilter;
+    private Cell nextCellHint;
 
     public HBaseFilter() {
     }
@@ -46,8 +59,14 @@ public class HBaseFilter<K, C> extends FilterBase {
 
     @Override
     public Filter.ReturnCode filterKeyValue(Cell cell) {
-        boolean doFilter = filter.filterKeyColumn(
-                new KeyColumn<>(keyCodec, CellUtil.cloneRow(cell), new HBaseColumn<>(columnCodec, cell)));
+        KeyColumn<K, C> keyColumn = toKeyColumn(cell);
+        C hint = filter.getNextColumnHint(keyColumn);
+        if (hint != null) {
+            byte[] qualifier = columnCodec.encode(hint);
+            nextCellHint = PrivateCellUtil.createFirstOnRowCol(cell, qualifier, 0, qualifier.length);
+            return ReturnCode.SEEK_NEXT_USING_HINT;
+        }
+        boolean doFilter = filter.filterKeyColumn(keyColumn);
         if (isRowFilter) {
             return doFilter ? ReturnCode.INCLUDE : ReturnCode.NEXT_ROW;
         } else {
@@ -56,6 +75,11 @@ public class HBaseFilter<K, C> extends FilterBase {
         }
     }
 
+    @Override
+    public Cell getNextCellHint(Cell currentCell) {
+        return nextCellHint;
+    }
+
     @Override
     public boolean hasFilterRow() {
         return filter.hasFilterRow();
@@ -65,18 +89,36 @@ public class HBaseFilter<K, C> extends FilterBase {
     public void filterRowCells(List<Cell> kvs) {
         List<KeyColumn<K, C>> columns = Lists.newArrayListWithExpectedSize(kvs.size());
         for (Cell cell : kvs) {
-            Column<C> column = new HBaseColumn<>(columnCodec, cell);
-            columns.add(new KeyColumn<>(keyCodec, CellUtil.cloneRow(cell), column));
+            columns.add(toKeyColumn(cell));
         }
         final Set<Integer> toKeep = filter.filterRow(columns);
         Iterables.removeIf(kvs, (index, input) -> !toKeep.contains(index));
+        byte[] summary = filter.summarizeRow();
+        if (summary != null && !kvs.isEmpty()) {
+            Cell cell = kvs.get(0);
+            kvs.clear();
+            kvs.add(CellUtil.createCell(
+                    CellUtil.cloneRow(cell),
+                    CellUtil.cloneFamily(cell),
+                    CellUtil.cloneQualifier(cell),
+                    cell.getTimestamp(),
+                    cell.getTypeByte(),
+                    summary));
+        }
+        List<io.hentitydb.store.Column<C>> rowColumns = filter.getRowColumns();
+        if (rowColumns != null) {
+            kvs.clear();
+            for (io.hentitydb.store.Column<C> column : rowColumns) {
+                kvs.add(((HBaseColumn<C>) column).getCell());
+            }
+        }
     }
 
     @Override
     public Cell transformCell(Cell cell) {
-        byte[] newValue = filter.transformKeyColumn(
-                new KeyColumn<>(keyCodec, CellUtil.cloneRow(cell), new HBaseColumn<>(columnCodec, cell)));
-        if (newValue == null || Arrays.equals(newValue, CellUtil.cloneValue(cell))) {
+        byte[] newValue = filter.transformKeyColumn(toKeyColumn(cell));
+        if (newValue == null || Bytes.equals(newValue, 0, newValue.length,
+                cell.getValueArray(), cell.getValueOffset(), cell.getValueLength())) {
             return cell;
         } else {
             return CellUtil.createCell(
@@ -89,10 +131,20 @@ public class HBaseFilter<K, C> extends FilterBase {
         }
     }
 
+    /**
+     * Wraps the cell in a new key column, which reads the row key, qualifier and value through the array accessors
+     * of the cell.  These do not copy the data of cells backed by arrays, but do copy it for off-heap cells.  A new
+     * key column is needed per cell, as the filter may hold the key column of the previous cell.
+     */
+    private KeyColumn<K, C> toKeyColumn(Cell cell) {
+        return new KeyColumn<>(keyCodec, cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+                new HBaseColumn<>(columnCodec, cell));
+    }
+
     @Override
     public byte[] toByteArray() throws IOException {
         final WriteBuffer buffer = new WriteBuffer(4096);
-        final ClassCodec classCodec = new ClassCodec(HBaseFilter.class.getClassLoader());
+        final ClassCodec classCodec = new ClassCodec(HBaseFilter.class.getClassLoader(), true);
         final Codec<Codec<K>> keyCodecCodec = keyCodec.getSelfCodec();
         final Codec<Codec<C>> columnCodecCodec = columnCodec.getSelfCodec();
         classCodec.encode(filter.getClass(), buffer);
@@ -105,11 +157,33 @@ public class HBaseFilter<K, C> extends FilterBase {
         return buffer.finish();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns a new filter with the same configuration, or null if the wrapped filter cannot be copied.
+     */
+    private HBaseFilter<K, C> copy() {
+        io.hentitydb.store.Filter<K, C> copy = filter.copy();
+        return copy != null ? new HBaseFilter<>(copy, keyCodec, columnCodec, isRowFilter) : null;
+    }
+
     public static Filter parseFrom(byte[] pbBytes) throws DeserializationException {
+        ByteBuffer key = ByteBuffer.wrap(pbBytes);
+        HBaseFilter<?, ?> prototype = PROTOTYPES.getIfPresent(key);
+        if (prototype != null) {
+            return prototype.copy();
+        }
+        HBaseFilter<?, ?> hfilter = decode(pbBytes);
+        prototype = hfilter.copy();
+        if (prototype != null) {
+            PROTOTYPES.put(key, prototype);
+        }
+        return hfilter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HBaseFilter<?, ?> decode(byte[] pbBytes) throws DeserializationException {
         try {
             final ReadBuffer buffer = new ReadBuffer(pbBytes);
-            final ClassCodec classCodec = new ClassCodec(HBaseFilter.class.getClassLoader());
+            final ClassCodec classCodec = new ClassCodec(HBaseFilter.class.getClassLoader(), true);
             final Class filterClass = classCodec.decode(buffer);
             final Class keyCodecCodecClass = classCodec.decode(buffer);
             Codec<Codec<?>> keyCodecCodec = (Codec<Codec<?>>)keyCodecCodecClass.newInstance();
@@ -11,6 +11,7 @@ import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class HBaseGet<K, C> extends HBaseRowOperation<K, C> implements io.hentitydb.store.Get<K, C> {
 
@@ -177,4 +178,9 @@ public class HBaseGet<K, C> extends HBaseRowOperation<K, C> implements io.hentit
     public Row<K, C> execute() {
         return getTable().doGet(this);
     }
+
+    @Override
+    public CompletableFuture<Row<K, C>> executeAsync() {
+        return getTable().doGetAsync(this);
+    }
 }
@@ -6,6 +6,7 @@ import org.apache.hadoop.hbase.client.Increment;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 public class HBaseIncrement<K, C> extends HBaseRowMutation<K, C> implements io.hentitydb.store.Increment<K, C> {
 
@@ -55,6 +56,21 @@ public class HBaseIncrement<K, C> extends HBaseRowMutation<K, C> implements io.h
         getTable().doIncrement(this);
     }
 
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return getTable().doIncrementAsync(this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAbsentAsync(String family, C column) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAsync(String family, C column, CompareOp compareOp, byte[] value) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean executeIfAbsent(C column) {
         throw new UnsupportedOperationException();
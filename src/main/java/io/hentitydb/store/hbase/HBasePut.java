@@ -6,6 +6,7 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 public class HBasePut<K, C> extends HBaseRowMutation<K, C> implements io.hentitydb.store.Put<K, C> {
 
@@ -127,6 +128,12 @@ public class HBasePut<K, C> extends HBaseRowMutation<K, C> implements io.hentity
         return this;
     }
 
+    @Override
+    public HBasePut<K, C> addColumnVersion(String family, C column, long timestamp, byte[] value) {
+        put.addImmutable(Bytes.toBytes(family), columnCodec.encode(column), timestamp, value);
+        return this;
+    }
+
     @Override
     public HBasePut<K, C> addColumn(C column, String value) {
         return addColumn(defaultFamily, column, value);
@@ -154,6 +161,21 @@ public class HBasePut<K, C> extends HBaseRowMutation<K, C> implements io.hentity
         getTable().doPut(this);
     }
 
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return getTable().doPutAsync(this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAbsentAsync(String family, C column) {
+        return getTable().doPutIfAsync(family, column, CompareOp.EQUAL, null, this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAsync(String family, C column, CompareOp compareOp, byte[] value) {
+        return getTable().doPutIfAsync(family, column, compareOp, value, this);
+    }
+
     @Override
     public boolean executeIfAbsent(C column) {
         return executeIfAbsent(defaultFamily, column);
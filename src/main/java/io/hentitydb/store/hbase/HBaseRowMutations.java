@@ -4,6 +4,9 @@ import com.google.common.base.Throwables;
 import io.hentitydb.serialization.Codec;
 import io.hentitydb.store.CompareOp;
 import io.hentitydb.store.RowMutation;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
@@ -11,12 +14,14 @@ import org.apache.hadoop.hbase.client.RowMutations;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class HBaseRowMutations<K, C> extends HBaseRowOperation<K, C> implements io.hentitydb.store.RowMutations<K, C> {
 
     private final RowMutations mutations;
-    private boolean hasPut = false;
     private boolean hasDelete = false;
+    private boolean timestamped = false;
 
     public HBaseRowMutations(K key, HBaseTable<K, C> table) {
         super(key, table);
@@ -24,19 +29,32 @@ public class HBaseRowMutations<K, C> extends HBaseRowOperation<K, C> implements
     }
 
     public RowMutations getHOperation() {
-        if (hasPut && hasDelete) {
-            // Set ts of puts to be later than deletes
+        if (hasDelete && !timestamped && mutations.getMutations().size() > 1) {
+            // The server gives every mutation in the row the same timestamp, so that a delete would hide a put
+            // that follows it.  Instead give each mutation its own timestamp, in the order they were added.
             // See https://issues.apache.org/jira/browse/HBASE-8626
-            long now = System.currentTimeMillis();
+            long ts = System.currentTimeMillis();
             for (Mutation mutation : mutations.getMutations()) {
-                if (mutation instanceof Delete) {
-                    ((Delete)mutation).setTimestamp(now - 10);
-                }
+                setTimestamp(mutation, ts++);
             }
+            timestamped = true;
         }
         return mutations;
     }
 
+    private static void setTimestamp(Mutation mutation, long ts) {
+        // a delete of the whole row has no cells, and uses the timestamp of the mutation
+        mutation.setTimestamp(ts);
+        for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+            // a delete of the latest version of a column is left as is, as its version is found by the server
+            cells.replaceAll(cell -> cell.getTimestamp() != HConstants.LATEST_TIMESTAMP
+                    || cell.getType() == Cell.Type.Delete
+                    ? cell
+                    : CellUtil.createCell(CellUtil.cloneRow(cell), CellUtil.cloneFamily(cell),
+                            CellUtil.cloneQualifier(cell), ts, cell.getTypeByte(), CellUtil.cloneValue(cell)));
+        }
+    }
+
     @Override
     @SafeVarargs
     public final HBaseRowMutations<K, C> add(RowMutation<K, C>... rowMutations) {
@@ -46,7 +64,6 @@ public class HBaseRowMutations<K, C> extends HBaseRowOperation<K, C> implements
                     throw new IllegalArgumentException("Key does not match");
                 }
                 if (rowMutation instanceof HBasePut) {
-                    hasPut = true;
                     Put put = ((HBasePut) rowMutation).getHOperation();
                     mutations.add(put);
                 } else if (rowMutation instanceof HBaseDelete) {
@@ -68,6 +85,21 @@ public class HBaseRowMutations<K, C> extends HBaseRowOperation<K, C> implements
         getTable().doRowMutations(this);
     }
 
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return getTable().doRowMutationsAsync(this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAbsentAsync(String family, C column) {
+        return getTable().doRowMutationsIfAsync(family, column, CompareOp.EQUAL, null, this);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeIfAsync(String family, C column, CompareOp compareOp, byte[] value) {
+        return getTable().doRowMutationsIfAsync(family, column, compareOp, value, this);
+    }
+
     @Override
     public boolean executeIfAbsent(C column) {
         return executeIfAbsent(getTable().getMetadata().getDefaultFamily(), column);
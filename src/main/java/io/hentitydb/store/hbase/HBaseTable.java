@@ -6,8 +6,11 @@ import com.google.common.collect.Lists;
 import io.hentitydb.serialization.Codec;
 import io.hentitydb.serialization.SaltingCodec;
 import io.hentitydb.store.*;
+import org.apache.hadoop.hbase.CompareOperator;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.CompareFilter;
 import org.apache.hadoop.hbase.filter.FilterList;
@@ -16,7 +19,11 @@ import org.apache.hadoop.hbase.util.Bytes;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -27,7 +34,9 @@ public class HBaseTable<K, C> implements Table<K, C> {
 
     private final HBaseConnection conn;
     private final TableMetadata<K, C> metadata;
-    private final org.apache.hadoop.hbase.client.Table htable;
+    // opened on first use, so that a table used only for async operations does not open one
+    private volatile org.apache.hadoop.hbase.client.Table htable;
+    private final AtomicBoolean open = new AtomicBoolean(true);
 
     /**
      * Creates a new {@link HBaseTable}.
@@ -37,14 +46,8 @@ public class HBaseTable<K, C> implements Table<K, C> {
      */
     public HBaseTable(HBaseConnection conn,
                       TableMetadata<K, C> metadata) {
-        try {
-            this.conn = conn;
-            this.metadata = metadata;
-            this.htable = conn.getHTable(metadata);
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
-        }
-
+        this.conn = conn;
+        this.metadata = metadata;
     }
 
     @Override
@@ -62,7 +65,38 @@ public class HBaseTable<K, C> implements Table<K, C> {
     }
 
     protected org.apache.hadoop.hbase.client.Table getHTable() {
-        return htable;
+        org.apache.hadoop.hbase.client.Table result = htable;
+        if (result == null) {
+            synchronized (this) {
+                result = htable;
+                if (result == null) {
+                    try {
+                        result = conn.getHTable(metadata);
+                    } catch (IOException e) {
+                        throw Throwables.propagate(e);
+                    }
+                    htable = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes the HBase table, if it has been opened.
+     */
+    synchronized void closeHTable() throws IOException {
+        if (htable != null) {
+            htable.close();
+            htable = null;
+        }
+    }
+
+    /**
+     * Reopens a pooled table handle.
+     */
+    void open() {
+        open.set(true);
     }
 
     /**
@@ -83,6 +117,11 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Row<K, C>> doGetAsync(Get<K, C> get) {
+        return executeAsync(table -> table.get(((HBaseGet<K, C>) get).getHOperation())
+                        .thenApply(result -> new HBaseRow<>(getMetadata(), result)));
+    }
+
     /**
      * Gets all rows.
      */
@@ -92,6 +131,17 @@ public class HBaseTable<K, C> implements Table<K, C> {
         return new HBaseRowScanner<>(this, new Scan());
     }
 
+    /**
+     * Scans over all rows.
+     */
+    @Override
+    public RowScanner<K, C> scanAll(int caching, int batch) {
+        Scan scan = new Scan();
+        if (caching > 0) scan.setCaching(caching);
+        if (batch > 0) scan.setBatch(batch);
+        return new HBaseRowScanner<>(this, scan);
+    }
+
     /**
      * Creates an executable increment operation.
      */
@@ -111,6 +161,11 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Void> doIncrementAsync(Increment<K, C> increment) {
+        return executeAsync(table -> table.increment(((HBaseIncrement<K, C>) increment).getHOperation())
+                        .thenApply(result -> null));
+    }
+
     /**
      * Creates an executable put operation.
      */
@@ -129,6 +184,10 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Void> doPutAsync(Put<K, C> put) {
+        return executeAsync(table -> table.put(((HBasePut<K, C>) put).getHOperation()));
+    }
+
     protected boolean doPutIf(String family, C column, CompareOp compareOp, byte[] value, Put<K, C> put) {
         org.apache.hadoop.hbase.client.Table table = null;
         try {
@@ -140,6 +199,11 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Boolean> doPutIfAsync(String family, C column, CompareOp compareOp, byte[] value, Put<K, C> put) {
+        return executeAsync(table -> checkAndMutate(table, put.getKey(), family, column, compareOp, value)
+                        .thenPut(((HBasePut<K, C>) put).getHOperation()));
+    }
+
     /**
      * Creates an executable delete operation.
      */
@@ -158,6 +222,10 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Void> doDeleteAsync(Delete<K, C> delete) {
+        return executeAsync(table -> table.delete(((HBaseDelete<K, C>) delete).getHOperation()));
+    }
+
     protected boolean doDeleteIf(String family, C column, CompareOp compareOp, byte[] value, Delete<K, C> delete) {
         org.apache.hadoop.hbase.client.Table table = null;
         try {
@@ -169,6 +237,11 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Boolean> doDeleteIfAsync(String family, C column, CompareOp compareOp, byte[] value, Delete<K, C> delete) {
+        return executeAsync(table -> checkAndMutate(table, delete.getKey(), family, column, compareOp, value)
+                        .thenDelete(((HBaseDelete<K, C>) delete).getHOperation()));
+    }
+
     /**
      * Creates an executable batch mutation.
      */
@@ -182,20 +255,16 @@ public class HBaseTable<K, C> implements Table<K, C> {
         try {
             table = getHTable();
             final Object[] results = new Object[mutations.size()];
-            final List<org.apache.hadoop.hbase.client.Row> actions = Lists.newArrayListWithExpectedSize(mutations.size());
-            for (RowMutation mutation : mutations) {
-                HBaseRowMutation hmutation = (HBaseRowMutation)mutation;
-                if (!getTableName().equals(hmutation.getTable().getTableName())) {
-                    throw new IllegalArgumentException("Physical tables do not match");
-                }
-                actions.add(hmutation.getHOperation());
-            }
-            table.batch(actions, results);
+            table.batch(toHActions(mutations), results);
         } catch (Exception ex) {
             throw Throwables.propagate(ex);
         }
     }
 
+    protected CompletableFuture<Void> doBatchMutationsAsync(List<RowMutation<K, C>> mutations) {
+        return executeAsync(table -> table.batchAll(toHActions(mutations)).thenApply(results -> null));
+    }
+
     /**
      * Creates an executable batch operation.
      */
@@ -208,28 +277,73 @@ public class HBaseTable<K, C> implements Table<K, C> {
         org.apache.hadoop.hbase.client.Table table = null;
         try {
             table = getHTable();
+            final List<org.apache.hadoop.hbase.client.Row> actions = toHActions(operations);
             final Object[] results = new Object[operations.size()];
-            final List<org.apache.hadoop.hbase.client.Row> actions = Lists.newArrayListWithExpectedSize(operations.size());
-            for (RowOperation operation : operations) {
-                HBaseRowOperation hoperation = (HBaseRowOperation)operation;
-                if (!getTableName().equals(hoperation.getTable().getTableName())) {
-                    throw new IllegalArgumentException("Physical tables do not match");
+            try {
+                table.batch(actions, results);
+            } catch (RetriesExhaustedWithDetailsException ex) {
+                // report the failure of each operation in its result, rather than failing the whole batch
+                for (int i = 0; i < ex.getNumExceptions(); i++) {
+                    // operations on the same row may be equal, so match them by identity
+                    for (int j = 0; j < actions.size(); j++) {
+                        if (actions.get(j) == ex.getRow(i) && !(results[j] instanceof Throwable)) {
+                            results[j] = ex.getCause(i);
+                        }
+                    }
+                }
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] == null) {
+                        results[i] = ex;
+                    }
                 }
-                actions.add(hoperation.getHOperation());
-            }
-            table.batch(actions, results);
-
-            final Object[] rows = new Object[results.length];
-            for (int i = 0; i < results.length; i++) {
-                Object result = results[i];
-                rows[i] = result instanceof Result ? new HBaseRow<>(getMetadata(), (Result) result) : result;
             }
-            return rows;
+            return toRows(results);
         } catch (Exception ex) {
             throw Throwables.propagate(ex);
         }
     }
 
+    protected CompletableFuture<Object[]> doBatchOperationsAsync(List<RowOperation<K, C>> operations) {
+        return executeAsync(table -> {
+            List<CompletableFuture<Object>> futures = table.batch(toHActions(operations));
+            // report the failure of each operation in its result, rather than failing the whole batch
+            final Object[] results = new Object[futures.size()];
+            CompletableFuture<?>[] outcomes = new CompletableFuture<?>[futures.size()];
+            for (int i = 0; i < futures.size(); i++) {
+                final int index = i;
+                outcomes[i] = futures.get(i).handle((result, cause) -> results[index] = cause != null
+                        ? unwrapCompletionException(cause)
+                        : result);
+            }
+            return CompletableFuture.allOf(outcomes).thenApply(ignored -> toRows(results));
+        });
+    }
+
+    private static Throwable unwrapCompletionException(Throwable cause) {
+        return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+    }
+
+    private List<org.apache.hadoop.hbase.client.Row> toHActions(List<? extends RowOperation<K, C>> operations) {
+        final List<org.apache.hadoop.hbase.client.Row> actions = Lists.newArrayListWithExpectedSize(operations.size());
+        for (RowOperation operation : operations) {
+            HBaseRowOperation hoperation = (HBaseRowOperation)operation;
+            if (!getTableName().equals(hoperation.getTable().getTableName())) {
+                throw new IllegalArgumentException("Physical tables do not match");
+            }
+            actions.add(hoperation.getHOperation());
+        }
+        return actions;
+    }
+
+    private Object[] toRows(Object[] results) {
+        final Object[] rows = new Object[results.length];
+        for (int i = 0; i < results.length; i++) {
+            Object result = results[i];
+            rows[i] = result instanceof Result ? new HBaseRow<>(getMetadata(), (Result) result) : result;
+        }
+        return rows;
+    }
+
     /**
      * Creates an executable list of atomic mutation operations.
      */
@@ -248,6 +362,10 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Void> doRowMutationsAsync(RowMutations<K, C> mutations) {
+        return executeAsync(table -> table.mutateRow(((HBaseRowMutations<K, C>) mutations).getHOperation()));
+    }
+
     protected boolean doRowMutationsIf(String family, C column, CompareOp compareOp, byte[] value, RowMutations<K, C> mutations) {
         org.apache.hadoop.hbase.client.Table table = null;
         try {
@@ -259,6 +377,48 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    protected CompletableFuture<Boolean> doRowMutationsIfAsync(String family, C column, CompareOp compareOp, byte[] value, RowMutations<K, C> mutations) {
+        return executeAsync(table -> checkAndMutate(table, mutations.getKey(), family, column, compareOp, value)
+                        .thenMutate(((HBaseRowMutations<K, C>) mutations).getHOperation()));
+    }
+
+    /**
+     * Runs an operation against the async table, once the async connection has been created.
+     */
+    private <R> CompletableFuture<R> executeAsync(Function<AsyncTable<?>, CompletableFuture<? extends R>> action) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            conn.getHAsyncTable(metadata).whenComplete((table, tableCause) -> {
+                if (tableCause != null) {
+                    future.completeExceptionally(tableCause);
+                    return;
+                }
+                try {
+                    action.apply(table).whenComplete((result, cause) -> {
+                        if (cause != null) {
+                            future.completeExceptionally(cause);
+                        } else {
+                            future.complete(result);
+                        }
+                    });
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private AsyncTable.CheckAndMutateBuilder checkAndMutate(AsyncTable<?> table, K key, String family, C column,
+                                                            CompareOp compareOp, byte[] value) {
+        AsyncTable.CheckAndMutateBuilder builder = table.checkAndMutate(HBaseUtil.keyToBytes(key, metadata), Bytes.toBytes(family))
+                .qualifier(metadata.getColumnCodec().encode(column));
+        // a null value checks for the absence of the column, as with checkAndPut
+        return value != null ? builder.ifMatches(toHOperator(compareOp), value) : builder.ifNotExists();
+    }
+
     private CompareFilter.CompareOp toHOp(CompareOp compareOp) {
         switch (compareOp) {
             case LESS_THAN:
@@ -276,6 +436,23 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    private CompareOperator toHOperator(CompareOp compareOp) {
+        switch (compareOp) {
+            case LESS_THAN:
+                return CompareOperator.LESS;
+            case GREATER_THAN_EQUAL:
+                return CompareOperator.GREATER_OR_EQUAL;
+            case EQUAL:
+                return CompareOperator.EQUAL;
+            case GREATER_THAN:
+                return CompareOperator.GREATER;
+            case LESS_THAN_EQUAL:
+                return CompareOperator.LESS_OR_EQUAL;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
     /**
      * Scans over all entries in the range {@code [startKey, endKey]}.
      *
@@ -346,6 +523,44 @@ public class HBaseTable<K, C> implements Table<K, C> {
         }
     }
 
+    /**
+     * Scans over all entries in the range {@code [startKey, endKey]}, applying the filter to the columns of
+     * each row.
+     *
+     * @param startKey    the first key in the range to scan, or null to start at the first row
+     * @param endKey      the last key in the range to scan, or null to end at the last row
+     * @param family      the column family to scan, or null to scan all families
+     * @param filter      a column filter to apply
+     * @param executor    an executor for parallel scans, if supported
+     * @return a {@link RowScanner} for the given range
+     */
+    @Override
+    public RowScanner<K, C> scanColumns(K startKey,
+                                        K endKey,
+                                        String family,
+                                        Filter<K, C> filter,
+                                        ExecutorService executor) {
+        Codec<K> keyCodec = metadata.isSalted() ?
+                ((SaltingCodec<K>) metadata.getKeyCodec()).getCodec() : metadata.getKeyCodec();
+        Scan scan = new Scan();
+        if (startKey != null) {
+            scan.withStartRow(keyCodec.encode(startKey));
+        }
+        if (endKey != null) {
+            scan.withStopRow(createClosestRowAfter(keyCodec.encode(endKey)));
+        }
+        if (family != null) {
+            scan.addFamily(Bytes.toBytes(family));
+        }
+        scan.setFilter(new HBaseFilter<>(filter,
+                getMetadata().getKeyCodec(),
+                getMetadata().getColumnCodec(),
+                false));
+        return metadata.isSalted() ?
+                new HBaseSaltedRowScanner<>(this, scan, executor) :
+                new HBaseRowScanner<>(this, scan);
+    }
+
     /**
      * Scans in reverse over all entries in the range {@code [startKey, endKey]}.
      *
@@ -476,8 +691,12 @@ public class HBaseTable<K, C> implements Table<K, C> {
 
     @Override
     public void close() {
+        // guard against returning the same handle to the pool twice
+        if (!open.compareAndSet(true, false)) {
+            return;
+        }
         try {
-            htable.close();
+            conn.releaseTable(this);
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
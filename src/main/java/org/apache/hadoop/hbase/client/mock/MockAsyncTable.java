@@ -0,0 +1,184 @@
+/**
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.apache.hadoop.hbase.client.mock;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An async table that applies its operations to a {@link MockHTable} in place, and returns their outcomes as
+ * completed futures.  The table is a proxy, so that it does not depend on the exact methods of
+ * {@link AsyncTable}, which change between HBase versions.
+ */
+public class MockAsyncTable implements InvocationHandler {
+
+    private final MockHTable table;
+
+    private MockAsyncTable(MockHTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Creates an async table over the given mock table.
+     *
+     * @param table the mock table
+     * @return the async table
+     */
+    public static AsyncTable<?> create(MockHTable table) {
+        return (AsyncTable<?>) Proxy.newProxyInstance(AsyncTable.class.getClassLoader(),
+                new Class<?>[]{AsyncTable.class}, new MockAsyncTable(table));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+        switch (method.getName()) {
+            case "getName":
+                return table.getName();
+            case "getConfiguration":
+                return table.getConfiguration();
+            case "get":
+                if (args[0] instanceof Get) {
+                    return complete(() -> table.get((Get) args[0]));
+                }
+                break;
+            case "put":
+                if (args[0] instanceof Put) {
+                    return complete(() -> {
+                        table.put((Put) args[0]);
+                        return null;
+                    });
+                }
+                break;
+            case "delete":
+                if (args[0] instanceof Delete) {
+                    return complete(() -> {
+                        table.delete((Delete) args[0]);
+                        return null;
+                    });
+                }
+                break;
+            case "increment":
+                if (args.length == 1) {
+                    return complete(() -> table.increment((Increment) args[0]));
+                }
+                break;
+            case "mutateRow":
+                return complete(() -> {
+                    table.mutateRow((RowMutations) args[0]);
+                    return null;
+                });
+            case "checkAndMutate":
+                if (args.length == 2) {
+                    return Proxy.newProxyInstance(AsyncTable.CheckAndMutateBuilder.class.getClassLoader(),
+                            new Class<?>[]{AsyncTable.CheckAndMutateBuilder.class},
+                            new CheckAndMutate((byte[]) args[0], (byte[]) args[1]));
+                }
+                break;
+            case "batch":
+                return batch((List<? extends Row>) args[0]);
+            case "batchAll":
+                return complete(() -> Arrays.asList(table.batch((List<? extends Row>) args[0])));
+            default:
+                break;
+        }
+        throw new UnsupportedOperationException(getClass() + " does NOT implement " + method);
+    }
+
+    private List<CompletableFuture<Object>> batch(List<? extends Row> actions) {
+        // apply each action on its own, so that a failed action only fails its own future
+        List<CompletableFuture<Object>> futures = Lists.newArrayListWithExpectedSize(actions.size());
+        for (Row action : actions) {
+            futures.add(complete(() -> table.batch(Lists.newArrayList(action))[0]));
+        }
+        return futures;
+    }
+
+    private static CompletableFuture<Object> complete(Callable<Object> call) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            future.complete(call.call());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * A check-and-mutate builder, as a proxy of {@link AsyncTable.CheckAndMutateBuilder}.
+     */
+    private class CheckAndMutate implements InvocationHandler {
+        private final byte[] row;
+        private final byte[] family;
+        private byte[] qualifier;
+        private CompareFilter.CompareOp compareOp = CompareFilter.CompareOp.EQUAL;
+        private byte[] value;
+
+        CheckAndMutate(byte[] row, byte[] family) {
+            this.row = row;
+            this.family = family;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+            switch (method.getName()) {
+                case "qualifier":
+                    qualifier = (byte[]) args[0];
+                    return proxy;
+                case "timeRange":
+                    return proxy;
+                case "ifNotExists":
+                    value = null;
+                    return proxy;
+                case "ifEquals":
+                    compareOp = CompareFilter.CompareOp.EQUAL;
+                    value = (byte[]) args[0];
+                    return proxy;
+                case "ifMatches":
+                    compareOp = CompareFilter.CompareOp.valueOf(((CompareOperator) args[0]).name());
+                    value = (byte[]) args[1];
+                    return proxy;
+                case "thenPut":
+                    return complete(() -> table.checkAndPut(row, family, qualifier, compareOp, value, (Put) args[0]));
+                case "thenDelete":
+                    return complete(() -> table.checkAndDelete(row, family, qualifier, compareOp, value, (Delete) args[0]));
+                case "thenMutate":
+                    return complete(() -> table.checkAndMutate(row, family, qualifier, compareOp, value, (RowMutations) args[0]));
+                default:
+                    break;
+            }
+            throw new UnsupportedOperationException(getClass() + " does NOT implement " + method);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package org.apache.hadoop.hbase.client.mock;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A buffered mutator that applies its mutations to a {@link MockHTable} in batches.
+ */
+public class MockBufferedMutator implements BufferedMutator {
+    private static final Logger LOG = LoggerFactory.getLogger(MockBufferedMutator.class);
+
+    private static final long DEFAULT_WRITE_BUFFER_SIZE = 2097152L;
+
+    private final Table table;
+    private final long writeBufferSize;
+    private final long periodicFlushTimeoutMs;
+    private final ExceptionListener listener;
+    private final List<Mutation> buffer = Lists.newArrayList();
+    private long bufferedSize = 0;
+    private ScheduledExecutorService flusher;
+
+    public MockBufferedMutator(Table table, BufferedMutatorParams params) {
+        this.table = table;
+        this.writeBufferSize = params.getWriteBufferSize() > 0 ? params.getWriteBufferSize() : DEFAULT_WRITE_BUFFER_SIZE;
+        this.periodicFlushTimeoutMs = Math.max(params.getWriteBufferPeriodicFlushTimeoutMs(), 0);
+        this.listener = params.getListener() != null ? params.getListener() : (e, mutator) -> {
+            throw e;
+        };
+        if (periodicFlushTimeoutMs > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("mock-buffered-mutator-%d").build());
+            flusher.scheduleAtFixedRate(() -> {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    LOG.warn("Periodic flush failed", e);
+                }
+            }, periodicFlushTimeoutMs, periodicFlushTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public TableName getName() {
+        return table.getName();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return table.getConfiguration();
+    }
+
+    @Override
+    public void mutate(Mutation mutation) throws IOException {
+        mutate(Collections.singletonList(mutation));
+    }
+
+    @Override
+    public void mutate(List<? extends Mutation> mutations) throws IOException {
+        boolean full;
+        synchronized (buffer) {
+            for (Mutation mutation : mutations) {
+                buffer.add(mutation);
+                bufferedSize += mutation.heapSize();
+            }
+            full = bufferedSize >= writeBufferSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        List<Mutation> mutations;
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            mutations = Lists.newArrayList(buffer);
+            buffer.clear();
+            bufferedSize = 0;
+        }
+        try {
+            table.batch(mutations, new Object[mutations.size()]);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException(e.getMessage());
+        } catch (IOException e) {
+            List<Throwable> causes = Lists.newArrayListWithExpectedSize(mutations.size());
+            List<Row> actions = Lists.newArrayListWithExpectedSize(mutations.size());
+            List<String> hostnames = Lists.newArrayListWithExpectedSize(mutations.size());
+            for (Mutation mutation : mutations) {
+                causes.add(e);
+                actions.add(mutation);
+                hostnames.add("localhost");
+            }
+            listener.onException(new RetriesExhaustedWithDetailsException(causes, actions, hostnames), this);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    @Override
+    public long getWriteBufferPeriodicFlushTimeoutMs() {
+        return periodicFlushTimeoutMs;
+    }
+
+    @Override
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    @Override
+    public void setRpcTimeout(int timeout) {
+    }
+
+    @Override
+    public void setOperationTimeout(int timeout) {
+    }
+}
@@ -209,9 +209,25 @@ public class MockHTable implements Table {
      */
     @Override
     public void batch(List<? extends Row> actions, Object[] results) throws IOException, InterruptedException {
-        Object[] rows = batch(actions);
-        if (results != null) {
-            System.arraycopy(rows, 0, results, 0, rows.length);
+        // like the server, fail each action on its own, and report the failures once the others have been applied
+        List<Throwable> exceptions = new ArrayList<>();
+        List<Row> failed = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Object result;
+            try {
+                result = batch(actions.get(i));
+            } catch (Exception e) {
+                exceptions.add(e);
+                failed.add(actions.get(i));
+                result = e;
+            }
+            if (results != null) {
+                results[i] = result;
+            }
+        }
+        if (!exceptions.isEmpty()) {
+            throw new RetriesExhaustedWithDetailsException(exceptions, failed,
+                    Collections.nCopies(exceptions.size(), "localhost:0"));
         }
     }
 
@@ -221,31 +237,36 @@ public class MockHTable implements Table {
     public Object[] batch(List<? extends Row> actions) throws IOException, InterruptedException {
         Object[] results = new Object[actions.size()]; // same size.
         for (int i = 0; i < actions.size(); i++) {
-            Row r = actions.get(i);
-            if (r instanceof Delete) {
-                delete((Delete) r);
-                results[i] = new Result();
-            }
-            if (r instanceof Put) {
-                put((Put) r);
-                results[i] = new Result();
-            }
-            if (r instanceof Get) {
-                Result result = get((Get) r);
-                results[i] = result;
-            }
-            if (r instanceof Increment) {
-                Result result = increment((Increment) r);
-                results[i] = result;
-            }
-            if (r instanceof Append) {
-                Result result = append((Append) r);
-                results[i] = result;
-            }
+            results[i] = batch(actions.get(i));
         }
         return results;
     }
 
+    private Object batch(Row r) throws IOException {
+        if (r instanceof Delete) {
+            delete((Delete) r);
+            return new Result();
+        }
+        if (r instanceof Put) {
+            put((Put) r);
+            return new Result();
+        }
+        if (r instanceof RowMutations) {
+            mutateRow((RowMutations) r);
+            return new Result();
+        }
+        if (r instanceof Get) {
+            return get((Get) r);
+        }
+        if (r instanceof Increment) {
+            return increment((Increment) r);
+        }
+        if (r instanceof Append) {
+            return append((Append) r);
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -393,7 +414,16 @@ public class MockHTable implements Table {
                 }
             }
             if (!kvs.isEmpty()) {
-                ret.add(Result.create(kvs));
+                int batch = scan.getBatch();
+                if (batch > 0) {
+                    // return the row as partial results of at most batch cells, as the region server does
+                    for (int i = 0; i < kvs.size(); i += batch) {
+                        int end = Math.min(i + batch, kvs.size());
+                        ret.add(Result.create(kvs.subList(i, end), null, false, end < kvs.size()));
+                    }
+                } else {
+                    ret.add(Result.create(kvs));
+                }
             }
             // Check for early out optimization
             if (filter != null && filter.filterAllRemaining()) {
@@ -517,12 +547,14 @@ public class MockHTable implements Table {
     @Override
     public void put(Put put) throws IOException {
         byte[] row = put.getRow();
-        NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowData =
-            data.computeIfAbsent(row, k -> new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR));
         for (byte[] family : put.getFamilyCellMap().keySet()) {
             if (!columnFamilies.contains(new String(family))) {
                 throw new RuntimeException("Not Exists columnFamily : " + new String(family));
             }
+        }
+        NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowData =
+            data.computeIfAbsent(row, k -> new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR));
+        for (byte[] family : put.getFamilyCellMap().keySet()) {
             NavigableMap<byte[], NavigableMap<Long, byte[]>> familyData =
                 rowData.computeIfAbsent(family, k -> new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR));
             for (Cell kv : put.getFamilyCellMap().get(family)) {
@@ -624,18 +656,25 @@ public class MockHTable implements Table {
             }
             for (Cell kv : delete.getFamilyCellMap().get(family)) {
                 long ts = kv.getTimestamp();
-                if (kv.getType() == Cell.Type.DeleteColumn) {
-                    if (ts == HConstants.LATEST_TIMESTAMP) {
-                        rowData.get(CellUtil.cloneFamily(kv)).remove(CellUtil.cloneQualifier(kv));
-                    } else {
-                        rowData.get(CellUtil.cloneFamily(kv)).get(CellUtil.cloneQualifier(kv)).subMap(0L, true, ts, true).clear();
+                if (kv.getType() == Cell.Type.DeleteFamily) {
+                    for (NavigableMap<Long, byte[]> qualifierData : rowData.get(family).values()) {
+                        qualifierData.headMap(ts, true).clear();
                     }
+                    rowData.get(family).values().removeIf(Map::isEmpty);
+                    continue;
+                }
+                NavigableMap<Long, byte[]> qualifierData = rowData.get(family).get(CellUtil.cloneQualifier(kv));
+                if (qualifierData == null)
+                    continue;
+                if (kv.getType() == Cell.Type.DeleteColumn) {
+                    qualifierData.headMap(ts, true).clear();
+                } else if (ts == HConstants.LATEST_TIMESTAMP) {
+                    qualifierData.pollLastEntry();
                 } else {
-                    if (ts == HConstants.LATEST_TIMESTAMP) {
-                        rowData.get(CellUtil.cloneFamily(kv)).get(CellUtil.cloneQualifier(kv)).pollLastEntry();
-                    } else {
-                        rowData.get(CellUtil.cloneFamily(kv)).get(CellUtil.cloneQualifier(kv)).remove(ts);
-                    }
+                    qualifierData.remove(ts);
+                }
+                if (qualifierData.isEmpty()) {
+                    rowData.get(family).remove(CellUtil.cloneQualifier(kv));
                 }
             }
             if (rowData.get(family).isEmpty()) {
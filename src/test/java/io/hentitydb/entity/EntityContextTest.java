@@ -2,6 +2,7 @@ package io.hentitydb.entity;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import io.hentitydb.EntityConfiguration;
 import io.hentitydb.Environment;
 import io.hentitydb.serialization.LongCodec;
@@ -20,6 +21,10 @@ import javax.persistence.Column;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
@@ -441,6 +446,121 @@ public abstract class EntityContextTest {
         }
     }
 
+    @Entity
+    @javax.persistence.Table(name = "testentitytags")
+    public static class TestEntityUntagged {
+        public TestEntityUntagged() {
+        }
+
+        public TestEntityUntagged(String id, Long seq, String senderId, Long size) {
+            this.id = id;
+            this.seq = seq;
+            this.senderId = senderId;
+            this.size = size;
+        }
+
+        @Id
+        String id;
+        @ElementId
+        @Column
+        Long seq;
+        @Column
+        String senderId;
+        @Column
+        Long size;
+
+        @Override
+        public String toString() {
+            return id + "/" + seq + "/" + senderId + "/" + size;
+        }
+    }
+
+    @Entity
+    @javax.persistence.Table(name = "testentitytags")
+    public static class TestEntityMigratingTags {
+        public TestEntityMigratingTags() {
+        }
+
+        public TestEntityMigratingTags(String id, Long seq, String senderId, Long size) {
+            this.id = id;
+            this.seq = seq;
+            this.senderId = senderId;
+            this.size = size;
+        }
+
+        @Id
+        String id;
+        @ElementId
+        @Column
+        Long seq;
+        @Column
+        @ColumnTag(value = 1, legacyName = true)
+        String senderId;
+        @Column
+        @ColumnTag(value = 2, legacyName = true)
+        Long size;
+
+        @Override
+        public String toString() {
+            return id + "/" + seq + "/" + senderId + "/" + size;
+        }
+    }
+
+    @Entity
+    @javax.persistence.Table(name = "testentitytags")
+    public static class TestEntityTagged {
+        public TestEntityTagged() {
+        }
+
+        @Id
+        String id;
+        @ElementId
+        @Column
+        Long seq;
+        @Column
+        @ColumnTag(1)
+        String senderId;
+        @Column
+        @ColumnTag(2)
+        Long size;
+
+        @Override
+        public String toString() {
+            return id + "/" + seq + "/" + senderId + "/" + size;
+        }
+    }
+
+    @Entity
+    @Packed
+    @javax.persistence.Table(name = "testentitypacked")
+    public static class TestEntityPacked {
+        public TestEntityPacked() {
+        }
+
+        public TestEntityPacked(String id, Long seq, String senderId, Long size) {
+            this.id = id;
+            this.seq = seq;
+            this.senderId = senderId;
+            this.size = size;
+        }
+
+        @Id
+        String id;
+        @ElementId
+        @Column
+        Long seq;
+        @Column
+        String senderId;
+        @Column
+        @ColumnTag(1)
+        Long size;
+
+        @Override
+        public String toString() {
+            return id + "/" + seq + "/" + senderId + "/" + size;
+        }
+    }
+
     enum TestEnum { ENUM1, ENUM2, ENUM3 }
 
     @Entity
@@ -657,6 +777,547 @@ public abstract class EntityContextTest {
         LOG.info("NATIVE: " + entitiesNative);
     }
 
+    @Test
+    public void testMultiGet() throws Exception {
+        Map<String, List<TestEntity>> entitiesById;
+
+        entitiesById = manager.get(Lists.newArrayList("A", "C", "Z"));
+        LOG.info("NATIVE: " + entitiesById);
+        Assert.assertEquals(3, entitiesById.size());
+        Assert.assertEquals(20, entitiesById.get("A").size());
+        Assert.assertEquals(3, entitiesById.get("C").size());
+        Assert.assertEquals(0, entitiesById.get("Z").size());
+
+        entitiesById = manager.select()
+                .whereId().in("A", "B")
+                .whereElementId("part1").eq("b")
+                .whereElementId("part2").gte(5L)
+                .whereElementId("part2").lt(8L)
+                .limit(2)
+                .fetchById();
+        LOG.info("NATIVE: " + entitiesById);
+        Assert.assertEquals(2, entitiesById.get("A").size());
+        Assert.assertEquals(2, entitiesById.get("B").size());
+
+        Collection<TestEntity> entitiesNative = manager.select()
+                .whereId().in("A", "B")
+                .whereElementId("part1").eq("a")
+                .fetch();
+        Assert.assertEquals(20, entitiesNative.size());
+
+        int count = manager.select()
+                .whereId().in("C", "D", "E")
+                .count();
+        Assert.assertEquals(8, count);
+    }
+
+    @Test
+    public void testScanAll() throws Exception {
+        int count = 0;
+        try (EntityScanner<TestEntity> scanner = manager.scanAll(2, 3)) {
+            for (TestEntity entity : scanner) {
+                Assert.assertNotNull(entity.rowKey);
+                count++;
+            }
+        }
+        Assert.assertEquals(48, count);
+
+        List<String> expected;
+        try (EntityScanner<TestEntity> scanner = manager.scanAll()) {
+            expected = scanner.stream().map(TestEntity::toString).collect(Collectors.toList());
+        }
+        Assert.assertEquals(20, expected.stream().filter(e -> e.startsWith("TestEntity [key=B,")).count());
+
+        // batched scans split rows, and entities, across partial results
+        for (int batch : new int[]{1, 2, 3, 5}) {
+            try (EntityScanner<TestEntity> scanner = manager.scanAll(2, batch)) {
+                Assert.assertEquals(expected, scanner.stream().map(TestEntity::toString).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        AsyncEntityContext<TestEntity, String> async = manager.async();
+
+        async.put(new TestEntity("F", "f", 1L, 1L, "1")).get();
+        async.put(Lists.newArrayList(
+                new TestEntity("F", "f", 2L, 2L, "2"),
+                new TestEntity("F", "g", 3L, 3L, "3"))).get();
+        Assert.assertEquals(3, async.get("F").get().size());
+
+        Map<String, List<TestEntity>> entitiesById = async.get(Lists.newArrayList("A", "F")).get();
+        Assert.assertEquals(20, entitiesById.get("A").size());
+        Assert.assertEquals(3, entitiesById.get("F").size());
+
+        int count = async.select()
+                .whereId().eq("F")
+                .whereElementId("part1").eq("f")
+                .countAsync().get();
+        Assert.assertEquals(2, count);
+
+        boolean updated = async.update()
+                .whereId().eq("F")
+                .whereElementId("part1").eq("g")
+                .whereElementId("part2").eq(3L)
+                .setColumn("value2", "hi")
+                .ifElementId("part1").eq("g")
+                .ifElementId("part2").eq(3L)
+                .ifColumn("value2").eq("3")
+                .executeAsync().get();
+        Assert.assertTrue(updated);
+
+        updated = async.update()
+                .whereId().eq("F")
+                .whereElementId("part1").eq("g")
+                .whereElementId("part2").eq(3L)
+                .setColumn("value2", "bye")
+                .ifElementId("part1").eq("g")
+                .ifElementId("part2").eq(3L)
+                .ifColumn("value2").eq("3")
+                .executeAsync().get();
+        Assert.assertFalse(updated);
+
+        TestEntity entity = async.select()
+                .whereId().eq("F")
+                .whereElementId("part1").eq("g")
+                .fetchOneAsync().get();
+        Assert.assertEquals("hi", entity.value2);
+
+        boolean deleted = async.delete()
+                .whereId().eq("F")
+                .whereElementId("part1").eq("f")
+                .whereElementId("part2").eq(1L)
+                .executeAsync().get();
+        Assert.assertTrue(deleted);
+        Assert.assertEquals(2, async.get("F").get().size());
+
+        async.delete("F").get();
+        Assert.assertEquals(0, async.get("F").get().size());
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        List<TestEntity> entities = Lists.newArrayList();
+        String cursor = null;
+        int pages = 0;
+        do {
+            EntityPage<TestEntity> page = manager.select()
+                    .whereId().eq("A")
+                    .after(cursor)
+                    .limit(7)
+                    .fetchPage();
+            LOG.info("NATIVE: " + page);
+            entities.addAll(page.getEntities());
+            cursor = page.getCursor();
+            pages++;
+        } while (cursor != null);
+        Assert.assertEquals(3, pages);
+        Assert.assertEquals(manager.get("A").toString(), entities.toString());
+
+        // a page that ends the row has no cursor, even when it is full
+        entities.clear();
+        pages = 0;
+        do {
+            EntityPage<TestEntity> page = manager.select()
+                    .whereId().eq("A")
+                    .after(cursor)
+                    .limit(5)
+                    .fetchPage();
+            Assert.assertEquals(5, page.getEntities().size());
+            entities.addAll(page.getEntities());
+            cursor = page.getCursor();
+            pages++;
+        } while (cursor != null);
+        Assert.assertEquals(4, pages);
+        Assert.assertEquals(manager.get("A").toString(), entities.toString());
+
+        entities.clear();
+        pages = 0;
+        do {
+            EntityPage<TestEntity> page = manager.select()
+                    .whereId().eq("A")
+                    .whereElementId("part1").eq("b")
+                    .after(cursor)
+                    .limit(4)
+                    .fetchPage();
+            for (TestEntity entity : page.getEntities()) {
+                Assert.assertEquals("b", entity.part1);
+            }
+            entities.addAll(page.getEntities());
+            cursor = page.getCursor();
+            pages++;
+        } while (cursor != null);
+        Assert.assertEquals(3, pages);
+        Assert.assertEquals(10, entities.size());
+
+        // variable length element IDs are paged in storage order
+        entities.clear();
+        do {
+            EntityPage<TestEntity> page = manager.async().select()
+                    .whereId().eq("D")
+                    .after(cursor)
+                    .limit(1)
+                    .fetchPageAsync().get();
+            entities.addAll(page.getEntities());
+            cursor = page.getCursor();
+        } while (cursor != null);
+        Assert.assertEquals(manager.get("D").toString(), entities.toString());
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        List<TestEntity> entitiesNative = manager.select("part1", "value2")
+                .whereId().eq("A")
+                .fetch();
+
+        LOG.info("NATIVE: " + entitiesNative.toString());
+        Assert.assertEquals(manager.get("A").size(), entitiesNative.size());
+        for (TestEntity entity : entitiesNative) {
+            Assert.assertNotNull(entity.part2);
+            Assert.assertNull(entity.value);
+        }
+
+        // predicates may reference columns outside the projection
+        entitiesNative = manager.select("value2")
+                .whereId().eq("A")
+                .whereElementId("part1").eq("b")
+                .whereElementId("part2").gte(5L)
+                .whereElementId("part2").lt(8L)
+                .whereColumn("value").gte(36L)
+                .fetch();
+
+        LOG.info("NATIVE: " + entitiesNative.toString());
+        Assert.assertEquals(2, entitiesNative.size());
+        for (TestEntity entity : entitiesNative) {
+            Assert.assertNull(entity.value);
+        }
+
+        entitiesNative = manager.async().select("value")
+                .whereId().eq("A")
+                .whereElementId("part1").eq("b")
+                .whereColumn("value").gte(36L)
+                .limit(1)
+                .fetchAsync().get();
+
+        LOG.info("NATIVE: " + entitiesNative.toString());
+        Assert.assertEquals(1, entitiesNative.size());
+        Assert.assertTrue(entitiesNative.get(0).value >= 36L);
+        Assert.assertNull(entitiesNative.get(0).value2);
+    }
+
+    @Test
+    public void testBuffered() throws Exception {
+        List<String> failed = Lists.newArrayList();
+        BufferedMutatorParams<String> params = new BufferedMutatorParams<String>()
+                .setWriteBufferSize(1024 * 1024)
+                .setErrorListener((id, cause) -> failed.add(id));
+        try (BufferedEntityContext<TestEntity, String> buffered = manager.buffered(params)) {
+            buffered.put(new TestEntity("F", "f", 1L, 1L, "1"));
+            buffered.put(Lists.newArrayList(
+                    new TestEntity("F", "f", 2L, 2L, "2"),
+                    new TestEntity("G", "g", 3L, 3L, "3")));
+            // nothing has been sent yet
+            Assert.assertEquals(0, manager.get("F").size());
+
+            // a query on a row with buffered writes flushes them first
+            Assert.assertEquals(2, buffered.get("F").size());
+            Assert.assertEquals(1, manager.get("G").size());
+
+            buffered.remove(new TestEntity("F", "f", 1L, null, null));
+            buffered.delete("G");
+            Assert.assertEquals(2, manager.get("F").size());
+            buffered.flush();
+            Assert.assertEquals(1, manager.get("F").size());
+            Assert.assertEquals(0, manager.get("G").size());
+
+            buffered.put(new TestEntity("H", "h", 4L, 4L, "4"));
+        }
+        // closing flushes the remaining writes
+        Assert.assertEquals(1, manager.get("H").size());
+        Assert.assertTrue(failed.isEmpty());
+
+        params = new BufferedMutatorParams<String>().setFlushIntervalMs(10);
+        try (BufferedEntityContext<TestEntity, String> buffered = manager.buffered(params)) {
+            buffered.put(new TestEntity("I", "i", 5L, 5L, "5"));
+            for (int i = 0; i < 500 && manager.get("I").isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, manager.get("I").size());
+        }
+    }
+
+    @Test
+    public void testParallelDecoding() throws Exception {
+        List<TestEntity> entities = Lists.newArrayList();
+        for (long i = 0; i < 500; i++) {
+            entities.add(new TestEntity("W", "w" + (i % 7), i, i, String.valueOf(i)));
+        }
+        manager.put(entities);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            EntityContext<TestEntity, String> parallel = new DefaultEntityContext<TestEntity, String>(conn, TestEntity.class)
+                    .setParallelDecodingThreshold(100)
+                    .setDecodingPool(pool);
+            List<TestEntity> serialEntities = manager.get("W");
+            List<TestEntity> parallelEntities = parallel.get("W");
+            Assert.assertEquals(500, parallelEntities.size());
+            Assert.assertEquals(serialEntities.toString(), parallelEntities.toString());
+            // rows below the threshold are decoded serially
+            Assert.assertEquals(manager.get("A").toString(), parallel.get("A").toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFetchLazy() throws Exception {
+        List<TestEntity> entities = manager.select().whereId().in("A", "B").fetch();
+        List<TestEntity> lazyEntities = manager.select().whereId().in("A", "B").fetchLazy();
+        Assert.assertEquals(entities.size(), lazyEntities.size());
+        // entities are constructed once
+        Assert.assertTrue(lazyEntities.get(5) == lazyEntities.get(5));
+        Assert.assertEquals(entities.toString(), lazyEntities.toString());
+        Assert.assertEquals(entities.subList(0, 3).toString(),
+                manager.select().whereId().gte("A").limit(3).fetchLazy().toString());
+        try {
+            lazyEntities.set(0, null);
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            // read-only
+        }
+    }
+
+    @Test
+    public void testColumnTags() throws Exception {
+        EntityContext<TestEntityUntagged, String> untagged = Environment.getEntityContext(conn, TestEntityUntagged.class);
+        DefaultEntityContext<TestEntityMigratingTags, String> migrating =
+                new DefaultEntityContext<>(conn, TestEntityMigratingTags.class);
+        DefaultEntityContext<TestEntityTagged, String> tagged = new DefaultEntityContext<>(conn, TestEntityTagged.class);
+        try {
+            for (long i = 1; i <= 3; i++) {
+                untagged.put(new TestEntityUntagged("T", i, "sender" + i, i * 10));
+            }
+            untagged.put(new TestEntityUntagged("U", 1L, "sender1", 10L));
+
+            // columns stored under the field names are read while migrating
+            Assert.assertEquals("[T/1/sender1/10, T/2/sender2/20, T/3/sender3/30]", migrating.get("T").toString());
+
+            // the tagged column supersedes the column stored under the field name
+            migrating.put(new TestEntityMigratingTags("T", 2L, "other", 25L));
+            Assert.assertEquals("[T/1/sender1/10, T/2/other/25, T/3/sender3/30]", migrating.get("T").toString());
+            Assert.assertEquals("[T/2/other/25]", migrating.select()
+                    .whereId().eq("T")
+                    .whereColumn("senderId").eq("other")
+                    .fetch().toString());
+            Assert.assertEquals(0, migrating.select()
+                    .whereId().eq("T")
+                    .whereColumn("senderId").eq("sender2")
+                    .count());
+            Assert.assertEquals(65L, migrating.select().whereId().eq("T").aggregate("size").getSum().longValue());
+
+            Set<Long> timestamps = Sets.newHashSet();
+            for (io.hentitydb.store.Column<byte[]> column : untagged.select().whereId().eq("U").fetchRows().get(0).getColumns()) {
+                timestamps.add(column.getTimestamp());
+            }
+
+            Assert.assertEquals(2, migrating.migrateColumnTags());
+            Assert.assertEquals(0, migrating.migrateColumnTags());
+
+            // the migrated columns keep their timestamps
+            Set<Long> migratedTimestamps = Sets.newHashSet();
+            for (io.hentitydb.store.Column<byte[]> column : tagged.select().whereId().eq("U").fetchRows().get(0).getColumns()) {
+                migratedTimestamps.add(column.getTimestamp());
+            }
+            Assert.assertEquals(timestamps, migratedTimestamps);
+
+            Assert.assertEquals("[T/1/sender1/10, T/2/other/25, T/3/sender3/30]", tagged.get("T").toString());
+            Assert.assertEquals("[U/1/sender1/10]", tagged.get("U").toString());
+            for (io.hentitydb.store.Column<byte[]> column : tagged.select().whereId().eq("T").fetchRows().get(0).getColumns()) {
+                String valueName = EntityMapper.getValueName(1, ByteBuffer.wrap(column.getRawName()));
+                Assert.assertTrue(valueName == null || valueName.length() == 1);
+            }
+            Assert.assertEquals("[T/3/null/30]", tagged.select("size")
+                    .whereId().eq("T")
+                    .whereColumn("senderId").eq("sender3")
+                    .fetch().toString());
+            Assert.assertEquals(65L, tagged.select().whereId().eq("T").aggregate("size").getSum().longValue());
+
+            tagged.delete().whereId().eq("T").whereElementId("seq").eq(2L).execute();
+            Assert.assertEquals("[T/1/sender1/10, T/3/sender3/30]", tagged.get("T").toString());
+        } finally {
+            untagged.truncate();
+        }
+    }
+
+    @Test
+    public void testBadColumnTags() throws Exception {
+        try {
+            new EntityMapper<>(TestEntityWithBadTag.class);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOG.info(e.getMessage(), e);
+        }
+    }
+
+    @Test
+    public void testPacked() throws Exception {
+        EntityContext<TestEntityPacked, String> packed = Environment.getEntityContext(conn, TestEntityPacked.class);
+        try {
+            for (long i = 1; i <= 3; i++) {
+                packed.put(new TestEntityPacked("P", i, "sender" + i, i * 10));
+            }
+            packed.put(new TestEntityPacked("P", 4L, null, null));
+            Assert.assertEquals("[P/1/sender1/10, P/2/sender2/20, P/3/sender3/30, P/4/null/null]",
+                    packed.get("P").toString());
+            Assert.assertEquals("P/2/sender2/20",
+                    packed.selectOne().whereId().eq("P").whereElementId("seq").eq(2L).fetchOne().toString());
+
+            // each entity is stored in a single cell
+            Assert.assertEquals(4, packed.select().whereId().eq("P").fetchRows().get(0).getColumns().size());
+
+            Assert.assertEquals("[P/3/sender3/30]", packed.select()
+                    .whereId().eq("P")
+                    .whereColumn("size").gt(20L)
+                    .fetch().toString());
+            Assert.assertEquals("[P/4/null/null]", packed.select()
+                    .whereId().eq("P")
+                    .whereColumn("senderId").isNull()
+                    .fetch().toString());
+            Assert.assertEquals("[P/1/null/10]", packed.select("size")
+                    .whereId().eq("P")
+                    .whereColumn("senderId").eq("sender1")
+                    .fetch().toString());
+            Assert.assertEquals("[P/1/null/10]", packed.select("size")
+                    .whereId().eq("P")
+                    .whereColumn("senderId").eq("sender1")
+                    .fetchLazy().toString());
+            Assert.assertEquals(2, packed.select()
+                    .whereId().eq("P")
+                    .whereColumn("size").gte(20L)
+                    .count());
+            Assert.assertEquals(60L, packed.select().whereId().eq("P").aggregate("size").getSum().longValue());
+
+            packed.update().whereId().eq("P").whereElementId("seq").eq(2L)
+                    .setColumn("senderId", "other").setColumn("size", 25L).execute();
+            Assert.assertEquals("P/2/other/25",
+                    packed.selectOne().whereId().eq("P").whereElementId("seq").eq(2L).fetchOne().toString());
+            try {
+                packed.update().whereId().eq("P").whereElementId("seq").eq(2L).setColumn("size", 26L).execute();
+                Assert.fail();
+            } catch (PersistenceException e) {
+                LOG.info(e.getMessage(), e);
+            }
+
+            packed.delete().whereId().eq("P").whereElementId("seq").eq(2L).execute();
+            Assert.assertEquals("[P/1/sender1/10, P/3/sender3/30, P/4/null/null]", packed.get("P").toString());
+        } finally {
+            packed.truncate();
+        }
+    }
+
+    @Entity
+    public static class TestEntityWithBadTag {
+        @Id
+        String id;
+        @Column
+        @ColumnTag(32)
+        String column;
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        CachedEntityContext<TestEntity, String> cached = manager.cached(new EntityCacheParams().setMaximumSize(2));
+        Assert.assertEquals(20, cached.get("A").size());
+        Assert.assertEquals(20, cached.get("A").size());
+        Assert.assertEquals(1, cached.stats().hitCount());
+        Assert.assertEquals(1, cached.stats().missCount());
+
+        // each hit returns new entities, so changing them does not change the cached row
+        cached.get("A").get(0).value2 = "changed";
+        Assert.assertEquals("0", cached.get("A").get(0).value2);
+
+        // writes through other contexts are not seen until the row is invalidated
+        manager.put(new TestEntity("A", "c", 1L, 1L, "1"));
+        Assert.assertEquals(20, cached.get("A").size());
+        cached.invalidate("A");
+        Assert.assertEquals(21, cached.get("A").size());
+
+        // writes through the cached context invalidate the row
+        cached.remove(new TestEntity("A", "c", 1L, null, null));
+        Assert.assertEquals(20, cached.get("A").size());
+        cached.update()
+                .whereId().eq("A")
+                .whereElementId("part1").eq("c")
+                .whereElementId("part2").eq(2L)
+                .setColumn("value", 2L)
+                .execute();
+        Assert.assertEquals(21, cached.get("A").size());
+        // the family is limited to 5 entities per row
+        Assert.assertEquals(5, cached.get("A", "c").size());
+        cached.delete("A");
+        Assert.assertEquals(0, cached.get("A").size());
+        Assert.assertEquals(0, cached.get("A", "c").size());
+
+        Map<String, List<TestEntity>> entitiesById = cached.get(Lists.newArrayList("B", "C", "D"));
+        Assert.assertEquals(20, entitiesById.get("B").size());
+        Assert.assertEquals(3, entitiesById.get("C").size());
+        Assert.assertEquals(3, entitiesById.get("D").size());
+        Assert.assertTrue(cached.stats().evictionCount() > 0);
+
+        CachedEntityContext<TestEntityWithTTL, String> cachedTtl = manager6.cached(new EntityCacheParams());
+        manager6.put(new TestEntityWithTTL("A", "foo"));
+        Assert.assertEquals(1, cachedTtl.get("A").size());
+        Assert.assertEquals(1, cachedTtl.get("A").size());
+        Assert.assertEquals(1, cachedTtl.stats().hitCount());
+        // the row leaves the cache once its TTL could have expired
+        Thread.sleep(2100);
+        Assert.assertEquals(1, cachedTtl.get("A").size());
+        Assert.assertEquals(1, cachedTtl.stats().hitCount());
+        Assert.assertEquals(2, cachedTtl.stats().missCount());
+    }
+
+    @Test
+    public void testLast() throws Exception {
+        List<TestEntity> all = manager.get("A");
+        List<TestEntity> entitiesNative = manager.select()
+                .whereId().eq("A")
+                .last(3)
+                .fetch();
+
+        LOG.info("NATIVE: " + entitiesNative.toString());
+        Assert.assertEquals(all.subList(all.size() - 3, all.size()).toString(), entitiesNative.toString());
+
+        entitiesNative = manager.select()
+                .whereId().eq("A")
+                .whereElementId("part1").eq("b")
+                .whereColumn("value").lt(36L)
+                .last(2)
+                .fetch();
+
+        LOG.info("NATIVE: " + entitiesNative.toString());
+        List<TestEntity> matching = Lists.newArrayList();
+        for (TestEntity entity : all) {
+            if (entity.part1.equals("b") && entity.value != null && entity.value < 36L) {
+                matching.add(entity);
+            }
+        }
+        Assert.assertEquals(matching.subList(matching.size() - 2, matching.size()).toString(),
+                entitiesNative.toString());
+
+        entitiesNative = manager.select("value")
+                .whereId().eq("A")
+                .last(all.size() + 1)
+                .fetch();
+        Assert.assertEquals(all.size(), entitiesNative.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProjectionInvalidField() throws Exception {
+        manager.select("bogus");
+    }
+
     @Test
     public void testIsNull() throws Exception {
         Collection<TestEntity> entitiesNative;
@@ -1018,6 +1679,108 @@ public abstract class EntityContextTest {
         Assert.assertEquals(0, entitiesNative.size());
     }
 
+    @Test
+    public void testBatch() throws Exception {
+        List<Boolean> results = manager.batch()
+                .add(manager.update()
+                        .whereId().eq("A")
+                        .whereElementId("part1").eq("a")
+                        .whereElementId("part2").eq(1L)
+                        .setColumn("value2", "hi"))
+                .add(manager.delete()
+                        .whereId().eq("A")
+                        .whereElementId("part1").eq("a")
+                        .whereElementId("part2").eq(2L))
+                .add(manager.update()
+                        .whereId().eq("B")
+                        .whereElementId("part1").eq("a")
+                        .whereElementId("part2").eq(1L)
+                        .setColumn("value2", "bye")
+                        .ifElementId("part1").eq("a")
+                        .ifElementId("part2").eq(1L)
+                        .ifColumn("value2").eq("x"))
+                .add(manager.delete()
+                        .whereId().eq("E")
+                        .whereElementId("part1").eq("e")
+                        .whereElementId("part2").eq(4L))
+                .add(manager.update()
+                        .fromColumnFamily("missing")
+                        .whereId().eq("F")
+                        .whereElementId("part1").eq("f")
+                        .whereElementId("part2").eq(6L)
+                        .setColumn("value2", "6"))
+                .add(manager.delete()
+                        .whereId().eq("D"))
+                .add(manager.update()
+                        .whereId().eq("D")
+                        .whereElementId("part1").eq("xyz")
+                        .whereElementId("part2").eq(2L)
+                        .setColumn("value2", "hi"))
+                .execute();
+        Assert.assertEquals(Arrays.asList(true, true, false, true, false, true, true), results);
+
+        Collection<TestEntity> entitiesNative = manager.select()
+                .whereId().eq("A")
+                .whereElementId("part1").eq("a")
+                .whereElementId("part2").eq(1L)
+                .fetch();
+        Assert.assertEquals("hi", entitiesNative.iterator().next().value2);
+        entitiesNative = manager.select()
+                .whereId().eq("A")
+                .whereElementId("part1").eq("a")
+                .whereElementId("part2").eq(2L)
+                .fetch();
+        Assert.assertEquals(0, entitiesNative.size());
+        entitiesNative = manager.select()
+                .whereId().eq("B")
+                .whereElementId("part1").eq("a")
+                .whereElementId("part2").eq(1L)
+                .fetch();
+        Assert.assertEquals("1", entitiesNative.iterator().next().value2);
+        Assert.assertEquals(1, manager.get("E").size());
+        entitiesNative = manager.get("D");
+        Assert.assertEquals(1, entitiesNative.size());
+        Assert.assertEquals("hi", entitiesNative.iterator().next().value2);
+
+        results = manager.async().batch()
+                .add(manager.update()
+                        .whereId().eq("B")
+                        .whereElementId("part1").eq("a")
+                        .whereElementId("part2").eq(1L)
+                        .setColumn("value2", "bye")
+                        .ifElementId("part1").eq("a")
+                        .ifElementId("part2").eq(1L)
+                        .ifColumn("value2").eq("1"))
+                .add(manager.delete()
+                        .whereId().eq("E"))
+                .add(manager.update()
+                        .fromColumnFamily("missing")
+                        .whereId().eq("F")
+                        .whereElementId("part1").eq("f")
+                        .whereElementId("part2").eq(6L)
+                        .setColumn("value2", "6"))
+                .add(manager.delete()
+                        .whereId().eq("C"))
+                .add(manager.update()
+                        .whereId().eq("C")
+                        .whereElementId("part1").eq("c")
+                        .whereElementId("part2").eq(1L)
+                        .setColumn("value2", "bye"))
+                .executeAsync()
+                .get();
+        Assert.assertEquals(Arrays.asList(true, true, false, true, true), results);
+        Assert.assertEquals(0, manager.get("E").size());
+        entitiesNative = manager.get("C");
+        Assert.assertEquals(1, entitiesNative.size());
+        Assert.assertEquals("bye", entitiesNative.iterator().next().value2);
+        entitiesNative = manager.select()
+                .whereId().eq("B")
+                .whereElementId("part1").eq("a")
+                .whereElementId("part2").eq(1L)
+                .fetch();
+        Assert.assertEquals("bye", entitiesNative.iterator().next().value2);
+    }
+
     @Test
     public void testBadMutations() throws Exception {
         try {
@@ -1220,6 +1983,57 @@ public abstract class EntityContextTest {
         Assert.assertEquals(12, count);
     }
 
+    @Test
+    public void testPreparedSelect() throws Exception {
+        PreparedSelect.Parameter<Long> from = PreparedSelect.param("from", Long.class);
+        PreparedSelect.Parameter<Long> maxValue = PreparedSelect.param("maxValue", Long.class);
+        PreparedSelect<TestEntity, String> prepared = manager.prepareSelect(manager.select()
+                .whereElementId("part1").eq("b")
+                .whereElementId("part2").gte(from)
+                .whereColumn("value").lt(maxValue));
+
+        List<TestEntity> entitiesNative = prepared.bind("B").bind(from, 5L).bind(maxValue, 64L).fetch();
+
+        LOG.info("NATIVE: " + entitiesNative.toString());
+        Assert.assertEquals(3, entitiesNative.size());
+        Assert.assertEquals(5L, entitiesNative.get(0).part2.longValue());
+
+        entitiesNative = prepared.bind("A").bind(from, 0L).bind(maxValue, 25L).fetchAsync().get();
+        Assert.assertEquals(5, entitiesNative.size());
+        Assert.assertEquals("A", entitiesNative.get(0).rowKey);
+
+        Assert.assertEquals(5, prepared.bind("A").bind(from, 0L).bind(maxValue, 25L).count());
+
+        try {
+            prepared.bind("A").bind(from, 0L).fetch();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // a query without parameters reuses the same serialized filter for every row
+        PreparedSelect<TestEntity, String> unparameterized = manager.prepareSelect(manager.select()
+                .whereElementId("part1").eq("b")
+                .whereColumn("value").gte(16L));
+        Assert.assertEquals(6, unparameterized.bind("A").fetch().size());
+        Assert.assertEquals(6, unparameterized.bind("B").fetch().size());
+        Assert.assertEquals(6, unparameterized.bind("B").count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreparedSelectBadParameterType() throws Exception {
+        manager.prepareSelect(manager.select()
+                .whereElementId("part2").gte(PreparedSelect.param("from", String.class)));
+    }
+
+    @Test(expected = PersistenceException.class)
+    public void testSelectWithUnboundParameter() throws Exception {
+        manager.select()
+                .whereId().eq("A")
+                .whereElementId("part2").gte(PreparedSelect.param("from", Long.class))
+                .fetch();
+    }
+
     @Test
     public void testSelectOneQuery() throws Exception {
         TestEntity entity;
@@ -1762,5 +2576,186 @@ public abstract class EntityContextTest {
                 .count();
 
         Assert.assertEquals(6, count);
+
+        count = managerInbox.select()
+                .fromColumnFamily("u")
+                .whereId().eq("inbox1")
+                .limit(4)
+                .count();
+
+        Assert.assertEquals(4, count);
+
+        count = managerInbox.select()
+                .fromColumnFamily("u")
+                .whereId().eq("inbox1")
+                .last(4)
+                .count();
+
+        Assert.assertEquals(4, count);
+
+        count = managerInbox.select()
+                .whereId().eq("inbox2")
+                .count();
+
+        Assert.assertEquals(0, count);
+    }
+
+    @Test
+    public void testCountWithPredicate() throws Exception {
+        for (long value = 0; value <= 40; value += 10) {
+            List<TestEntity> entities = manager.select()
+                    .whereId().eq("B")
+                    .whereColumn("value").gte(value)
+                    .fetch();
+            int count = manager.select()
+                    .whereId().eq("B")
+                    .whereColumn("value").gte(value)
+                    .count();
+            Assert.assertEquals(entities.size(), count);
+            count = manager.async().select()
+                    .whereId().eq("B")
+                    .whereColumn("value").gte(value)
+                    .countAsync().get();
+            Assert.assertEquals(entities.size(), count);
+        }
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        for (long value = 0; value <= 40; value += 10) {
+            List<TestEntity> entities = manager.select()
+                    .whereId().in("A", "B")
+                    .whereColumn("value").gte(value)
+                    .fetch();
+            long sum = 0;
+            Long min = null;
+            Long max = null;
+            for (TestEntity entity : entities) {
+                sum += entity.value;
+                min = min == null ? entity.value : Math.min(min, entity.value);
+                max = max == null ? entity.value : Math.max(max, entity.value);
+            }
+            EntityAggregate aggregate = manager.select()
+                    .whereId().in("A", "B")
+                    .whereColumn("value").gte(value)
+                    .aggregate("value");
+            Assert.assertEquals(entities.size(), aggregate.getCount());
+            Assert.assertEquals(sum, aggregate.getSum().longValue());
+            Assert.assertEquals(min, aggregate.getMin() != null ? aggregate.getMin().longValue() : null);
+            Assert.assertEquals(max, aggregate.getMax() != null ? aggregate.getMax().longValue() : null);
+            if (!entities.isEmpty()) {
+                Assert.assertEquals((double) sum / entities.size(), aggregate.getAverage().doubleValue(), 0.0001);
+            }
+            aggregate = manager.async().select()
+                    .whereId().in("A", "B")
+                    .whereColumn("value").gte(value)
+                    .aggregateAsync("value").get();
+            Assert.assertEquals(entities.size(), aggregate.getCount());
+            Assert.assertEquals(sum, aggregate.getSum().longValue());
+        }
+
+        List<TestEntity> entities = manager.select()
+                .whereId().eq("B")
+                .limit(2)
+                .fetch();
+        EntityAggregate aggregate = manager.select()
+                .whereId().eq("B")
+                .limit(2)
+                .aggregate("value");
+        Assert.assertEquals(2, aggregate.getCount());
+        Assert.assertEquals(entities.get(0).value + entities.get(1).value, aggregate.getSum().longValue());
+
+        aggregate = manager.select()
+                .whereId().eq("missing")
+                .aggregate("value");
+        Assert.assertEquals(0, aggregate.getCount());
+        Assert.assertNull(aggregate.getAverage());
+    }
+
+    @Test
+    public void testSelectRange() throws Exception {
+        List<TestEntity> expected = manager.select()
+                .whereId().in("B", "C", "D")
+                .whereColumn("value").gte(4L)
+                .fetch();
+        List<TestEntity> entities = manager.select()
+                .whereId().between("B", "D")
+                .whereColumn("value").gte(4L)
+                .fetch();
+        Assert.assertEquals(expected.toString(), entities.toString());
+        entities = manager.async().select()
+                .whereId().between("B", "D")
+                .whereColumn("value").gte(4L)
+                .fetchAsync().get();
+        Assert.assertEquals(expected.toString(), entities.toString());
+
+        Map<String, List<TestEntity>> entitiesById = manager.select()
+                .whereId().gte("D")
+                .fetchById();
+        Assert.assertEquals(Lists.newArrayList("D", "E"), Lists.newArrayList(entitiesById.keySet()));
+        Assert.assertEquals(3, entitiesById.get("D").size());
+        Assert.assertEquals(2, entitiesById.get("E").size());
+
+        // the limit applies to all rows in the range
+        entities = manager.select()
+                .whereId().lte("B")
+                .limit(15)
+                .fetch();
+        Assert.assertEquals(15, entities.size());
+        Assert.assertEquals("A", entities.get(14).rowKey);
+        entitiesById = manager.select()
+                .whereId().lte("B")
+                .limit(25)
+                .fetchById();
+        Assert.assertEquals(20, entitiesById.get("A").size());
+        Assert.assertEquals(5, entitiesById.get("B").size());
+
+        Assert.assertEquals(48, manager.select().whereId().between("A", "E").count());
+        Assert.assertEquals(25, manager.select().whereId().between("A", "E").limit(25).count());
+
+        EntityAggregate aggregate = manager.select()
+                .whereId().between("A", "B")
+                .aggregate("value");
+        EntityAggregate expectedAggregate = manager.select()
+                .whereId().in("A", "B")
+                .aggregate("value");
+        Assert.assertEquals(expectedAggregate.toString(), aggregate.toString());
+    }
+
+    @Test
+    public void testSelectSaltedRange() throws Exception {
+        for (String inboxId : new String[] { "inbox1", "inbox2", "inbox3" }) {
+            for (long elementId = 1; elementId <= 3; elementId++) {
+                managerInbox.put(new PInboxEntry("u", inboxId, elementId, elementId, 0, false, false, false, false, 0L));
+            }
+        }
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Map<String, List<PInboxEntry>> entriesById = managerInbox.select()
+                    .fromColumnFamily("u")
+                    .whereId().between("inbox1", "inbox2")
+                    .withExecutor(executor)
+                    .fetchById();
+            Assert.assertEquals(Sets.newHashSet("inbox1", "inbox2"), entriesById.keySet());
+            Assert.assertEquals(3, entriesById.get("inbox1").size());
+            Assert.assertEquals(3, entriesById.get("inbox2").size());
+
+            int count = managerInbox.select()
+                    .fromColumnFamily("u")
+                    .whereId().gte("inbox2")
+                    .withExecutor(executor)
+                    .count();
+            Assert.assertEquals(6, count);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAggregateNonNumericField() {
+        manager.select()
+                .whereId().eq("B")
+                .aggregate("value2");
     }
 }
@@ -0,0 +1,94 @@
+package io.hentitydb.entity;
+
+import com.google.common.collect.Lists;
+import io.hentitydb.EntityConfiguration;
+import io.hentitydb.Environment;
+import io.hentitydb.entity.EntityContextTest.TestEntity;
+import io.hentitydb.serialization.Codec;
+import io.hentitydb.store.Column;
+import io.hentitydb.store.CompareOp;
+import io.hentitydb.store.Connection;
+import io.hentitydb.store.Row;
+import io.hentitydb.store.Table;
+import io.hentitydb.store.TableMetadata;
+import io.hentitydb.store.hbase.HBaseFilter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Measures the throughput of the server-side entity filter over the cells of a wide row, as the region server
+ * would drive it.  Run with the number of entities in the row as an optional argument.
+ */
+public class EntityFilterBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 50;
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        EntityConfiguration config = new EntityConfiguration(new Configuration());
+        config.setAutoTableCreation(true);
+        config.setTestMode(true);
+        try (Connection conn = Environment.getConnectionFactory(config).createConnection()) {
+            DefaultEntityContext<TestEntity, String> context = new DefaultEntityContext<>(conn, TestEntity.class);
+            EntityMapper<TestEntity, String> mapper = context.getEntityMapper();
+            List<TestEntity> entities = Lists.newArrayListWithExpectedSize(size);
+            for (long i = 0; i < size; i++) {
+                entities.add(new TestEntity("bench", "p" + (i % 100), i, i * i, String.valueOf(i % 10)));
+            }
+            context.put(entities);
+            Row<String, byte[]> row = context.select().whereId().eq("bench").fetchRows().get(0);
+            List<Cell> cells = Lists.newArrayListWithExpectedSize(row.getColumns().size());
+            for (Column<byte[]> column : row.getColumns()) {
+                cells.add(new KeyValue(row.getRawKey(), Bytes.toBytes(column.getFamily()), column.getRawName(),
+                        column.getTimestamp(), column.getBytes()));
+            }
+
+            Codec<String> valueCodec = (Codec<String>) mapper.getValueMapper("value2").getCodec();
+            ColumnPredicate predicate = new ColumnPredicate()
+                    .setName("value2")
+                    .setOp(CompareOp.EQUAL)
+                    .setValue(ByteBuffer.wrap(valueCodec.encode("5")));
+            try (Table<String, byte[]> table = context.getTable()) {
+                TableMetadata<String, byte[]> metadata = table.getMetadata();
+                HBaseFilter<String, byte[]> filter = new HBaseFilter<>(
+                        new EntityFilter<>(mapper.getNumComponents(), predicate, -1),
+                        metadata.getKeyCodec(), metadata.getColumnCodec(), false);
+                List<Cell> included = Lists.newArrayListWithExpectedSize(cells.size());
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    filter(filter, cells, included);
+                }
+                long start = System.nanoTime();
+                int matches = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    matches = filter(filter, cells, included);
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("entities=%d cells=%d matches=%d filter=%.0f cells/s%n",
+                        size, cells.size(), matches, (double) cells.size() * ITERATIONS / (elapsed / 1e9));
+            } finally {
+                context.truncate();
+            }
+        }
+    }
+
+    private static int filter(HBaseFilter<String, byte[]> filter, List<Cell> cells, List<Cell> included) {
+        filter.reset();
+        included.clear();
+        for (Cell cell : cells) {
+            if (filter.filterKeyValue(cell) == ReturnCode.INCLUDE_AND_NEXT_COL) {
+                included.add(filter.transformCell(cell));
+            }
+        }
+        filter.filterRowCells(included);
+        return included.size();
+    }
+}
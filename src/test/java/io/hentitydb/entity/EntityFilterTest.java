@@ -1,8 +1,13 @@
 package io.hentitydb.entity;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.hentitydb.serialization.BytesUtil;
+import io.hentitydb.serialization.DoubleCodec;
 import io.hentitydb.serialization.LongCodec;
 import io.hentitydb.serialization.StringCodec;
+import io.hentitydb.store.BooleanOp;
 import io.hentitydb.store.CompareOp;
 import io.hentitydb.store.KeyColumn;
 import org.junit.Assert;
@@ -18,6 +23,7 @@ import javax.persistence.Table;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class EntityFilterTest {
@@ -126,4 +132,360 @@ public class EntityFilterTest {
         }
         Assert.assertEquals(2, keyColumns.size());
     }
+
+    @Test
+    public void testFamilies() throws Exception {
+        EntityFilter<String> projectionFilter = new EntityFilter<String>(entityMapper.getNumComponents(), rawPredicate, -1)
+                .setProjection(Sets.newHashSet("value"));
+        EntityFilter<String> tailFilter = new EntityFilter<String>(entityMapper.getNumComponents(), null, 2)
+                .setTail(true);
+        // round trip the filters as they would be sent to the server
+        projectionFilter = (EntityFilter<String>) projectionFilter.decode(projectionFilter.encode(projectionFilter));
+        tailFilter = (EntityFilter<String>) tailFilter.decode(tailFilter.encode(tailFilter));
+
+        // entities in different families may have the same element IDs
+        List<KeyColumn<String, byte[]>> projectedColumns = Lists.newArrayList();
+        List<KeyColumn<String, byte[]>> tailColumns = Lists.newArrayList();
+        for (String family : new String[] { "c1", "c2" }) {
+            TestEntity entity = new TestEntity("A", "a", 1L, 2L, family.equals("c1") ? "foo" : "bar");
+            for (String valueName : new String[] { null, "value", "value2" }) {
+                byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, valueName));
+                byte[] value = "value2".equals(valueName) ? STRING_CODEC.encode(entity.value2) : new byte[0];
+                KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                        new TestColumn(family, colName, value));
+                if (projectionFilter.filterKeyColumn(keyColumn)) {
+                    projectedColumns.add(keyColumn);
+                }
+                if (tailFilter.filterKeyColumn(keyColumn)) {
+                    tailColumns.add(keyColumn);
+                }
+            }
+        }
+
+        // only the entity in the first family matches
+        Assert.assertEquals(4, projectedColumns.size());
+        Assert.assertEquals(Sets.newHashSet(0, 1), projectionFilter.filterRow(projectedColumns));
+
+        // both entities are kept in the ring
+        Assert.assertTrue(tailFilter.filterRow(tailColumns).isEmpty());
+        List<io.hentitydb.store.Column<byte[]>> rowColumns = tailFilter.getRowColumns();
+        Assert.assertEquals(6, rowColumns.size());
+        Assert.assertEquals("c1", rowColumns.get(0).getFamily());
+        Assert.assertEquals("c2", rowColumns.get(5).getFamily());
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        TestEntity entity1 = new TestEntity("A", "a", 1L, 2L, "foo");
+        TestEntity entity2 = new TestEntity("A", "a", 2L, 3L, "bar");
+        ByteBuffer cursor = EntityMapper.getCursor(entityMapper.getNumComponents(),
+                entityMapper.toColumnName(entity1, "value2"));
+
+        EntityFilter<String> cursorFilter = new EntityFilter<String>(entityMapper.getNumComponents(), null, -1)
+                .setCursor(cursor);
+        // round trip the filter as it would be sent to the server
+        cursorFilter = (EntityFilter<String>) cursorFilter.decode(cursorFilter.encode(cursorFilter));
+
+        for (String valueName : new String[] { null, "value", "value2" }) {
+            byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity1, valueName));
+            KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity1.rowKey),
+                    new TestColumn(colName, new byte[0]));
+            Assert.assertArrayEquals(EntityMapper.BYTE_BUFFER_CODEC.encode(cursor.duplicate()),
+                    cursorFilter.getNextColumnHint(keyColumn));
+        }
+        for (String valueName : new String[] { null, "value", "value2" }) {
+            byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity2, valueName));
+            KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity2.rowKey),
+                    new TestColumn(colName, new byte[0]));
+            Assert.assertNull(cursorFilter.getNextColumnHint(keyColumn));
+        }
+    }
+
+    @Test
+    public void testContiguousRange() throws Exception {
+        List<ColumnPredicate> predicates = Lists.newArrayList(
+                new ColumnPredicate().setName("part1").setOp(CompareOp.EQUAL)
+                        .setValue(ByteBuffer.wrap(STRING_CODEC.encode("a"))),
+                new ColumnPredicate().setName("part2").setOp(CompareOp.GREATER_THAN_EQUAL)
+                        .setValue(ByteBuffer.wrap(LONG_CODEC.encode(2L))),
+                new ColumnPredicate().setName("part2").setOp(CompareOp.LESS_THAN)
+                        .setValue(ByteBuffer.wrap(LONG_CODEC.encode(4L))));
+        Assert.assertTrue(entityMapper.isContiguousRange(predicates));
+        // strings are stored by length first
+        Assert.assertFalse(entityMapper.isContiguousRange(Lists.newArrayList(
+                new ColumnPredicate().setName("part1").setOp(CompareOp.GREATER_THAN)
+                        .setValue(ByteBuffer.wrap(STRING_CODEC.encode("a"))))));
+        Assert.assertFalse(entityMapper.isContiguousRange(predicates.subList(1, 3)));
+
+        ByteBuffer[] endpoints = entityMapper.getQueryEndpoints(predicates);
+        EntityFilter<String> rangeFilter = new EntityFilter<String>(
+                entityMapper.getNumComponents(), endpoints[0], endpoints[1], null, -1)
+                .setContiguousRange(true)
+                .setSingleFamily(true);
+        // round trip the filter as it would be sent to the server
+        rangeFilter = (EntityFilter<String>) rangeFilter.decode(rangeFilter.encode(rangeFilter));
+
+        byte[] first = EntityMapper.BYTE_BUFFER_CODEC.encode(
+                entityMapper.toColumnName(new TestEntity("A", "a", 2L, 2L, "foo"), null));
+        for (long part2 = 1; part2 <= 4; part2++) {
+            TestEntity entity = new TestEntity("A", "a", part2, part2, "foo");
+            for (String valueName : new String[] { null, "value", "value2" }) {
+                byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, valueName));
+                KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                        new TestColumn(colName, new byte[0]));
+                byte[] hint = rangeFilter.getNextColumnHint(keyColumn);
+                if (part2 == 1) {
+                    // the seek must not pass the first column in range
+                    Assert.assertNotNull(hint);
+                    Assert.assertTrue(BytesUtil.compareTo(hint, colName) > 0);
+                    Assert.assertTrue(BytesUtil.compareTo(hint, first) <= 0);
+                } else if (part2 <= 3) {
+                    Assert.assertNull(hint);
+                    Assert.assertTrue(rangeFilter.filterKeyColumn(keyColumn));
+                    Assert.assertFalse(rangeFilter.ignoreRemainingRow());
+                } else {
+                    Assert.assertNull(hint);
+                    Assert.assertFalse(rangeFilter.filterKeyColumn(keyColumn));
+                    Assert.assertTrue(rangeFilter.ignoreRemainingRow());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedSeek() throws Exception {
+        List<ColumnPredicate> predicates = Lists.newArrayList(
+                new ColumnPredicate().setName("part1").setOp(CompareOp.EQUAL)
+                        .setValue(ByteBuffer.wrap(STRING_CODEC.encode("a"))),
+                new ColumnPredicate().setName("part2").setOp(CompareOp.GREATER_THAN_EQUAL)
+                        .setValue(ByteBuffer.wrap(LONG_CODEC.encode(3L))));
+        ByteBuffer[] endpoints = entityMapper.getQueryEndpoints(predicates);
+        // the start endpoint and the cursor are both past the bound of two entities
+        EntityFilter<String> rangeFilter = new EntityBoundedFilter<String>(
+                entityMapper.getNumComponents(), endpoints[0], endpoints[1], null, -1, 2)
+                .setContiguousRange(true)
+                .setSingleFamily(true);
+        EntityFilter<String> cursorFilter = new EntityBoundedFilter<String>(
+                entityMapper.getNumComponents(), null, -1, 2)
+                .setCursor(EntityMapper.getCursor(entityMapper.getNumComponents(),
+                        entityMapper.toColumnName(new TestEntity("A", "a", 2L, 2L, "foo"), "value2")));
+        // round trip the filters as they would be sent to the server
+        rangeFilter = (EntityFilter<String>) rangeFilter.decode(rangeFilter.encode(rangeFilter));
+        cursorFilter = (EntityFilter<String>) cursorFilter.decode(cursorFilter.encode(cursorFilter));
+
+        for (EntityFilter<String> boundedFilter : Lists.newArrayList(rangeFilter, cursorFilter)) {
+            for (long part2 = 1; part2 <= 4; part2++) {
+                TestEntity entity = new TestEntity("A", "a", part2, part2, "foo");
+                for (String valueName : new String[] { null, "value", "value2" }) {
+                    byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, valueName));
+                    KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                            new TestColumn(colName, new byte[0]));
+                    // the entities before the seek target must be counted against the bound
+                    Assert.assertNull(boundedFilter.getNextColumnHint(keyColumn));
+                    Assert.assertFalse(boundedFilter.filterKeyColumn(keyColumn));
+                }
+            }
+            Assert.assertTrue(boundedFilter.ignoreRemainingRow());
+        }
+    }
+
+    @Test
+    public void testCompiledPredicate() throws Exception {
+        // (value >= 2 and value < 4) or not (value2 = "foo") or value2 is absent
+        QueryPredicate predicate = new BooleanPredicate().setOp(BooleanOp.OR)
+                .addPredicate(new BooleanPredicate().setOp(BooleanOp.AND)
+                        .addPredicate(new ColumnPredicate().setName("value").setOp(CompareOp.GREATER_THAN_EQUAL)
+                                .setValue(LONG_CODEC.encode(2L)))
+                        .addPredicate(new ColumnPredicate().setName("value").setOp(CompareOp.LESS_THAN)
+                                .setValue(LONG_CODEC.encode(4L))))
+                .addPredicate(new BooleanPredicate().setOp(BooleanOp.NOT)
+                        .addPredicate(rawPredicate))
+                .addPredicate(new ColumnPredicate().setName("value2"));
+        // round trip the predicate as it would be sent to the server
+        predicate = predicate.decode(predicate.encode(predicate));
+        CompiledPredicate compiled = CompiledPredicate.compile(predicate);
+        Assert.assertNotNull(compiled);
+        Assert.assertEquals(2, compiled.getNumSlots());
+
+        for (Long value : new Long[] { null, 1L, 2L, 3L, 4L }) {
+            for (String value2 : new String[] { null, "", "foo", "fooo", "bar" }) {
+                Map<String, ByteBuffer> values = Maps.newHashMap();
+                ByteBuffer[] slots = new ByteBuffer[compiled.getNumSlots()];
+                if (value != null) {
+                    values.put("value", ByteBuffer.wrap(LONG_CODEC.encode(value)));
+                    slots[compiled.getSlot("value")] = ByteBuffer.wrap(LONG_CODEC.encode(value));
+                }
+                if (value2 != null) {
+                    values.put("value2", ByteBuffer.wrap(STRING_CODEC.encode(value2)));
+                    // a view into a larger array, as for a cell
+                    byte[] encoded = STRING_CODEC.encode(value2);
+                    byte[] bytes = new byte[encoded.length + 2];
+                    System.arraycopy(encoded, 0, bytes, 1, encoded.length);
+                    slots[compiled.getSlot("value2")] = ByteBuffer.wrap(bytes, 1, encoded.length).slice();
+                }
+                Assert.assertEquals(value + ", " + value2, predicate.evaluate(values), compiled.evaluate(slots));
+            }
+        }
+    }
+
+    @Test
+    public void testTail() throws Exception {
+        EntityFilter<String> tailFilter = new EntityFilter<String>(entityMapper.getNumComponents(), null, 2)
+                .setTail(true);
+        // round trip the filter as it would be sent to the server
+        tailFilter = (EntityFilter<String>) tailFilter.decode(tailFilter.encode(tailFilter));
+
+        List<KeyColumn<String, byte[]>> keyColumns = Lists.newArrayList();
+        for (long part2 = 1; part2 <= 4; part2++) {
+            TestEntity entity = new TestEntity("A", "a", part2, part2, "foo");
+            for (String valueName : new String[] { null, "value", "value2" }) {
+                byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, valueName));
+                KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                        new TestColumn(colName, new byte[0]));
+                // only the first column is included, to carry the columns kept by the filter
+                Assert.assertEquals(keyColumns.isEmpty(), tailFilter.filterKeyColumn(keyColumn));
+                // no entities can be skipped before the end of the row is known
+                Assert.assertFalse(tailFilter.ignoreRemainingRow());
+                keyColumns.add(keyColumn);
+            }
+        }
+
+        Assert.assertTrue(tailFilter.hasFilterRow());
+        Set<Integer> toKeep = tailFilter.filterRow(keyColumns.subList(0, 1));
+        Assert.assertTrue(toKeep.isEmpty());
+        List<io.hentitydb.store.Column<byte[]>> rowColumns = tailFilter.getRowColumns();
+        Assert.assertEquals(6, rowColumns.size());
+        for (int i = 0; i < rowColumns.size(); i++) {
+            Assert.assertArrayEquals(keyColumns.get(i + 6).getColumn().getRawName(), rowColumns.get(i).getRawName());
+        }
+    }
+
+    @Test
+    public void testCountOnly() throws Exception {
+        EntityFilter<String> countFilter = new EntityFilter<String>(entityMapper.getNumComponents(), rawPredicate, -1)
+                .setCountOnly(true);
+        // round trip the filter as it would be sent to the server
+        countFilter = (EntityFilter<String>) countFilter.decode(countFilter.encode(countFilter));
+
+        List<KeyColumn<String, byte[]>> keyColumns = Lists.newArrayList();
+        for (long part2 = 1; part2 <= 4; part2++) {
+            TestEntity entity = new TestEntity("A", "a", part2, part2, part2 % 2 == 0 ? "foo" : "bar");
+            for (String valueName : new String[] { null, "value", "value2" }) {
+                byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, valueName));
+                byte[] value = "value2".equals(valueName) ? STRING_CODEC.encode(entity.value2) : new byte[0];
+                KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                        new TestColumn(colName, value));
+                // only the first column is returned
+                if (countFilter.filterKeyColumn(keyColumn)) {
+                    keyColumns.add(keyColumn);
+                }
+            }
+        }
+
+        Assert.assertEquals(1, keyColumns.size());
+        Assert.assertTrue(countFilter.hasFilterRow());
+        Assert.assertEquals(Sets.newHashSet(0), countFilter.filterRow(keyColumns));
+        Assert.assertEquals(2, EntityFilter.decodeCount(countFilter.summarizeRow()));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAggregate() throws Exception {
+        io.hentitydb.serialization.Codec<Long> valueCodec =
+                (io.hentitydb.serialization.Codec<Long>) entityMapper.getValueMapper("value").getCodec();
+        EntityFilter<String> aggregateFilter = new EntityFilter<String>(entityMapper.getNumComponents(), rawPredicate, -1)
+                .setAggregate("value", valueCodec);
+        // round trip the filter as it would be sent to the server
+        aggregateFilter = (EntityFilter<String>) aggregateFilter.decode(aggregateFilter.encode(aggregateFilter));
+
+        List<KeyColumn<String, byte[]>> keyColumns = Lists.newArrayList();
+        for (long part2 = 1; part2 <= 4; part2++) {
+            TestEntity entity = new TestEntity("A", "a", part2, part2 * 10, part2 % 2 == 0 ? "foo" : "bar");
+            for (String valueName : new String[] { null, "value", "value2" }) {
+                byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, valueName));
+                byte[] value = "value2".equals(valueName) ? STRING_CODEC.encode(entity.value2)
+                        : "value".equals(valueName) ? valueCodec.encode(entity.value) : new byte[0];
+                KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                        new TestColumn(colName, value));
+                // only the first column is returned
+                if (aggregateFilter.filterKeyColumn(keyColumn)) {
+                    keyColumns.add(keyColumn);
+                }
+            }
+        }
+
+        Assert.assertEquals(1, keyColumns.size());
+        Assert.assertTrue(aggregateFilter.hasFilterRow());
+        Assert.assertEquals(Sets.newHashSet(0), aggregateFilter.filterRow(keyColumns));
+        EntityAggregate aggregate = EntityFilter.decodeAggregate(aggregateFilter.summarizeRow());
+        Assert.assertEquals(2, aggregate.getCount());
+        Assert.assertEquals(60, aggregate.getSum().longValue());
+        Assert.assertEquals(20, aggregate.getMin().longValue());
+        Assert.assertEquals(40, aggregate.getMax().longValue());
+        Assert.assertEquals(30, aggregate.getAverage().longValue());
+    }
+
+    @Test
+    public void testAggregateNonFinite() throws Exception {
+        DoubleCodec valueCodec = new DoubleCodec();
+        EntityFilter<String> aggregateFilter = new EntityFilter<String>(entityMapper.getNumComponents(), null, -1)
+                .setAggregate("value", valueCodec);
+        // round trip the filter as it would be sent to the server
+        aggregateFilter = (EntityFilter<String>) aggregateFilter.decode(aggregateFilter.encode(aggregateFilter));
+
+        double[] values = { 1.5, Double.NaN, 2.5, Double.POSITIVE_INFINITY };
+        List<KeyColumn<String, byte[]>> keyColumns = Lists.newArrayList();
+        for (long part2 = 1; part2 <= 4; part2++) {
+            TestEntity entity = new TestEntity("A", "a", part2, part2, "foo");
+            byte[] colName = EntityMapper.BYTE_BUFFER_CODEC.encode(entityMapper.toColumnName(entity, "value"));
+            KeyColumn<String, byte[]> keyColumn = new KeyColumn<>(STRING_CODEC, STRING_CODEC.encode(entity.rowKey),
+                    new TestColumn(colName, valueCodec.encode(values[(int) part2 - 1])));
+            if (aggregateFilter.filterKeyColumn(keyColumn)) {
+                keyColumns.add(keyColumn);
+            }
+        }
+        aggregateFilter.filterRow(keyColumns);
+
+        // the values that are NaN or infinite are skipped rather than failing the filter
+        EntityAggregate aggregate = EntityFilter.decodeAggregate(aggregateFilter.summarizeRow());
+        Assert.assertEquals(2, aggregate.getCount());
+        Assert.assertEquals(2, aggregate.getNonFiniteCount());
+        Assert.assertEquals(4.0, aggregate.getSum().doubleValue(), 0.0);
+        Assert.assertEquals(1.5, aggregate.getMin().doubleValue(), 0.0);
+        Assert.assertEquals(2.5, aggregate.getMax().doubleValue(), 0.0);
+    }
+
+    @Test
+    public void testTemplate() throws Exception {
+        ColumnPredicate placeholder = new ColumnPredicate()
+                .setName("value")
+                .setOp(CompareOp.GREATER_THAN)
+                .setValue(new byte[0]);
+        BooleanPredicate templatePredicate = new BooleanPredicate().setOp(BooleanOp.AND)
+                .addPredicate(rawPredicate)
+                .addPredicate(placeholder);
+        ByteBuffer start = ByteBuffer.wrap(new byte[] { 1, 2 });
+        EntityFilter<String> prototype = new EntityFilter<String>(entityMapper.getNumComponents(),
+                ByteBuffer.allocate(0), ByteBuffer.allocate(0), templatePredicate, 10)
+                .setTail(true);
+        Set<Object> holeKeys = Sets.newIdentityHashSet();
+        holeKeys.add(FilterTemplate.START);
+        holeKeys.add(placeholder);
+        FilterTemplate template = prototype.toTemplate(holeKeys);
+
+        Map<ColumnPredicate, ByteBuffer> values = Maps.newIdentityHashMap();
+        values.put(placeholder, ByteBuffer.wrap(LONG_CODEC.encode(5L)));
+        EntityFilter<String> bound = prototype.copyWith(start, ByteBuffer.allocate(0), templatePredicate.bind(values));
+        Map<Object, ByteBuffer> holeValues = Maps.newIdentityHashMap();
+        holeValues.putAll(values);
+        holeValues.put(FilterTemplate.START, start);
+
+        // the filled template matches the filter serialized from scratch
+        Assert.assertArrayEquals(bound.encode(bound), template.fill(holeValues));
+        // the template predicate is left unchanged
+        Assert.assertEquals(0, placeholder.getValue().remaining());
+        // a filter with a precomputed serialized form is not serialized again
+        EntityFilter<String> copy = prototype.copy().setEncoded(template.fill(holeValues));
+        Assert.assertArrayEquals(template.fill(holeValues), copy.encode(copy));
+    }
 }
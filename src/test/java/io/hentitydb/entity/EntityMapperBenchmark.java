@@ -0,0 +1,79 @@
+package io.hentitydb.entity;
+
+import com.google.common.collect.Lists;
+import io.hentitydb.EntityConfiguration;
+import io.hentitydb.Environment;
+import io.hentitydb.entity.EntityContextTest.TestEntity;
+import io.hentitydb.store.Column;
+import io.hentitydb.store.Connection;
+import io.hentitydb.store.Row;
+import io.hentitydb.store.Table;
+import org.apache.hadoop.conf.Configuration;
+
+import java.util.List;
+
+/**
+ * Measures the throughput of encoding entities to puts and of constructing entities from columns.  Run with the
+ * number of entities as an optional argument.
+ */
+public class EntityMapperBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        EntityConfiguration config = new EntityConfiguration(new Configuration());
+        config.setAutoTableCreation(true);
+        config.setTestMode(true);
+        try (Connection conn = Environment.getConnectionFactory(config).createConnection()) {
+            DefaultEntityContext<TestEntity, String> context = new DefaultEntityContext<>(conn, TestEntity.class);
+            EntityMapper<TestEntity, String> mapper = context.getEntityMapper();
+            List<TestEntity> entities = Lists.newArrayListWithExpectedSize(size);
+            for (long i = 0; i < size; i++) {
+                entities.add(new TestEntity("bench", "p" + (i % 100), i, i * i, String.valueOf(i)));
+            }
+            context.put(entities);
+            Row<String, byte[]> row = context.select().whereId().eq("bench").fetchRows().get(0);
+            List<List<Column<byte[]>>> columnLists = Lists.newArrayList();
+            for (List<Column<byte[]>> columns : Lists.partition(row.getColumns(), row.getColumns().size() / size)) {
+                columnLists.add(columns);
+            }
+
+            try (Table<String, byte[]> table = context.getTable()) {
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    encode(mapper, table, entities);
+                    decode(mapper, columnLists);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    encode(mapper, table, entities);
+                }
+                long encode = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    decode(mapper, columnLists);
+                }
+                long decode = System.nanoTime() - start;
+                System.out.printf("entities=%d encode=%.0f ops/s decode=%.0f ops/s%n",
+                        size, size * ITERATIONS / (encode / 1e9), size * ITERATIONS / (decode / 1e9));
+            } finally {
+                context.truncate();
+            }
+        }
+    }
+
+    private static void encode(EntityMapper<TestEntity, String> mapper, Table<String, byte[]> table,
+                               List<TestEntity> entities) {
+        for (TestEntity entity : entities) {
+            mapper.fillMutationBatch(table, entity);
+        }
+    }
+
+    private static void decode(EntityMapper<TestEntity, String> mapper, List<List<Column<byte[]>>> columnLists) {
+        for (List<Column<byte[]>> columns : columnLists) {
+            mapper.constructEntity("bench", columns);
+        }
+    }
+}
@@ -7,17 +7,24 @@ import java.util.Date;
 
 public class TestColumn implements Column<byte[]> {
 
+    private final String family;
     private final byte[] name;
     private final byte[] value;
     private final long timestamp;
 
     public TestColumn(byte[] name, byte[] value) {
+        this("cf", name, value);
+    }
+
+    public TestColumn(String family, byte[] name, byte[] value) {
+        this.family = family;
         this.name = name != null ? name.clone() : null;
         this.value = value != null ? value.clone() : null;
         this.timestamp = System.currentTimeMillis();
     }
 
     public TestColumn(byte[] name, byte[] value, long timestamp) {
+        this.family = "cf";
         this.name = name != null ? name.clone() : null;
         this.value = value != null ? value.clone() : null;
         this.timestamp = timestamp;
@@ -40,7 +47,7 @@ public class TestColumn implements Column<byte[]> {
 
     @Override
     public String getFamily() {
-        return "cf";
+        return family;
     }
 
     @Override
@@ -0,0 +1,63 @@
+package io.hentitydb.entity;
+
+import com.google.common.collect.Lists;
+import io.hentitydb.EntityConfiguration;
+import io.hentitydb.Environment;
+import io.hentitydb.entity.EntityContextTest.TestEntity;
+import io.hentitydb.store.Connection;
+import io.hentitydb.store.Row;
+import org.apache.hadoop.conf.Configuration;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serial and parallel decoding of a synthetic wide row.  Run with the number of entities in the row
+ * and the parallel decoding threshold as optional arguments.
+ */
+public class WideRowDecodingBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int rowSize = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int threshold = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        EntityConfiguration config = new EntityConfiguration(new Configuration());
+        config.setAutoTableCreation(true);
+        config.setTestMode(true);
+        try (Connection conn = Environment.getConnectionFactory(config).createConnection()) {
+            DefaultEntityContext<TestEntity, String> context = new DefaultEntityContext<>(conn, TestEntity.class);
+            List<TestEntity> entities = Lists.newArrayListWithExpectedSize(rowSize);
+            for (long i = 0; i < rowSize; i++) {
+                entities.add(new TestEntity("wide", "p" + (i % 100), i, i * i, String.valueOf(i)));
+            }
+            context.put(entities);
+            List<Row<String, byte[]>> rows = context.select().whereId().eq("wide").fetchRows();
+
+            try {
+                long serial = time(context, rows);
+                context.setParallelDecodingThreshold(threshold).setDecodingPool(ForkJoinPool.commonPool());
+                long parallel = time(context, rows);
+                System.out.printf("entities=%d parallelism=%d serial=%.2fms parallel=%.2fms%n",
+                        rowSize, ForkJoinPool.commonPool().getParallelism(),
+                        serial / 1e6, parallel / 1e6);
+            } finally {
+                context.truncate();
+            }
+        }
+    }
+
+    private static long time(DefaultEntityContext<TestEntity, String> context, List<Row<String, byte[]>> rows) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            context.convertRowsToEntities(rows);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            context.convertRowsToEntities(rows);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
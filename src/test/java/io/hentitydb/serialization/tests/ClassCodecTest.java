@@ -1,6 +1,7 @@
 package io.hentitydb.serialization.tests;
 
 import io.hentitydb.serialization.ClassCodec;
+import io.hentitydb.serialization.StringCodec;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -9,6 +10,7 @@ import static org.junit.Assert.assertThat;
 public class ClassCodecTest {
     private final ClassCodec codec = new ClassCodec();
     private final byte[] bytes = new byte[]{32, 106, 97, 118, 97, 46, 108, 97, 110, 103, 46, 83, 116, 114, 105, 110, 103};
+    private final ClassCodec typeIdCodec = new ClassCodec(null, true);
 
     @Test
     public void writesClass() throws Exception {
@@ -21,4 +23,22 @@ public class ClassCodecTest {
         assertThat(codec.decode(bytes).getName(),
                    is(String.class.getName()));
     }
+
+    @Test
+    public void writesBuiltInClassAsTypeId() throws Exception {
+        assertThat(typeIdCodec.encode(StringCodec.class),
+                   is(new byte[]{23}));
+        assertThat(typeIdCodec.decode(new byte[]{23}).getName(),
+                   is(StringCodec.class.getName()));
+    }
+
+    @Test
+    public void writesOtherClassByName() throws Exception {
+        byte[] typeIdBytes = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, typeIdBytes, 1, bytes.length);
+        assertThat(typeIdCodec.encode(String.class),
+                   is(typeIdBytes));
+        assertThat(typeIdCodec.decode(typeIdBytes).getName(),
+                   is(String.class.getName()));
+    }
 }
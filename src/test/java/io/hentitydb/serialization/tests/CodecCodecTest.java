@@ -9,8 +9,8 @@ import static org.junit.Assert.assertThat;
 
 public class CodecCodecTest {
     private final CodecCodec<String> codec = new CodecCodec<>();
-    private final byte[] bytes = new byte[]{76, 105, 111, 46, 104, 101, 110, 116, 105, 116, 121, 100, 98, 46, 115, 101,
-            114, 105, 97, 108, 105, 122, 97, 116, 105, 111, 110, 46, 83, 116, 114, 105, 110, 103, 67, 111, 100, 101, 99};
+    // the type ID of StringCodec
+    private final byte[] bytes = new byte[]{23};
 
     @Test
     public void writesCodec() throws Exception {
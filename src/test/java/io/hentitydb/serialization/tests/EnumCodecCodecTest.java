@@ -0,0 +1,28 @@
+package io.hentitydb.serialization.tests;
+
+import io.hentitydb.serialization.EnumCodec;
+import io.hentitydb.serialization.EnumCodecCodec;
+import org.junit.Test;
+
+import javax.persistence.EnumType;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EnumCodecCodecTest {
+    private final EnumCodecCodec<TimeUnit> codec = new EnumCodecCodec<>();
+
+    @Test
+    public void roundTripsCodec() throws Exception {
+        EnumCodec<TimeUnit> enumCodec = codec.decode(codec.encode(new EnumCodec<>(TimeUnit.class, EnumType.ORDINAL)));
+        assertThat(enumCodec.getEnumClass().getName(), is(TimeUnit.class.getName()));
+        assertThat(enumCodec.getEnumType(), is(EnumType.ORDINAL));
+    }
+
+    @Test
+    public void writesEnumClassByName() throws Exception {
+        // enum classes are not built in, so they are written as type ID 0 followed by the name
+        assertThat(codec.encode(new EnumCodec<>(TimeUnit.class, EnumType.STRING))[0], is((byte) 0));
+    }
+}
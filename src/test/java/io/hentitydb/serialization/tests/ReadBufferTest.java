@@ -79,6 +79,18 @@ public class ReadBufferTest {
                    is(new byte[]{1, 2, 3, 4}));
     }
 
+    @Test
+    public void deserializingASliceOfBytes() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{1, 2, 3, 4, 5}, 1, 3);
+
+        assertThat("returns a byte",
+                   buffer.readByte(),
+                   is((byte) 2));
+        assertThat("returns the rest of the slice",
+                   buffer.readBytes(),
+                   is(new byte[]{3, 4}));
+    }
+
     @Test
     public void deserializingAUtf8EncodedString() throws Exception {
         final ReadBuffer buffer = new ReadBuffer(new byte[]{18, 104, 101, 108, 108, 111, 32, 109, 111, 109});
@@ -106,4 +118,47 @@ public class ReadBufferTest {
                    is(0.41)
         );
     }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void deserializingAByteAfterTheSlice() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{1, 2, 3, 4, 5}, 1, 2);
+        buffer.readShort();
+
+        buffer.readByte();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void deserializingAShortPastTheSlice() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{ 0, 3, 32 }, 0, 1);
+
+        buffer.readShort();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void deserializingAnIntPastTheSlice() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{0, 0, -81, -56, 0}, 1, 3);
+
+        buffer.readInt();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void deserializingALongPastTheSlice() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{0, 0, 0, 1, 42, 5, -14, 0}, 0, 7);
+
+        buffer.readLong();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void deserializingAVarIntPastTheSlice() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{-112, -65, 5}, 0, 2);
+
+        buffer.readVarInt();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void deserializingAVarLongPastTheSlice() throws Exception {
+        final ReadBuffer buffer = new ReadBuffer(new byte[]{-128, -56, -81, -96, 37}, 0, 4);
+
+        buffer.readVarLong();
+    }
 }
@@ -34,4 +34,12 @@ public class StringCodecTest {
         assertThat(Bytes.toString(bytes2),
                    is("woo"));
     }
+
+    @Test
+    public void readsStringsFromASlice() throws Exception {
+        final byte[] padded = new byte[]{0, 119, 111, 111, 0};
+
+        assertThat(codec2.decode(padded, 1, 3),
+                   is("woo"));
+    }
 }
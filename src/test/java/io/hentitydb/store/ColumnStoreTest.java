@@ -5,6 +5,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.hentitydb.EntityConfiguration;
+import io.hentitydb.serialization.LongCodec;
 import io.hentitydb.serialization.SaltingCodec;
 import io.hentitydb.serialization.StringCodec;
 import org.junit.*;
@@ -293,6 +294,47 @@ public abstract class ColumnStoreTest {
                 is(7L));
     }
 
+    @Test
+    public void asyncOperations() throws Exception {
+        multiColumnTable.put("abc").addColumn("value", 5L).executeAsync().get();
+        assertThat(multiColumnTable.get("abc").addColumn("value").executeAsync().get().getLong("value"),
+                is(5L));
+
+        assertThat(multiColumnTable.put("abc").addColumn("value", 6L)
+                        .executeIfAsync("cf", "value", CompareOp.EQUAL, new LongCodec().encode(4L)).get(),
+                is(false));
+        assertThat(multiColumnTable.put("abc").addColumn("value", 6L)
+                        .executeIfAsync("cf", "value", CompareOp.EQUAL, new LongCodec().encode(5L)).get(),
+                is(true));
+        assertThat(multiColumnTable.put("abc").addColumn("value3", 1L).executeIfAbsentAsync("cf", "value3").get(),
+                is(true));
+        assertThat(multiColumnTable.put("abc").addColumn("value3", 2L).executeIfAbsentAsync("cf", "value3").get(),
+                is(false));
+
+        Put<String, String> put = multiColumnTable.put("abc").addColumn("value", 7L);
+        Delete<String, String> delete = multiColumnTable.delete("abc").addColumn("value2");
+        multiColumnTable.mutateRow("abc").add(put, delete)
+                .executeIfAsync("cf", "value", CompareOp.EQUAL, new LongCodec().encode(6L)).get();
+        multiColumnTable.batchMutations().add(multiColumnTable.put("fgh").addColumn("value", 8L)).executeAsync().get();
+
+        BatchOperation<String, String> batch = multiColumnTable.batchOperations();
+        batch.add(multiColumnTable.get("abc").addColumn("value").addColumn("value2").addColumn("value3"));
+        batch.add(multiColumnTable.get("fgh").addColumn("value"));
+        Object[] rows = batch.executeAsync().get();
+        assertThat(((Row<String, String>) rows[0]).getLong("value"),
+                is(7L));
+        assertThat(((Row<String, String>) rows[0]).isNull("value2"),
+                is(true));
+        assertThat(((Row<String, String>) rows[0]).getLong("value3"),
+                is(1L));
+        assertThat(((Row<String, String>) rows[1]).getLong("value"),
+                is(8L));
+
+        multiColumnTable.delete("fgh").executeAsync().get();
+        assertThat(multiColumnTable.get("fgh").addColumn("value").executeAsync().get().isNull("value"),
+                is(true));
+    }
+
     @Test
     public void readingAColumnRange() throws Exception {
         multiColumnTable.put("ijk")
@@ -838,6 +880,29 @@ public abstract class ColumnStoreTest {
                 )));
     }
 
+    @Test
+    public void filteringTheColumnsOfASaltedRange() throws Exception {
+        if (!config.getTestMode()) return;
+        saltedTable.put("4").addColumn("other", "four").execute();
+        Map<String, String> entries = Maps.newHashMap();
+        try (RowScanner<String, String> scanner = saltedTable.scanColumns(null, "6", null,
+                new TestColumnFilter("value"), Executors.newCachedThreadPool())) {
+            for (Row<String, String> result : scanner) {
+                entries.put(result.getKey(), result.getString("other"));
+                assertThat(result.isNull("value"), is(true));
+            }
+        } finally {
+            saltedTable.delete("4").addColumn("other").execute();
+        }
+        ImmutableMap<String, String> result = ImmutableMap.copyOf(entries);
+
+        // rows without any remaining columns are skipped
+        assertThat(result,
+                is(ImmutableMap.of(
+                        "4", "four"
+                )));
+    }
+
     @Test
     public void filteringAScan() throws Exception {
         if (!config.getTestMode()) return;
@@ -142,6 +142,26 @@ public class HBaseTest extends ColumnStoreTest {
                 is(5));
     }
 
+    @Test
+    public void testTablePool() throws Exception {
+        Table<String, Long> table = conn.getTable(inboxTableName);
+        Table<String, Long> table2 = conn.getTable(inboxTableName);
+        assertThat(table == table2, is(false));
+        table.close();
+        // closing twice must not return the handle to the pool twice
+        table.close();
+
+        Table<String, Long> pooled = conn.getTable(inboxTableName);
+        Table<String, Long> unpooled = conn.getTable(inboxTableName);
+        assertThat(pooled == table, is(true));
+        assertThat(unpooled == table, is(false));
+        assertThat(pooled.get("my").execute().getColumns().size(), is(2));
+
+        pooled.close();
+        unpooled.close();
+        table2.close();
+    }
+
     @AfterClass
     public static void cleanUpTests() {
         try {
@@ -0,0 +1,60 @@
+package io.hentitydb.store.hbase;
+
+import io.hentitydb.EntityConfiguration;
+import io.hentitydb.Environment;
+import io.hentitydb.serialization.LongCodec;
+import io.hentitydb.serialization.StringCodec;
+import io.hentitydb.store.Connection;
+import io.hentitydb.store.ConnectionFactory;
+import io.hentitydb.store.Table;
+import io.hentitydb.store.TableMetadata;
+import io.hentitydb.store.TableName;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Measures the per-operation overhead of obtaining and closing a table handle, on its own and around a get,
+ * with and without table handle pooling.  Run with {@code main}; it is not part of the test suite.
+ *
+ * In test mode the underlying tables are mocks, so this isolates the cost of the client-side handles.
+ */
+public class TablePoolBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200000;
+    private static final int ITERATIONS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        for (boolean withGet : new boolean[] { false, true }) {
+            String op = withGet ? "get" : "open/close";
+            System.out.println(op + " unpooled: " + run(0, withGet) + " ns/op");
+            System.out.println(op + " pooled:   " + run(16, withGet) + " ns/op");
+        }
+    }
+
+    private static double run(int tablePoolSize, boolean withGet) throws Exception {
+        EntityConfiguration config = new EntityConfiguration(new Configuration());
+        config.setTestMode(true);
+        config.setTablePoolSize(tablePoolSize);
+        ConnectionFactory factory = Environment.getConnectionFactory(config);
+        TableName tableName = new TableName("bench:pool");
+        factory.declareTable(new TableMetadata<>(tableName, "cf", new StringCodec(), new LongCodec()));
+        try (Connection conn = factory.createConnection()) {
+            try (Table<String, Long> table = conn.getTable(tableName)) {
+                table.put("row").addColumn(1L, 1L).execute();
+            }
+            iterate(conn, tableName, withGet, WARMUP_ITERATIONS);
+            long start = System.nanoTime();
+            iterate(conn, tableName, withGet, ITERATIONS);
+            return (double) (System.nanoTime() - start) / ITERATIONS;
+        }
+    }
+
+    private static void iterate(Connection conn, TableName tableName, boolean withGet, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            try (Table<String, Long> table = conn.getTable(tableName)) {
+                if (withGet) {
+                    table.get("row").execute();
+                }
+            }
+        }
+    }
+}